@@ -6,11 +6,13 @@
 package cpusim;
 
 import cpusim.model.module.RAM;
+import cpusim.model.module.Register;
 
 public class BreakException extends RuntimeException {
 	private static final long serialVersionUID = 1L;
 	public int breakAddress;
     public RAM breakRAM;
+    public Register breakRegister;
     
     /**
      * Constructor for Break Exception.
@@ -24,4 +26,16 @@ public class BreakException extends RuntimeException {
         breakAddress = addr;
         breakRAM = memory; 
     }
+
+    /**
+     * Constructor for a break at a watched register.
+     *
+     * @param message - Message of exception.
+     * @param register - the register whose watchpoint was hit.
+     */
+    public BreakException(String message, Register register) {
+        super(message);
+        breakAddress = -1;
+        breakRegister = register;
+    }
 }
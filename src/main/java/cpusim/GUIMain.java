@@ -13,6 +13,7 @@ import java.net.URL;
 import java.util.Optional;
 
 import cpusim.gui.util.FXMLLoaderFactory;
+import cpusim.util.ExecutionMetrics;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -44,9 +45,16 @@ public class GUIMain extends Application {
         // to empty strings instead of using params.get(0) and params.get(1).
         String machineFileName = params.get(0);
 		String textFileName = params.get(1);
+		boolean publishMetrics = params.size() > 2 && Boolean.parseBoolean(params.get(2));
 
         // Set up the Scene with the Desktop and add it to the stage
 		Mediator mediator = new Mediator(stage);
+		if (publishMetrics) {
+			ExecutionMetrics metrics = Main.createMetrics();
+			if (metrics != null) {
+				mediator.setMetrics(metrics);
+			}
+		}
 		DesktopController deskController = new DesktopController(mediator, stage);
 		Pane mainPane = null;
 
@@ -25,18 +25,43 @@ import cpusim.assembler.Token;
 import cpusim.iochannel.BufferedChannel;
 import cpusim.iochannel.CommandLineChannel;
 import cpusim.iochannel.FileChannel;
+import cpusim.mif.ObjectFile;
+import cpusim.mif.TraceReader;
+import cpusim.mif.TraceRecorder;
+import cpusim.model.ExecutionLimits;
+import cpusim.model.ExecutionProfiler;
 import cpusim.model.Machine;
 import cpusim.model.Microinstruction;
 import cpusim.model.microinstruction.IO;
+import cpusim.model.module.RAM;
+import cpusim.model.module.Register;
+import cpusim.model.module.WatchType;
+import cpusim.util.ExecutionMetrics;
 import cpusim.util.LoadException;
+import cpusim.util.ObjectFileException;
+import cpusim.util.TraceFileException;
+import cpusim.xml.MachineBinary;
 import cpusim.xml.MachineReader;
 import javafx.application.Application;
 import javafx.collections.ObservableList;
 import org.xml.sax.SAXParseException;
+
+import javax.management.JMException;
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Main {
+
+    /** the form of a watchpoint on RAM cells given with -watch, such as
+     * Main[14]:write or Main[10-15]:change */
+    private static final Pattern RAM_WATCH =
+            Pattern.compile("(.+)\\[(\\d+)(?:-(\\d+))?\\]");
     
 	// Main entry point
     public static void main(String[] argv) {
@@ -44,6 +69,16 @@ public class Main {
         String machineFileName = "";
         String textFileName = "";
         boolean commandLineMode = false;
+        boolean printStatistics = false;
+        String profileFileName = "";
+        boolean publishMetrics = false;
+        String traceFileName = "";
+        String dumpFromFileName = "";
+        String dumpToFileName = "";
+        ExecutionLimits limits = null;
+        List<String> watches = new ArrayList<>();
+        String convertFromFileName = "";
+        String convertToFileName = "";
         
         int i = 0;
         while(i < argv.length) {
@@ -59,19 +94,129 @@ public class Main {
                 commandLineMode = true;
                 i++;
             }
+            else if (argv[i].equals("-s")) {
+                printStatistics = true;
+                i++;
+            }
+            else if (argv[i].equals("-p") && i + 1 < argv.length) {
+                profileFileName = argv[i+1];
+                i += 2;
+            }
+            else if (argv[i].equals("-jmx")) {
+                publishMetrics = true;
+                i++;
+            }
+            else if ((argv[i].equals("-maxcycles") || argv[i].equals("-maxmicros") ||
+                    argv[i].equals("-maxseconds") || argv[i].equals("-maxoutput")) &&
+                    i + 1 < argv.length) {
+                long max;
+                try {
+                    max = Long.parseLong(argv[i+1]);
+                } catch (NumberFormatException ex) {
+                    max = -1;
+                }
+                if (max < 0) {
+                    System.out.println("Bad limit for " + argv[i] + ": " + argv[i+1]);
+                    return;
+                }
+                if (limits == null) {
+                    limits = new ExecutionLimits();
+                }
+                if (argv[i].equals("-maxcycles"))
+                    limits.setMaxMachineCycles(max);
+                else if (argv[i].equals("-maxmicros"))
+                    limits.setMaxMicros(max);
+                else if (argv[i].equals("-maxseconds"))
+                    limits.setMaxMillis(max > Long.MAX_VALUE / 1000 ? -1 : max * 1000);
+                else
+                    limits.setMaxOutputBytes(max);
+                i += 2;
+            }
+            else if (argv[i].equals("-trace") && i + 1 < argv.length) {
+                traceFileName = argv[i+1];
+                i += 2;
+            }
+            else if (argv[i].equals("-watch") && i + 1 < argv.length) {
+                watches.add(argv[i+1]);
+                i += 2;
+            }
+            else if (argv[i].equals("-dumptrace") && i + 2 < argv.length) {
+                dumpFromFileName = argv[i+1];
+                dumpToFileName = argv[i+2];
+                i += 3;
+            }
+            else if (argv[i].equals("-convert") && i + 2 < argv.length) {
+                convertFromFileName = argv[i+1];
+                convertToFileName = argv[i+2];
+                i += 3;
+            }
             else {
                 System.out.println("Bad command line argument: " + argv[i]);
                 return;
             }
         }
 
-        // run it via the command line or via the JavaFX GUI
-        if( commandLineMode ) {
-        	loadAndRunInCommandLineMode(machineFileName, textFileName);
+        // convert a machine file, run it via the command line or via the JavaFX GUI
+        if( ! convertFromFileName.equals("") ) {
+            convertMachineFile(convertFromFileName, convertToFileName);
+        }
+        else if( ! dumpFromFileName.equals("") ) {
+            dumpTrace(dumpFromFileName, dumpToFileName);
+        }
+        else if( commandLineMode ) {
+        	loadAndRunInCommandLineMode(machineFileName, textFileName,
+                                        printStatistics, profileFileName,
+                                        publishMetrics, traceFileName, limits,
+                                        watches);
         }
         else {
         	Application.launch(cpusim.GUIMain.class,
-                                             machineFileName, textFileName);
+                                             machineFileName, textFileName,
+                                             String.valueOf(publishMetrics));
+        }
+    }
+
+    /**
+     * converts the given XML machine file to a binary machine file or
+     * the given binary machine file to an XML machine file.
+     * @param fromFileName the name of the machine file to be converted
+     * @param toFileName the name of the file to be written
+     */
+    private static void convertMachineFile(String fromFileName, String toFileName) {
+        File fromFile = new File(fromFileName);
+        File toFile = new File(toFileName);
+        try {
+            if (MachineBinary.isBinaryMachineFile(fromFile)) {
+                MachineBinary.convertToXML(fromFile, toFile);
+            }
+            else {
+                MachineBinary.convertToBinary(fromFile, toFile);
+            }
+        } catch (Exception ex) {
+            String errorMessage = "Error when converting the machine file \"" +
+                    fromFileName + "\"";
+            if (ex instanceof SAXParseException) {
+                errorMessage += " at line " +
+                        ((SAXParseException) ex).getLineNumber();
+            }
+            if (ex.getMessage() != null) {
+                errorMessage += ".\n" + ex.getMessage();
+            }
+            System.out.println(errorMessage);
+        }
+    }
+
+    /**
+     * writes the given execution trace file as text to the given file.
+     * @param traceFileName the name of the trace file to be read
+     * @param textFileName the name of the text file to be written
+     */
+    private static void dumpTrace(String traceFileName, String textFileName) {
+        try (PrintWriter out = new PrintWriter(textFileName, "UTF-8")) {
+            new TraceReader(new File(traceFileName)).dump(out);
+        } catch (IOException | TraceFileException ex) {
+            System.out.println("Error when dumping the trace file \"" +
+                    traceFileName + "\".\n" + ex.getMessage());
         }
     }
 
@@ -80,9 +225,26 @@ public class Main {
      * The JavaFX gui never appears.
      * @param machineFileName the name of the file containing the machine
      * @param textFileName the name of the file containing the program
+     * @param printStatistics if true, the assembly statistics are printed
+     *                        before the program is run
+     * @param profileFileName the name of the file to which the execution
+     *                        profile is written, or "" if the execution is
+     *                        not to be profiled
+     * @param publishMetrics if true, the execution metrics are published
+     *                       through JMX while the program runs
+     * @param traceFileName the name of the file to which the execution trace
+     *                      is written, or "" if the execution is not to be
+     *                      traced
+     * @param limits the limits on the execution, or null if there are none.
+     *               If the execution is stopped by one of them, CPU Sim
+     *               exits with the exit code of that limit.
+     * @param watches the watchpoints at which the execution is to stop, each
+     *                in the form given to -watch
      */
     private static void loadAndRunInCommandLineMode(String machineFileName, String
-            textFileName) {
+            textFileName, boolean printStatistics, String profileFileName,
+            boolean publishMetrics, String traceFileName, ExecutionLimits limits,
+            List<String> watches) {
     	
     	// Give error when appropriate
         if(machineFileName.equals("") || textFileName.equals("")) {
@@ -114,7 +276,190 @@ public class Main {
         }
         final Machine machine = reader.getMachine();
 
-        //assemble and load the program in the text file
+        //load an object file directly or else assemble and load the program
+        if (textFileName.endsWith(ObjectFile.EXTENSION)) {
+            try {
+                ObjectFile.read(new File(textFileName), machine.getCodeStore());
+            } catch (IOException | ObjectFileException ex) {
+                System.out.println("Error when reading the object file \"" +
+                        textFileName + "\".\n" + ex.getMessage());
+                return;
+            }
+        }
+        else if (!assembleAndLoad(machine, textFileName, printStatistics)) {
+            return;
+        }
+
+        //set the watchpoints, which the command line always halts at
+        if (! watches.isEmpty()) {
+            for (String watch : watches) {
+                if (! setWatch(machine, watch)) {
+                    return;
+                }
+            }
+            machine.setHaltAtWatches(true);
+        }
+
+        //update all io micros with non-file channels
+        //to input/output to the command line
+        ObservableList<Microinstruction> ioMicros = machine.getMicros("io");
+        BufferedChannel commandLineChannel = new BufferedChannel(new CommandLineChannel());
+        for(Microinstruction io : ioMicros) {
+            if(! (((IO) io).getConnection() instanceof FileChannel))
+                ((IO) io).setConnection(commandLineChannel);
+        }
+
+        //run the program
+        if (publishMetrics) {
+            ExecutionMetrics metrics = createMetrics();
+            if (metrics != null) {
+                metrics.setMachine(machine);
+            }
+        }
+        ExecutionProfiler profiler = null;
+        if (! profileFileName.equals("")) {
+            profiler = new ExecutionProfiler();
+            machine.setProfiler(profiler);
+        }
+        TraceRecorder tracer = null;
+        if (! traceFileName.equals("")) {
+            try {
+                tracer = new TraceRecorder(machine, new File(traceFileName));
+            } catch (IOException ex) {
+                System.out.println("Error when creating the trace file \"" +
+                        traceFileName + "\".\n" + ex.getMessage());
+                return;
+            }
+            machine.setTracer(tracer);
+        }
+        machine.setLimits(limits);
+        machine.execute(Machine.RunModes.COMMAND_LINE);
+        if (profiler != null) {
+            writeProfile(profiler, machine, profileFileName);
+        }
+        if (tracer != null) {
+            try {
+                tracer.close();
+            } catch (IOException ex) {
+                System.out.println("Error when writing the trace file \"" +
+                        traceFileName + "\".\n" + ex.getMessage());
+            }
+        }
+        if (limits != null && limits.getLimitReached() != null) {
+            System.exit(limits.getLimitReached().getExitCode());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * sets the watchpoint described by the given -watch argument, printing
+     * an error message if it is not valid.  The argument is the name of a
+     * register or the name of a RAM followed by an address or a range of
+     * addresses in brackets, then a colon and the kind of access:  read
+     * (RAM only), write or change.
+     * @param machine the machine whose register or RAM is watched
+     * @param watch the argument, such as acc:change or Main[14-15]:write
+     * @return true if the watchpoint was set
+     */
+    private static boolean setWatch(Machine machine, String watch) {
+        int colon = watch.lastIndexOf(':');
+        WatchType type = null;
+        if (colon != -1) {
+            try {
+                type = WatchType.valueOf(watch.substring(colon + 1)
+                        .toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                // reported below
+            }
+        }
+        if (type == null) {
+            System.out.println("Bad watchpoint " + watch + ": it must end with " +
+                    ":read, :write or :change.");
+            return false;
+        }
+        String name = watch.substring(0, colon);
+        // a register is looked for first since the registers of register
+        // arrays have names with brackets too
+        for (Register register : machine.getAllRegisters()) {
+            if (register.getName().equals(name)) {
+                if (type == WatchType.READ) {
+                    System.out.println("Bad watchpoint " + watch +
+                            ": registers cannot be watched for reads.");
+                    return false;
+                }
+                register.setWatch(type, true);
+                return true;
+            }
+        }
+        Matcher matcher = RAM_WATCH.matcher(name);
+        if (matcher.matches()) {
+            for (RAM ram : machine.getAllRAMs()) {
+                if (ram.getName().equals(matcher.group(1))) {
+                    try {
+                        int first = Integer.parseInt(matcher.group(2));
+                        int last = matcher.group(3) == null ? first :
+                                Integer.parseInt(matcher.group(3));
+                        ram.setWatch(type, first, last, true);
+                        return true;
+                    } catch (NumberFormatException | ExecutionException ex) {
+                        System.out.println("Bad watchpoint " + watch +
+                                ": the addresses are out of range.");
+                        return false;
+                    }
+                }
+            }
+        }
+        System.out.println("Bad watchpoint " + watch + ": there is no register " +
+                "or RAM with that name.");
+        return false;
+    }
+
+    /**
+     * creates the execution metrics and registers them with the platform
+     * MBean server so that JMX clients can read them, printing any error
+     * message.
+     * @return the metrics, or null if they could not be registered
+     */
+    public static ExecutionMetrics createMetrics() {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        try {
+            metrics.register();
+        } catch (JMException ex) {
+            System.out.println("Error when publishing the execution metrics.\n" +
+                    ex.getMessage());
+            return null;
+        }
+        return metrics;
+    }
+
+    /**
+     * writes the flat profile and the annotated listing of the program
+     * to the given file, printing any error message.
+     * @param profiler the profiler that counted the execution
+     * @param machine the machine that was profiled
+     * @param profileFileName the name of the file to be written
+     */
+    private static void writeProfile(ExecutionProfiler profiler, Machine machine,
+                                     String profileFileName) {
+        try (PrintWriter out = new PrintWriter(profileFileName, "UTF-8")) {
+            profiler.writeFlatProfile(out, machine.getCodeStore());
+            profiler.writeAnnotatedListing(out, machine.getCodeStore());
+        } catch (IOException ex) {
+            System.out.println("Error when writing the profile file \"" +
+                    profileFileName + "\".\n" + ex.getMessage());
+        }
+    }
+
+    /**
+     * assembles the program in the given text file and loads it into the
+     * code store of the machine, printing any error message.
+     * @param machine the machine whose program is to be assembled
+     * @param textFileName the name of the file containing the program
+     * @param printStatistics if true, the assembly statistics are printed
+     * @return true if the program was assembled and loaded successfully
+     */
+    private static boolean assembleAndLoad(Machine machine, String textFileName,
+                                           boolean printStatistics) {
         File programFile = new File(textFileName);
         Assembler assembler = new Assembler(machine);
         try {
@@ -132,7 +477,10 @@ public class Main {
             if (!exc.token.filename.equals(""))
                 errorMessage += "\n       in file " + exc.token.filename;
             System.out.println(errorMessage);
-            return;
+            return false;
+        }
+        if (printStatistics) {
+            System.out.println(assembler.getStatistics());
         }
         List<AssembledInstructionCall> machineInstructions =
                                         assembler.getAssembledInstructions();
@@ -141,20 +489,8 @@ public class Main {
                                         machine.getStartingAddressForLoading());
         } catch (LoadException ex) {
             System.out.println(ex.getMessage());
-            return;
-        }
-
-        //update all io micros with non-file channels
-        //to input/output to the command line
-        ObservableList<Microinstruction> ioMicros = machine.getMicros("io");
-        BufferedChannel commandLineChannel = new BufferedChannel(new CommandLineChannel());
-        for(Microinstruction io : ioMicros) {
-            if(! (((IO) io).getConnection() instanceof FileChannel))
-                ((IO) io).setConnection(commandLineChannel);
+            return false;
         }
-
-        //run the program
-        machine.execute(Machine.RunModes.COMMAND_LINE);
-        System.exit(0);
+        return true;
     }
 }
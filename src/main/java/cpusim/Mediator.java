@@ -142,13 +142,13 @@ import cpusim.assembler.AssembledInstructionCall;
 import cpusim.assembler.Assembler;
 import cpusim.assembler.AssemblyException;
 import cpusim.gui.desktop.DesktopController;
-import cpusim.mif.MIFScanner;
 import cpusim.model.Machine;
 import cpusim.model.module.RAM;
 import cpusim.model.module.RAMLocation;
 import cpusim.model.module.Register;
 import cpusim.model.module.RegisterArray;
 import cpusim.util.*;
+import cpusim.xml.MachineBinary;
 import cpusim.xml.MachineReader;
 import cpusim.xml.MachineWriter;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -161,11 +161,11 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import org.xml.sax.SAXParseException;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -176,10 +176,10 @@ import java.util.Set;
 public class Mediator
 {
     private static final String NEWLINE = System.lineSeparator();
-    private static final String SPACES = "              ";
 
     private SimpleObjectProperty<Machine> machine;
     private BackupManager backupManager;
+    private ExecutionMetrics metrics;
     private Stage stage;
     private Assembler assembler;
     private DesktopController desktopController;
@@ -270,17 +270,36 @@ public class Mediator
             stage.titleProperty().bind(machine.get().getNameProperty());
         }
 
-        // In case name ends with .cpu
+        // In case name ends with .cpu or .cpub
         String newName = machine.get().getName();
         if (newName.toLowerCase().endsWith(".cpu")) {
             machine.get().getNameProperty().set(newName.substring(0, newName.length() -
                     4));
         }
+        else if (newName.toLowerCase().endsWith(MachineBinary.EXTENSION)) {
+            machine.get().getNameProperty().set(
+                    MachineBinary.withoutExtension(newName));
+        }
 
         machine.get().stateProperty().removeListener(backupManager);
         machine.get().stateProperty().addListener(backupManager);
         addPropertyChangeListenerToAllModules(backupManager);
         this.assembler = new Assembler(machine.get());
+        if (metrics != null) {
+            metrics.setMachine(m);
+        }
+    }
+
+    /**
+     * sets the metrics that publish the execution of the current machine
+     * and of every machine set later.
+     *
+     * @param metrics the metrics to be kept up to date
+     */
+    public void setMetrics(ExecutionMetrics metrics) {
+        this.metrics = metrics;
+        metrics.setBackupManager(backupManager);
+        metrics.setMachine(machine.get());
     }
 
     /**
@@ -418,11 +437,8 @@ public class Mediator
             return;
         }
 
-        MachineWriter writer = new MachineWriter();
         try {
-            writer.writeMachine(machine.get(), machineFile.getName(),
-                    getRegisterRAMPairs(), new PrintWriter(new FileWriter(machineFile),
-                            true));
+            writeMachineFile(machineFile);
             setMachineDirty(false);
             this.desktopController.updateReopenMachineFiles(machineFile);
         } catch (IOException IOe) {
@@ -454,21 +470,21 @@ public class Mediator
         }*/
 
 
-        MachineWriter writer = new MachineWriter();
         try {
-            writer.writeMachine(machine.get(), fileToSave.getName(),
-                    getRegisterRAMPairs(), new PrintWriter(new FileWriter(fileToSave),
-                            true));
+            writeMachineFile(fileToSave);
             setCurrentMachineDirectory(fileToSave.getParent());
             setMachineFile(fileToSave);
             setMachineDirty(false);
             this.desktopController.updateReopenMachineFiles(fileToSave);
 
-            // to get name without .cpu
+            // to get name without .cpu or .cpub
             String newName = fileToSave.getName();
             if (newName.toLowerCase().endsWith(".cpu")) {
                 machine.get().setName(newName.substring(0, newName.length() - 4));
             }
+            else if (newName.toLowerCase().endsWith(MachineBinary.EXTENSION)) {
+                machine.get().setName(MachineBinary.withoutExtension(newName));
+            }
             else {
                 machine.get().setName(newName);
             }
@@ -480,6 +496,32 @@ public class Mediator
 
     }
 
+    /**
+     * writes the current machine to the given file, in binary form if the
+     * file name ends with the binary machine file extension and as XML
+     * otherwise.
+     *
+     * @param file the file to which the machine is written
+     * @throws IOException if the file could not be written
+     */
+    private void writeMachineFile(File file) throws IOException {
+        if (file.getName().toLowerCase().endsWith(MachineBinary.EXTENSION)) {
+            MachineBinary.write(machine.get(), file.getName(),
+                    getRegisterRAMPairs(), file);
+        }
+        else {
+            // buffered and not auto-flushed, so the whole file is written
+            // with one flush when the writer closes it
+            PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+            MachineWriter writer = new MachineWriter();
+            writer.writeMachine(machine.get(), file.getName(),
+                    getRegisterRAMPairs(), out);
+            if (out.checkError()) {
+                throw new IOException("Could not write the file " + file.getName());
+            }
+        }
+    }
+
     public void newMachine() {
         Machine machine = new Machine("New");
         setMachineFile(null);
@@ -758,394 +800,6 @@ public class Mediator
 
     /////////////////////// Other Getters, Setters and Parsers ///////////////////////
 
-    /**
-     * takes the ram information and puts it into mif format
-     *
-     * @param ram The RAM whose data is to be converted to MIF
-     * @return the textual representation of the ram according to mif formatting
-     */
-    public String ramToMIF(RAM ram) {
-        String ramInMIF = "";
-
-        ramInMIF += "DEPTH = " + ram.getLength() + ";" + NEWLINE;
-        ramInMIF += "WIDTH = " + ram.getCellSize() + ";" + NEWLINE;
-        ramInMIF += "ADDRESS_RADIX = HEX;" + NEWLINE;
-        ramInMIF += "DATA_RADIX = BIN;" + NEWLINE;
-        ramInMIF += "CONTENT" + NEWLINE;
-        ramInMIF += "BEGIN" + NEWLINE + NEWLINE;
-        int i = 0;
-        int dataChunkBeginAddress = -1;
-        for (RAMLocation ramLoc : ram.data()) {
-            if (i != ram.data().size() - 1) {
-                if (ramLoc.getValue() == ram.data().get(i + 1).getValue()) {
-                    if (dataChunkBeginAddress == -1) {
-                        dataChunkBeginAddress = i;
-                    }
-                    i++;
-                    continue;
-                }
-                else {
-                    if (dataChunkBeginAddress != -1) {
-                        ramInMIF += "[" + Convert.fromLongToHexadecimalString
-                                (dataChunkBeginAddress, ram.getCellSize()) + ".." +
-                                Convert.fromLongToHexadecimalString(i, ram
-                                        .getNumAddrBits()) + "]:  " + Convert
-                                .fromLongToTwosComplementString(ramLoc.getValue(), ram
-                                        .getCellSize()) + ";" + SPACES + "-- " + ramLoc
-                                .getComment() + NEWLINE;
-                        dataChunkBeginAddress = -1;
-                    }
-                    else {
-                        ramInMIF += Convert.fromLongToHexadecimalString(i, ram
-                                .getNumAddrBits()) + "        :  " + Convert
-                                .fromLongToTwosComplementString(ramLoc.getValue(), ram
-                                        .getCellSize()) + ";" + SPACES + "-- " + ramLoc
-                                .getComment() + NEWLINE;
-                    }
-                }
-            }
-            else {
-                if (dataChunkBeginAddress != -1) {
-                    ramInMIF += "[" + Convert.fromLongToHexadecimalString
-                            (dataChunkBeginAddress, ram.getCellSize()) + ".." + Convert
-                            .fromLongToHexadecimalString(i, ram.getNumAddrBits()) + "]:" +
-                            "  " + Convert.fromLongToTwosComplementString(ramLoc
-                            .getValue(), ram.getCellSize()) + ";" + SPACES + "-- " +
-                            ramLoc.getComment() + NEWLINE;
-                    dataChunkBeginAddress = -1;
-                }
-                else {
-                    ramInMIF += Convert.fromLongToHexadecimalString(i, ram
-                            .getNumAddrBits()) + "        :  " + Convert
-                            .fromLongToTwosComplementString(ramLoc.getValue(), ram
-                                    .getCellSize()) + ";" + SPACES + "-- " + ramLoc
-                            .getComment() + NEWLINE;
-                }
-            }
-            i++;
-        }
-
-        ramInMIF += "END;" + NEWLINE;
-
-        return ramInMIF;
-    }
-
-    public String ramToIntelHex(RAM ram) {
-        String ramInIntelHex = "";
-
-        int bytesNeeded = (ram.getCellSize() + 7) / 8;
-
-
-        for (RAMLocation ramLoc : ram.data()) {
-            ramInIntelHex += ":";
-            ramInIntelHex += Convert.fromLongToHexadecimalString(bytesNeeded, 8);
-            ramInIntelHex += Convert.fromLongToHexadecimalString(ramLoc.getAddress(), 16);
-            ramInIntelHex += "00";
-            ramInIntelHex += Convert.fromLongToHexadecimalString(ramLoc.getValue(),
-                    bytesNeeded * 8);
-            ramInIntelHex += getCheckSumString(bytesNeeded, (int) ramLoc.getAddress(),
-                    ramLoc.getValue());
-            ramInIntelHex += NEWLINE;
-        }
-
-        ramInIntelHex += ":00000001FF";
-
-        return ramInIntelHex;
-    }
-
-    /**
-     * parses text from an MIF file, putting information in the proper places
-     *
-     * @param fileText text from the MIF file to parse
-     * @param ram      the RAM to load the info from the file into
-     * @param pathName the pathname of the file being parsed
-     */
-    public void parseMIFFile(String fileText, RAM ram, String pathName) {
-        String[] lines = fileText.split("/\r\n|\n|\r/");
-
-        MIFScanner scanner = new MIFScanner(lines);
-
-        ObservableList<RAMLocation> ramToBe = FXCollections.observableArrayList();
-
-        String addressRadix = "";
-        String dataRadix = "";
-        int depth = -1;
-        int width = -1;
-        int startAddr;
-        int endAddr;
-        int dataBeginIndex;
-        ArrayList<Long> data = new ArrayList<>();
-        String comment;
-
-        //search for the preliminary information
-        while (true) {
-            ArrayList<String> tokens = scanner.getNextTokens(false);
-            if (tokens == null) {
-                throw (new MIFReaderException("There is no content indicator"));
-            }
-
-
-            if (tokens.size() == 4) {
-                if (!tokens.get(1).equals("=")) {
-                    throw (new MIFReaderException("Equals sign missing or in incorrect " +
-                            "" + "position on line " + scanner.getLineNumber()));
-                }
-                if (!tokens.get(3).equals(";")) {
-                    throw (new MIFReaderException("Semicolon missing or in incorrect "
-                            + "position on line " + scanner.getLineNumber()));
-                }
-                if (tokens.get(0).toLowerCase().equals("depth")) {
-                    try {
-                        depth = Integer.parseInt(tokens.get(2));
-                    } catch (NumberFormatException nfe) {
-                        throw (new MIFReaderException("The value for depth assigned on " +
-                                "line " + scanner.getLineNumber() + " should be a valid" +
-                                " integer"));
-                    }
-                }
-                if (tokens.get(0).toLowerCase().equals("width")) {
-                    try {
-                        width = Integer.parseInt(tokens.get(2));
-                    } catch (NumberFormatException nfe) {
-                        throw (new MIFReaderException("The value for width assigned on " +
-                                "line " + scanner.getLineNumber() + " should be a valid" +
-                                " integer"));
-                    }
-                }
-                if (tokens.get(0).toLowerCase().equals("address_radix")) {
-                    addressRadix = tokens.get(2).toLowerCase();
-                    if (addressRadix.equals("hexadecimal")) {
-                        addressRadix = "hex";
-                    }
-                    if (addressRadix.equals("decimal")) {
-                        addressRadix = "dec";
-                    }
-                    if (addressRadix.equals("binary")) {
-                        addressRadix = "bin";
-                    }
-                    if (!addressRadix.equals("hex") && !addressRadix.equals("dec") &&
-                            !addressRadix.equals("bin")) {
-                        throw (new MIFReaderException("unknown radix '" + addressRadix
-                                + "' found on line " + scanner.getLineNumber()));
-                    }
-                }
-                if (tokens.get(0).toLowerCase().equals("data_radix")) {
-                    dataRadix = tokens.get(2).toLowerCase();
-                    if (dataRadix.equals("hexadecimal")) {
-                        dataRadix = "hex";
-                    }
-                    if (dataRadix.equals("decimal")) {
-                        dataRadix = "dec";
-                    }
-                    if (dataRadix.equals("binary")) {
-                        dataRadix = "bin";
-                    }
-                    if (!dataRadix.equals("hex") && !dataRadix.equals("dec") &&
-                            !dataRadix.equals("bin")) {
-                        throw (new MIFReaderException("unknown radix " + dataRadix + " " +
-                                "found on line " + scanner.getLineNumber()));
-                    }
-                }
-
-            }
-            else if (tokens.size() == 1) {
-                if (tokens.get(0).toLowerCase().equals("content")) {
-                    break;
-                }
-                else {
-                    throw (new MIFReaderException("Unknown indicator " + tokens.get(0)
-                            + " on" + "line " + scanner.getLineNumber()));
-                }
-            }
-            else if (tokens.size() != 0) {
-                throw (new MIFReaderException("Parse error on line " + scanner
-                        .getLineNumber()));
-            }
-
-        }
-
-        if (depth > ram.getLength()) {
-            Dialogs.createWariningDialog(stage, "Warning", "There is more data being " +
-                    "loaded into the ram" + "than the ram has room for.  This means " +
-                    "that not all of the information" + "in the file will be loaded " +
-                    "into ram").showAndWait();
-        }
-
-        if (width != ram.getCellSize()) {
-            throw (new MIFReaderException("The specified width does not match the " +
-                    "cell size of the ram and therefor the data from the file" + " " +
-                    "cannot be loaded"));
-        }
-
-        //look for the begin indicator
-        while (true) {
-            ArrayList<String> tokens = scanner.getNextTokens(false);
-            if (tokens == null) {
-                throw (new MIFReaderException("There is no begin indicator"));
-            }
-
-            if (tokens.size() == 1 && tokens.get(0).toLowerCase().equals("begin")) {
-                break;
-            }
-        }
-
-        //parse the data
-        while (true) {
-            endAddr = -1;
-            data.clear();
-            comment = "";
-            ArrayList<String> tokens = scanner.getNextTokens(true);
-            if (tokens == null) {
-                throw (new MIFReaderException("There is no end indicator"));
-            }
-
-            if (tokens.size() == 0) {
-                continue;
-            }
-
-            if (tokens.size() < 4) {
-                if (tokens.size() == 2) {
-                    if (tokens.get(0).toLowerCase().equals("end") && tokens.get(1)
-                            .equals(";")) {
-                        break;
-                    }
-                    else {
-                        throw (new MIFReaderException("Unknown indicator " + tokens.get
-                                (0) + " on" + "line " + scanner.getLineNumber()));
-                    }
-                }
-                throw (new MIFReaderException("Parse error on line " + scanner
-                        .getLineNumber()));
-            }
-            if (tokens.get(1).equals(":")) {
-                try {
-                    if (addressRadix.equals("hex")) {
-                        startAddr = Integer.parseInt(tokens.get(0), 16);
-                    }
-                    else if (addressRadix.equals("dec")) {
-                        startAddr = Integer.parseInt(tokens.get(0));
-                    }
-                    else {
-                        startAddr = Integer.parseInt(tokens.get(0), 2);
-                    }
-                } catch (NumberFormatException e) {
-                    throw (new MIFReaderException("Invalid address value" + tokens.get
-                            (0) + "on line " + scanner.getLineNumber()));
-                }
-                dataBeginIndex = 2;
-            }
-            else if (tokens.get(0).equals("[")) {
-                if (!tokens.get(2).equals("..")) {
-                    throw (new MIFReaderException("Parse error on line " + scanner
-                            .getLineNumber()));
-                }
-                if (!tokens.get(4).equals("]")) {
-                    throw (new MIFReaderException("Closed bracket is missing or " +
-                            "misplaced " + "on line " + scanner.getLineNumber()));
-                }
-                if (!tokens.get(5).equals(":")) {
-                    throw (new MIFReaderException("Colon is missing or misplaced " +
-                            "on line " + scanner.getLineNumber()));
-                }
-                try {
-                    if (addressRadix.equals("hex")) {
-                        startAddr = Integer.parseInt(tokens.get(1), 16);
-                    }
-                    else if (addressRadix.equals("dec")) {
-                        startAddr = Integer.parseInt(tokens.get(1));
-                    }
-                    else {
-                        startAddr = Integer.parseInt(tokens.get(1), 2);
-                    }
-                } catch (NumberFormatException e) {
-                    throw (new MIFReaderException("Invalid address value" + tokens.get
-                            (1) + "on line " + scanner.getLineNumber()));
-                }
-                try {
-                    if (addressRadix.equals("hex")) {
-                        endAddr = Integer.parseInt(tokens.get(3), 16);
-                    }
-                    else if (addressRadix.equals("dec")) {
-                        endAddr = Integer.parseInt(tokens.get(3));
-                    }
-                    else {
-                        endAddr = Integer.parseInt(tokens.get(3), 2);
-                    }
-                } catch (NumberFormatException e) {
-                    throw (new MIFReaderException("Invalid address value" + tokens.get
-                            (3) + "on line " + scanner.getLineNumber()));
-                }
-                dataBeginIndex = 6;
-            }
-            else {
-                throw (new MIFReaderException("Parse error on line " + scanner
-                        .getLineNumber()));
-            }
-            while (true) {
-                if (tokens.get(dataBeginIndex).equals(";")) {
-                    if (dataBeginIndex != tokens.size() - 1) {
-                        comment = tokens.get(dataBeginIndex + 1);
-                    }
-                    break;
-                }
-                try {
-                    if (dataRadix.equals("hex")) {
-                        data.add(Long.parseLong(tokens.get(dataBeginIndex), 16));
-                    }
-                    else if (addressRadix.equals("dec")) {
-                        data.add(Long.parseLong(tokens.get(dataBeginIndex)));
-                    }
-                    else {
-                        data.add(Long.parseLong(tokens.get(dataBeginIndex), 2));
-                    }
-                } catch (NumberFormatException e) {
-                    throw (new MIFReaderException("Invalid data value" + tokens.get
-                            (dataBeginIndex) + "on line " + scanner.getLineNumber()));
-                }
-                if (dataBeginIndex == tokens.size() - 1) {
-                    break;
-                }
-                dataBeginIndex++;
-            }
-
-            if (ram.data().size() == ramToBe.size()) {
-                break;
-            }
-
-
-            int k = 0;
-            if (endAddr == -1) {
-                for (long value : data) {
-                    if (ram.data().size() == ramToBe.size()) {
-                        break;
-                    }
-                    ramToBe.add(new RAMLocation(startAddr + k, value, ram, false,
-                            comment, new SourceLine(scanner.getLineNumber(), pathName)));
-                    k++;
-                }
-            }
-            else {
-                while (startAddr + k != endAddr + 1) {
-                    if (ram.data().size() == ramToBe.size()) {
-                        break;
-                    }
-                    ramToBe.add(new RAMLocation(startAddr + k, data.get(k % data.size()
-                    ), ram, false, comment, new SourceLine(scanner.getLineNumber(),
-                            pathName)));
-                    k++;
-                }
-            }
-        }
-
-        int i = 0;
-        for (RAMLocation ramLoc : ram.data()) {
-            ramLoc.setValue(ramToBe.get(i).getValue());
-            ramLoc.setComment(ramToBe.get(i).getComment());
-            ramLoc.setSourceLine(ramToBe.get(i).getSourceLine());
-            i++;
-        }
-    }
-
     public void setRegisterRamPairs(ObservableList<RegisterRAMPair> registerRAMPairs) {
         desktopController.getHighlightManager().setRegisterRAMPairs(registerRAMPairs);
     }
@@ -1154,89 +808,6 @@ public class Mediator
         return desktopController.getHighlightManager().getRegisterRAMPairs();
     }
 
-    private String getCheckSumString(int byteCount, int address, long value) {
-        int sum = byteCount + address % 256 + address / 256;
-        byte[] bytes = Convert.fromLongToByteArray(value, byteCount);
-        for (byte b : bytes)
-            sum += b;
-        sum &= 255;  // to get just the lowest 8 bits
-        int checkSum = (256 - sum) % 256; // only want the lowest 8 bits
-        return Convert.fromLongToHexadecimalString(checkSum, 8);
-    }
-
-    public void parseIntelHexFile(String fileText, RAM ram, String pathName) {
-        String[] lines = fileText.split("/\r\n|\n|\r/");
-
-        ObservableList<RAMLocation> ramToBe = FXCollections.observableArrayList();
-
-        int lineNumber = 1;
-        for (String line : lines) {
-            if (line.length() % 2 != 1) {
-                Dialogs.createErrorDialog(stage, "Intel Hex Parse Error", "There is an " +
-                        "even number of characters on" + "line " + lineNumber + ", " +
-                        "which is not allowed in" + " intel hex format").showAndWait();
-            }
-            if (line.charAt(0) != ':') {
-                Dialogs.createErrorDialog(stage, "Intel Hex Parse Error", "line " +
-                        lineNumber + " does not start with" + "a colon as it should")
-                        .showAndWait();
-            }
-            int bytesOfData = (int) Convert.fromHexadecimalStringToLong(line.substring
-                    (1, 3), 8);
-            if (line.length() != 11 + 2 * bytesOfData) {
-                Dialogs.createErrorDialog(stage, "Intel Hex Parse Error", "Line " +
-                        lineNumber + " specifies " + bytesOfData + " bytes of data but " +
-                        "contains " + (line.length() - 11) + " bytes of data.")
-                        .showAndWait();
-            }
-            if (line.substring(7, 9).equals("01")) {
-                int i = 0;
-                for (RAMLocation ramLoc : ram.data()) {
-                    ramLoc.setValue(ramToBe.get(i).getValue());
-                    ramLoc.setComment(ramToBe.get(i).getComment());
-                    ramLoc.setSourceLine(ramToBe.get(i).getSourceLine());
-                    i++;
-                }
-                return;
-            }
-
-            int address = Integer.parseInt(line.substring(3, 7), 16);
-
-            int recordType = Integer.parseInt(line.substring(7, 9), 16);
-            if (!(recordType == 0 || recordType == 1)) {
-                Dialogs.createErrorDialog(stage, "Intel Hex Parse Error", "Line " +
-                        lineNumber + " has a record type other than data record (00)" +
-                        " or end of file record (01), which CPUSim means CPUSim cannot"
-                        + "parse this file.").showAndWait();
-            }
-            // check the checksum for the line
-            // first get all the chars after the colon into a byte array
-            BigInteger bline = new BigInteger(line.substring(1), 16);
-            byte[] byteArray = bline.toByteArray();
-            // The toByteArray() method might add an extra byte of 0
-            // at the beginning of the array, but it won't affect the
-            // check sum.
-            int sum = 0;
-            for (byte b : byteArray)
-                sum += b;
-            if ((sum & 255) != 0) {
-                Dialogs.createErrorDialog(stage, "Intel Hex Parse Error", "Line " +
-                        lineNumber + " has an incorrect checksum value.").showAndWait();
-            }
-            long data = Convert.fromHexadecimalStringToLong(line.substring(9, 9 +
-                    bytesOfData * 2), bytesOfData * 8);
-
-            ramToBe.add(new RAMLocation(address, data, ram, false, "", new SourceLine
-                    (lineNumber, pathName)));
-
-            lineNumber++;
-        }
-        // if we get here, there must not have been an end-of-line
-        // record type, so throw an exception
-        Dialogs.createErrorDialog(stage, "Intel Hex Parse Error", "The file is missing " +
-                "an end-of-line record.").showAndWait();
-    }
-
     /**
      * sets or clears a break point in the given ram at the line corresponding
      * to the given SourceLine.
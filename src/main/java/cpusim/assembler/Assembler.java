@@ -33,14 +33,18 @@ public class Assembler
     private Parser parser;			//packages instructions
     private Normalizer normalizer;			//replaces variables with constants
     private CodeGenerator generator;	//generates numeric code
+    private Machine machine;            //the machine whose programs are assembled
 
     private List<AssembledInstructionCall> assembledInstructions;
     //filled in by the assemble() method
+    private AssemblyStatistics statistics;
+    //filled in by the assemble() method, or null if assembly failed
 
     //-------------------------------
     // constructor
     public Assembler(Machine machine)
     {
+        this.machine = machine;
         scanner = new Scanner(machine);
         parser = new Parser(scanner, machine);
         normalizer = new Normalizer(machine);
@@ -59,6 +63,16 @@ public class Assembler
         return assembledInstructions;
     }
 
+    //-------------------------------
+    // getStatistics:
+    // returns the phase timings and counts of the last call of
+    // assemble(), or null if assemble hasn't been called or if an
+    // error occurred.
+    public AssemblyStatistics getStatistics()
+    {
+        return statistics;
+    }
+
     //-------------------------------
     // assemble:  assembles the code found in the text file with
     // full pathname of progamFileName.  It assumes that the
@@ -70,12 +84,16 @@ public class Assembler
     public void assemble(String programFileName, int startingAddress)
             throws AssemblyException
     {
+        statistics = null;
+        long startTime = System.nanoTime();
+
         //set up the scanner and get the first char
         scanner.startScanning(programFileName);
         //set up the parser and grab the first token
         parser.initialize();
         //parse the whole programFileName
         parser.parse();
+        long parseTime = System.nanoTime();
         
         /*for (InstructionCall ic : parser.getInstructions()){
         	/*
@@ -85,12 +103,62 @@ public class Assembler
         	System.out.println("\n\n");
 		  }	*/
 
-        
+
         List<InstructionCall> instructionsWithNoVars =
                 normalizer.normalize(parser.getInstructions(), parser.getEqus(),
                         startingAddress);
+        long normalizeTime = System.nanoTime();
 
         assembledInstructions = generator.generateCode(instructionsWithNoVars);
+        long generateTime = System.nanoTime();
+
+        int bits = 0;
+        for (AssembledInstructionCall instr : assembledInstructions) {
+            bits += instr.length();
+        }
+        int cellSize = machine.getCodeStore().getCellSize();
+        //the scanner is called by the parser, so its time is subtracted
+        //from the time spent parsing
+        statistics = new AssemblyStatistics(scanner.getScanNanos(),
+                parseTime - startTime - scanner.getScanNanos(),
+                normalizeTime - parseTime, generateTime - normalizeTime,
+                scanner.getTokensScanned(), parser.getMacroExpansions(),
+                scanner.getFilesIncluded(), scanner.getMaxIncludeDepth(),
+                assembledInstructions.size(), bits,
+                (bits + cellSize - 1) / cellSize);
+    }
+
+    //-------------------------------
+    // check:  assembles the given text of the program in the file with
+    // full pathname programFileName, without reading the file, and returns
+    // all the errors found, in the order they were found.  The list is
+    // empty if the program assembles.  Unlike assemble(), it doesn't stop
+    // at the first error:  each line with a syntax error is skipped and the
+    // rest of the program is parsed, and then the operands of all the
+    // instructions are checked.  Later errors, such as undefined labels,
+    // are only looked for if there were no such errors, and only the
+    // first of them is found.  The assembled instructions and statistics
+    // of the last call of assemble() are left as they were.
+    public List<AssemblyException> check(String programFileName, String programText,
+                                         int startingAddress)
+    {
+        List<AssemblyException> errors = new ArrayList<>();
+        try {
+            scanner.startScanning(programFileName, programText);
+            parser.initialize();
+            parser.parse(errors);
+            if (errors.isEmpty()) {
+                List<InstructionCall> instructionsWithNoVars =
+                        normalizer.normalize(parser.getInstructions(),
+                                parser.getEqus(), startingAddress, errors);
+                if (errors.isEmpty()) {
+                    generator.generateCode(instructionsWithNoVars);
+                }
+            }
+        } catch (AssemblyException e) {
+            errors.add(e);
+        }
+        return errors;
     }
 
     /**
@@ -101,6 +169,7 @@ public class Assembler
      */
     public void updateScannerAndParser(Machine machine)
     {
+        this.machine = machine;
         scanner = new Scanner(machine);
         parser = new Parser(scanner, machine);
     }
@@ -0,0 +1,144 @@
+///////////////////////////////////////////////////////////////////////////////
+// File:    	AssemblyStatistics.java
+// Type:    	java application file
+// Project: 	CPU Sim
+//
+// Description:
+//   This file contains the AssemblyStatistics class, which records how long
+//   each phase of an assembly took and how much work each phase did, so
+//   that slow programs or machines can be identified.
+
+
+///////////////////////////////////////////////////////////////////////////////
+// the package in which our project resides
+
+package cpusim.assembler;
+
+
+///////////////////////////////////////////////////////////////////////////////
+// the AssemblyStatistics class
+
+public class AssemblyStatistics
+{
+    private final long scanNanos;        //time spent scanning tokens
+    private final long parseNanos;       //time spent parsing, without scanning
+    private final long normalizeNanos;   //time spent in the Normalizer
+    private final long generateNanos;    //time spent in the CodeGenerator
+    private final int tokensScanned;     //tokens read from the source files
+    private final int macroExpansions;   //number of macro calls expanded
+    private final int filesIncluded;     //number of .include files scanned
+    private final int maxIncludeDepth;   //deepest nesting of .include files
+    private final int instructions;      //assembled instructions emitted
+    private final int bitsEmitted;       //total bits of those instructions
+    private final int cellsEmitted;      //code store cells they fill
+
+    //-------------------------------
+    // constructor
+    AssemblyStatistics(long scanNanos, long parseNanos, long normalizeNanos,
+                       long generateNanos, int tokensScanned, int macroExpansions,
+                       int filesIncluded, int maxIncludeDepth, int instructions,
+                       int bitsEmitted, int cellsEmitted)
+    {
+        this.scanNanos = scanNanos;
+        this.parseNanos = parseNanos;
+        this.normalizeNanos = normalizeNanos;
+        this.generateNanos = generateNanos;
+        this.tokensScanned = tokensScanned;
+        this.macroExpansions = macroExpansions;
+        this.filesIncluded = filesIncluded;
+        this.maxIncludeDepth = maxIncludeDepth;
+        this.instructions = instructions;
+        this.bitsEmitted = bitsEmitted;
+        this.cellsEmitted = cellsEmitted;
+    }
+
+    //-------------------------------
+    // getters:  all times are wall clock times in nanoseconds
+    public long getScanNanos()
+    {
+        return scanNanos;
+    }
+
+    public long getParseNanos()
+    {
+        return parseNanos;
+    }
+
+    public long getNormalizeNanos()
+    {
+        return normalizeNanos;
+    }
+
+    public long getGenerateNanos()
+    {
+        return generateNanos;
+    }
+
+    public long getTotalNanos()
+    {
+        return scanNanos + parseNanos + normalizeNanos + generateNanos;
+    }
+
+    public int getTokensScanned()
+    {
+        return tokensScanned;
+    }
+
+    public int getMacroExpansions()
+    {
+        return macroExpansions;
+    }
+
+    public int getFilesIncluded()
+    {
+        return filesIncluded;
+    }
+
+    public int getMaxIncludeDepth()
+    {
+        return maxIncludeDepth;
+    }
+
+    public int getInstructions()
+    {
+        return instructions;
+    }
+
+    public int getBitsEmitted()
+    {
+        return bitsEmitted;
+    }
+
+    public int getCellsEmitted()
+    {
+        return cellsEmitted;
+    }
+
+    //-------------------------------
+    // toString:  returns a multi-line report of the statistics suitable
+    // for printing to a console
+    public String toString()
+    {
+        return "Assembly statistics:\n" +
+                "  scanner:        " + millis(scanNanos) + "\n" +
+                "  parser:         " + millis(parseNanos) + "\n" +
+                "  normalizer:     " + millis(normalizeNanos) + "\n" +
+                "  code generator: " + millis(generateNanos) + "\n" +
+                "  total:          " + millis(getTotalNanos()) + "\n" +
+                "  tokens scanned: " + tokensScanned + "\n" +
+                "  macro expansions: " + macroExpansions + "\n" +
+                "  files included: " + filesIncluded +
+                " (maximum depth " + maxIncludeDepth + ")\n" +
+                "  instructions emitted: " + instructions + "\n" +
+                "  cells emitted:  " + cellsEmitted +
+                " (" + bitsEmitted + " bits)";
+    }
+
+    //-------------------------------
+    // millis:  formats the given nanoseconds as milliseconds
+    private static String millis(long nanos)
+    {
+        return String.format("%.3f ms", nanos / 1e6);
+    }
+
+} //end of class AssemblyStatistics
@@ -30,6 +30,8 @@ public class MacroDef
     public List<Token> parameters;	//holds the VAR parameter tokens
     public List<Token> body;			//holds all tokens of the macro's body -- everything
     //after the parameters and before the ENDM token
+    public MacroTemplate template;	//the body compiled into parameter and label
+    //slots -- null until the macro is first called
 
     //-------------------------------
     // constructor
@@ -0,0 +1,198 @@
+///////////////////////////////////////////////////////////////////////////////
+// File:    	MacroTemplate.java
+// Type:    	java application file
+// Project: 	CPU Sim
+//
+// Description:
+//   A precompiled form of a macro body in which every parameter and every
+//   local label has been replaced by a numbered slot, so that a macro call
+//   can be expanded by streaming the body onto the scanner's token stack
+//   without building any hash tables or copies of the body.
+
+
+///////////////////////////////////////////////////////////////////////////////
+// the package in which our project resides
+
+package cpusim.assembler;
+
+
+///////////////////////////////////////////////////////////////////////////////
+// the libraries we need to import
+
+import java.util.HashMap;
+import java.util.List;
+
+///////////////////////////////////////////////////////////////////////////////
+// the MacroTemplate class
+
+class MacroTemplate
+{
+    //kinds of slots in the body
+    private static final byte LITERAL = 0;      //a token copied as is
+    private static final byte PARAMETER = 1;    //replaced by an argument
+    private static final byte LABEL_DEF = 2;    //a local label (with label char)
+    private static final byte LABEL_REF = 3;    //a reference to a local label
+
+    private final List<Token> body;     //the tokens of the MacroDef body
+    private final byte[] kinds;         //the kind of each body token
+    private final int[] indices;        //parameter or local label index
+    private final int numParameters;
+    //key = local label name without the label char, value = label index
+    private final HashMap<String, Integer> labelIndices;
+
+    //-------------------------------
+    // constructor
+    private MacroTemplate(List<Token> body, byte[] kinds, int[] indices,
+                          int numParameters, HashMap<String, Integer> labelIndices)
+    {
+        this.body = body;
+        this.kinds = kinds;
+        this.indices = indices;
+        this.numParameters = numParameters;
+        this.labelIndices = labelIndices;
+    }
+
+    //-------------------------------
+    // compile:  builds the template for the given macro.  A body token that
+    // equals a parameter becomes a parameter slot.  Otherwise, if it equals a
+    // label defined in the body, with or without the label char, it becomes a
+    // local label slot.  It throws a NameSpaceError if the same label is
+    // defined twice in the body.
+    static MacroTemplate compile(MacroDef mdef, char labelChar)
+            throws AssemblyException.NameSpaceError
+    {
+        //later parameters with the same name win, as with a HashMap of args
+        HashMap<Token, Integer> parameterIndices = new HashMap<>();
+        for (int i = 0; i < mdef.parameters.size(); i++) {
+            parameterIndices.put(mdef.parameters.get(i), i);
+        }
+
+        //first pass: find the labels defined in the macro body
+        HashMap<String, Integer> labelIndices = new HashMap<>();
+        for (Token t : mdef.body) {
+            if (t.type == Token.Type.LABEL) {
+                String name = t.contents.substring(0, t.contents.length() - 1);
+                if (labelIndices.containsKey(name)) {
+                    throw new AssemblyException.NameSpaceError("The label \"" +
+                            t.contents + "\" is used twice in the macro " +
+                            "and so cannot be used here",
+                            t);
+                }
+                labelIndices.put(name, labelIndices.size());
+            }
+        }
+
+        //second pass: classify every token of the body
+        int size = mdef.body.size();
+        byte[] kinds = new byte[size];
+        int[] indices = new int[size];
+        for (int j = 0; j < size; j++) {
+            Token t = mdef.body.get(j);
+            Integer index = parameterIndices.get(t);
+            if (index != null) {
+                kinds[j] = PARAMETER;
+                indices[j] = index;
+                continue;
+            }
+            String contents = t.contents;
+            boolean hasLabelChar = contents.length() > 0 &&
+                    contents.charAt(contents.length() - 1) == labelChar;
+            if (hasLabelChar) {
+                index = labelIndices.get(contents.substring(0, contents.length() - 1));
+            }
+            if (index != null) {
+                kinds[j] = LABEL_DEF;
+                indices[j] = index;
+                continue;
+            }
+            index = labelIndices.get(contents);
+            if (index != null) {
+                kinds[j] = LABEL_REF;
+                indices[j] = index;
+            }
+            else {
+                kinds[j] = LITERAL;
+            }
+        }
+
+        return new MacroTemplate(mdef.body, kinds, indices,
+                mdef.parameters.size(), labelIndices);
+    }
+
+    //-------------------------------
+    // expand:  pushes the body of the macro, with the given arguments
+    // substituted for the parameters and unique labels "L$n" substituted for
+    // the local labels, onto the scanner's token stack.  The unique labels are
+    // numbered in order of first appearance starting at firstLabelNumber.
+    // An argument that names a local label is replaced by the unique label
+    // too.  Returns the number of unique labels that were used.
+    int expand(List<Token> args, Scanner scanner, int firstLabelNumber,
+               char labelChar)
+    {
+        int numLabels = labelIndices.size();
+        Token[] labelRefs = null;  //unique VAR tokens for references
+        Token[] labelDefs = null;  //unique LABEL tokens for definitions
+        int[] argLabels = null;    //index of the local label named by each arg
+        int nextLabelNumber = firstLabelNumber;
+
+        if (numLabels > 0) {
+            labelRefs = new Token[numLabels];
+            labelDefs = new Token[numLabels];
+            argLabels = new int[numParameters];
+            for (int p = 0; p < numParameters; p++) {
+                Integer index = labelIndices.get(args.get(p).contents);
+                argLabels[p] = (index == null ? -1 : index);
+            }
+
+            //number the labels in order of their first appearance
+            for (int j = 0; j < kinds.length; j++) {
+                Token t = body.get(j);
+                int label = -1;
+                if (kinds[j] == LABEL_DEF || kinds[j] == LABEL_REF) {
+                    label = indices[j];
+                }
+                else if (kinds[j] == PARAMETER && argLabels[indices[j]] != -1) {
+                    label = argLabels[indices[j]];
+                    t = args.get(indices[j]);
+                }
+                if (label != -1 && labelRefs[label] == null) {
+                    String unique = "L$" + nextLabelNumber;
+                    nextLabelNumber++;
+                    labelRefs[label] = new Token(t.filename, Token.Type.VAR,
+                            t.lineNumber, t.columnNumber, t.offset, unique,
+                            t.isLegal());
+                    labelDefs[label] = new Token(t.filename, Token.Type.LABEL,
+                            t.lineNumber, t.columnNumber, t.offset,
+                            unique + labelChar, t.isLegal());
+                }
+            }
+        }
+
+        //push the tokens in reverse order so they are scanned in order
+        for (int j = kinds.length - 1; j >= 0; j--) {
+            Token t;
+            switch (kinds[j]) {
+                case PARAMETER:
+                    if (argLabels != null && argLabels[indices[j]] != -1) {
+                        t = labelRefs[argLabels[indices[j]]];
+                    }
+                    else {
+                        t = args.get(indices[j]);
+                    }
+                    break;
+                case LABEL_DEF:
+                    t = labelDefs[indices[j]];
+                    break;
+                case LABEL_REF:
+                    t = labelRefs[indices[j]];
+                    break;
+                default:
+                    t = body.get(j);
+            }
+            scanner.pushToken(t);
+        }
+
+        return nextLabelNumber - firstLabelNumber;
+    }
+
+}  //end of class MacroTemplate
@@ -57,7 +57,25 @@ public class Normalizer
                                            HashMap<Token, Token> parsedEqus, int
                                                    startingAddress) throws
             AssemblyException {
-        this.cleanUpRegularInstrs(parsedInstructions);
+        return normalize(parsedInstructions, parsedEqus, startingAddress, null);
+    }
+
+    //-------------------------------
+    // like normalize(parsedInstructions, parsedEqus, startingAddress) except
+    // that, if errors is not null, the errors in the operands of all the
+    // instructions are added to it instead of stopping at the first one.
+    // The instructions are not normalized any further if there are any
+    // such errors.
+    public List<InstructionCall> normalize(List<InstructionCall> parsedInstructions,
+                                           HashMap<Token, Token> parsedEqus, int
+                                                   startingAddress,
+                                           List<AssemblyException> errors) throws
+            AssemblyException {
+        int numErrors = (errors == null ? 0 : errors.size());
+        this.cleanUpRegularInstrs(parsedInstructions, errors);
+        if (errors != null && errors.size() > numErrors) {
+            return parsedInstructions;
+        }
         this.replaceEqusWithValues(parsedInstructions, parsedEqus);
         this.processLabels(parsedInstructions, startingAddress);
         this.replaceVars(parsedInstructions, startingAddress);
@@ -73,33 +91,53 @@ public class Normalizer
      * correct order for the instruction fields.
      *
      * @param parsedInstructions the InstructionCalls to be cleaned up
+     * @param errors the list to which the error in each InstructionCall is
+     *               added, or null if the first error is to be thrown
      */
-    private void cleanUpRegularInstrs(List<InstructionCall> parsedInstructions) throws
+    private void cleanUpRegularInstrs(List<InstructionCall> parsedInstructions,
+                                      List<AssemblyException> errors) throws
             AssemblyException {
         for (InstructionCall node : parsedInstructions) {
             if (node.machineInstruction == null) {
                 continue; // not a regular machine instruction call
             }
-            List<Field> assemblyFields = node.machineInstruction.getAssemblyFields();
-            List<Token> operands = node.operands;
-            List<Token> normalizedOperands;
-
-            // Traverse the assembly fields and the operands, trying to match them.
-            // Add operands for all optional 0-length fields that were omitted.
-            // Try it assuming any optional positive-length field is included
             try {
-                normalizedOperands = checkOperands(assemblyFields, operands, true);
+                cleanUpRegularInstr(node);
             } catch (AssemblyException exc) {
-                // if it didn't work assuming any optional positive field is included,
-                // try it again assuming any optional positive-length field is not
-                // included and so include its default value
-                normalizedOperands = checkOperands(assemblyFields, operands, false);
-
+                if (errors == null) {
+                    throw exc;
+                }
+                errors.add(exc);
             }
-            node.operands = normalizedOperands;
         }
     }
 
+    /**
+     * converts the list of assembly operands of the given regular instruction
+     * call into a list of instr operands, as described above.
+     *
+     * @param node the InstructionCall to be cleaned up
+     */
+    private void cleanUpRegularInstr(InstructionCall node) throws AssemblyException {
+        List<Field> assemblyFields = node.machineInstruction.getAssemblyFields();
+        List<Token> operands = node.operands;
+        List<Token> normalizedOperands;
+
+        // Traverse the assembly fields and the operands, trying to match them.
+        // Add operands for all optional 0-length fields that were omitted.
+        // Try it assuming any optional positive-length field is included
+        try {
+            normalizedOperands = checkOperands(assemblyFields, operands, true);
+        } catch (AssemblyException exc) {
+            // if it didn't work assuming any optional positive field is included,
+            // try it again assuming any optional positive-length field is not
+            // included and so include its default value
+            normalizedOperands = checkOperands(assemblyFields, operands, false);
+
+        }
+        node.operands = normalizedOperands;
+    }
+
 
     /**
      * checks the validity of the list of operands against the list of fields that
@@ -67,8 +67,11 @@ public class Parser {
     //they have been declared
     private int uniqueMacroLabelNumber;            //incremented each time it is used
     private int uniqueIncludeLabelNumber;    //incremented each time it is used
+    private int macroExpansions;    //number of macro calls expanded
 
     private Machine machine;        //contains global EQU's the parser needs
+    private List<AssemblyException> errors; //the errors found so far, or null
+    //if parsing stops at the first error
 
 
     //-------------------------------
@@ -93,6 +96,7 @@ public class Parser {
         this.equs.clear();
         this.uniqueMacroLabelNumber = 0;
         this.uniqueIncludeLabelNumber = 0;
+        this.macroExpansions = 0;
 
         this.advance();
     }
@@ -100,9 +104,26 @@ public class Parser {
     //-------------------------------
     //parses the whole program
     public void parse() throws AssemblyException {
+        this.errors = null;
         Program();
     }
 
+    //-------------------------------
+    //parses the whole program, adding each error found to the given list
+    //instead of stopping at the first one.  After an error in a line,
+    //the rest of the line is skipped and parsing resumes at the next line.
+    //An error in the declaration of a macro still ends the parsing.
+    public void parse(List<AssemblyException> errors) {
+        this.errors = errors;
+        try {
+            Program();
+        } catch (AssemblyException e) {
+            errors.add(e);
+        } finally {
+            this.errors = null;
+        }
+    }
+
 
     //-------------------------------
     //only used for debugging in the Assembler class
@@ -116,6 +137,12 @@ public class Parser {
         return equs;
     }
 
+    //-------------------------------
+    //returns the number of macro calls expanded since initialize()
+    public int getMacroExpansions() {
+        return macroExpansions;
+    }
+
 
     //-------------------------------
     // NOTE:	having an EOF token returned as the last token (instead of null)
@@ -218,6 +245,15 @@ public class Parser {
         //Instr-part
         Instr_part();
 
+        //when collecting errors, skip any line that can't start an
+        //instruction and parse the rest of the program
+        while (errors != null && token.type != Token.Type.EOF) {
+            recoverFrom(new AssemblyException.SyntaxError("An instruction, a " +
+                    "pseudo-instruction or a macro call cannot start with \"" +
+                    token.contents + "\"", token));
+            Instr_part();
+        }
+
         //only thing left should be EOF
         if (!currentTokenHasOneOfTypes(new Token.Type[]{Token.Type.EOF})) {
             throw new AssemblyException.SyntaxError("No EOF token found...  " +
@@ -398,29 +434,40 @@ public class Parser {
         while (currentTokenHasOneOfTypes(new Token.Type[]{Token.Type.VAR, Token.Type
                 .MACRO,
                 Token.Type.INCLUDE, Token.Type.GLOBAL})) {
-            if (token.type == Token.Type.INCLUDE) {
-                Include();
-                // if the included file doesn't start with an EOL or comment
-                //      then we want to skip over the Comments_and_EOLs at the
-                //      end of this while loop
-                if(token.type != Token.Type.EOL && token.type != Token.Type.COMMENT)
-                	continue;
-            }
-            else if (token.type == Token.Type.GLOBAL) {
-                Global();
-            }
-            else if (token.type == Token.Type.MACRO) {
-                Macro_decl();
-            }
-            else if (macros.get(token) != null) {
-                //it's a macro call in the instruction part, so exit
-                break;
-            }
-            else {
-                Equ_decl();
-            }
+            //the body of a macro with an error in its declaration can't
+            //be told apart from the instructions after it, so such an
+            //error always ends the parsing
+            boolean isMacroDecl = (token.type == Token.Type.MACRO);
+            try {
+                if (token.type == Token.Type.INCLUDE) {
+                    Include();
+                    // if the included file doesn't start with an EOL or comment
+                    //      then we want to skip over the Comments_and_EOLs at the
+                    //      end of this while loop
+                    if(token.type != Token.Type.EOL && token.type != Token.Type.COMMENT)
+                    	continue;
+                }
+                else if (token.type == Token.Type.GLOBAL) {
+                    Global();
+                }
+                else if (isMacroDecl) {
+                    Macro_decl();
+                }
+                else if (macros.get(token) != null) {
+                    //it's a macro call in the instruction part, so exit
+                    break;
+                }
+                else {
+                    Equ_decl();
+                }
 
-            Comments_and_EOLs();
+                Comments_and_EOLs();
+            } catch (AssemblyException e) {
+                if (errors == null || isMacroDecl) {
+                    throw e;
+                }
+                recoverFrom(e);
+            }
         }
     }
 
@@ -544,18 +591,49 @@ public class Parser {
                 token.type == Token.Type.OPCODE || token.type == Token.Type.DATA ||
                 token.type == Token.Type.VAR || token.type == Token.Type.ASCII) {
 
-            if (token.type == Token.Type.INCLUDE) {
-                Include();
-                // if the included file doesn't start with an EOL or comment
-                //      then we want to skip over the Comments_and_EOLs at the
-                //      end of this while loop
-                if(token.type != Token.Type.EOL && token.type != Token.Type.COMMENT)
-                    continue;
+            try {
+                if (token.type == Token.Type.INCLUDE) {
+                    Include();
+                    // if the included file doesn't start with an EOL or comment
+                    //      then we want to skip over the Comments_and_EOLs at the
+                    //      end of this while loop
+                    if(token.type != Token.Type.EOL && token.type != Token.Type.COMMENT)
+                        continue;
+                }
+                else {
+                    Instr();
+                }
+                Comments_and_EOLs();
+            } catch (AssemblyException e) {
+                if (errors == null) {
+                    throw e;
+                }
+                recoverFrom(e);
             }
-            else {
-                Instr();
+        }
+    }
+
+    //-------------------------------
+    //records the given error and skips the rest of the line it was found on,
+    //along with any comments and empty lines after it, so that parsing can
+    //resume at the start of the next line.  Tokens that can't be scanned
+    //are skipped too, but are recorded as errors if they start a line.
+    private void recoverFrom(AssemblyException error) {
+        errors.add(error);
+        boolean atStartOfLine = false;
+        while (token.type != Token.Type.EOF && (!atStartOfLine ||
+                currentTokenHasOneOfTypes(new Token.Type[]{Token.Type.COMMENT,
+                                                           Token.Type.EOL}))) {
+            boolean atEndOfLine = (token.type == Token.Type.EOL);
+            try {
+                advance();
+                atStartOfLine = atEndOfLine;
+            } catch (AssemblyException e) {
+                if (atEndOfLine) {
+                    errors.add(e);
+                }
+                atStartOfLine = false;
             }
-            Comments_and_EOLs();
         }
     }
 
@@ -860,150 +938,24 @@ public class Parser {
         //by a dollar sign '$' followed by a unique constant determined by the
         //instance variable uniqueLabelNumber which is incremented each time
         //a new unique label is made.  Ex:  L$19
-        HashMap<Token, Token> uniqueLabelHash = new HashMap<Token, Token>();
         Token macroDefKey = token;
         advance();
 
-        //make a new vector with clones of all the tokens of the macro body,
-        //so that the original MacroDef body can be left alone
         List<Token> macroArgs = getMacroArgs();
         MacroDef mdef = getMdef(macroDefKey, macroArgs);
 
-        //match up the parameter with its corresponding argument so it may be
-        //referenced from the body
-        HashMap<Token, Token> parameterArgHash = getParameterArgHash(macroArgs, mdef);
-        List<Token> specializedMacroBody = specializedMacroBody(mdef, parameterArgHash);
-
-        List<Token> localLabels = new ArrayList<Token>();
+        //the first call of a macro compiles its body into a template with
+        //slots for the parameters and local labels, so that later calls
+        //can just stream the body with the arguments and unique labels
+        //substituted onto the scanner's token stack.
         //REMINDER: LABELS all have colons, and references to labels are of type VAR
-        //first pass through, see which labels are defined in the macro, so we
-        //know to only change those
-        for (int j = 0; j < specializedMacroBody.size(); j++) {
-            firstPass(specializedMacroBody, localLabels, j);
-        }
-
-        //second pass, replace all local labels by verifying with the contains()
-        //method on the localLabels vector.  Now go through the specialized
-        //macro body and every time a local label token is found,
-        //add it to the local unique label HashMap with a unique label
-        //L$ + uniqueLabelNumber, and reference that when it is seen again
-        for (int j = 0; j < specializedMacroBody.size(); j++) {
-            secondPass(uniqueLabelHash, specializedMacroBody, localLabels, j);
-        }
-        this.scanner.pushTokens(specializedMacroBody);
-    }
-
-    private void secondPass(HashMap<Token, Token> uniqueLabelHash,
-                            List<Token> specializedMacroBody,
-                            List<Token> localLabels,
-                            int j) {
-        if (localLabels.contains(specializedMacroBody.get(j)))
-        //if the token is a label to replace
-        {
-            char labelChar = machine.getLabelChar();
-            Token toReplace = specializedMacroBody.get(j);
-            Token t = specializedMacroBody.get(j);
-
-            if (t.contents.charAt(t.contents.length() - 1) == labelChar) {
-                //we must remove the colon from the end of its contents
-                //because it isn't referenced with the colon in the code
-                //fromRootController a clone since all tokens are final
-                t = new Token(t.filename, t.type, t.lineNumber,
-                        t.columnNumber, t.offset, t.contents.substring(0,
-                        t.contents.length() - 1), t.isLegal);
-            }
-
-            //if the hash does not contain this token as a key, then make it
-            //one and make a corresponding new unique label.  Make sure to
-            //add ones with and without colons so they get replaced
-            //correctly for the normalizer
-            if (!uniqueLabelHash.containsKey(t)) {
-                String uniqueLabelContents = "L$" + this.uniqueMacroLabelNumber;
-
-                //add the labels without the colons
-                //(as label references --> VAR type)
-                Token uniqueLabelToken1 =
-                        new Token(t.filename, Token.Type.VAR, t.lineNumber,
-                                t.columnNumber, t.offset,
-                                uniqueLabelContents, t.isLegal());
-                uniqueLabelHash.put(t, uniqueLabelToken1);
-
-                //and with the colons
-                t = new Token(t.filename, Token.Type.LABEL, t.lineNumber,
-                        t.columnNumber, t.offset,
-                        t.contents + labelChar, t.isLegal);
-                uniqueLabelContents += labelChar;
-                Token uniqueLabelToken2 = new Token(t.filename, Token.Type.LABEL,
-                        t.lineNumber, t.columnNumber, t.offset,
-                        uniqueLabelContents, t.isLegal());
-                uniqueLabelHash.put(t, uniqueLabelToken2);
-
-                uniqueMacroLabelNumber++;
-            }
-
-            //now replace this label with its unique value
-            specializedMacroBody.set(j, uniqueLabelHash.get(toReplace));
-        }
-    }
-
-    private void firstPass(List<Token> specializedMacroBody,
-                           List<Token> localLabels, int j) throws AssemblyException
-            .NameSpaceError {
-        Token t = specializedMacroBody.get(j);
-        //if the token is a label, remember it because it is a local label
-        if (t.type == Token.Type.LABEL) {
-            //check that the label isn't duplicated in the macro body
-            if (localLabels.contains(t)) {
-                throw new AssemblyException.NameSpaceError("The label \"" +
-                        t.contents + "\" is used twice in the macro " +
-                        "and so cannot be used here",
-                        t);
-            }
-
-            //add the label with and without its label char (as a LABEL and VAR)
-            localLabels.add(t);
-            localLabels.add(new Token(t.filename, Token.Type.VAR,
-                    t.lineNumber, t.columnNumber, t.offset,
-                    t.contents.substring(0, t.contents.length() - 1),
-                    t.isLegal));
-        }
-    }
-
-
-    //-------------------------------
-    //make a new vector with clones of all the tokens of the macro body,
-    //and when there is a parameter, replace it with an argument.
-    //The cloning is done so that the original MacroDef body can be left alone
-    private List<Token> specializedMacroBody(MacroDef mdef,
-                                             HashMap<Token, Token> parameterArgHash) {
-
-        List<Token> specializedMacroBody = new ArrayList<Token>();
-        for (Token token : mdef.body) {
-            if (parameterArgHash.containsKey(token)) {
-                //if this token is a parameter in the body, replace it with an
-                //argument
-                specializedMacroBody.add(parameterArgHash.get(
-                        token));
-            }
-            else {
-                //else just put the token into the specialized macro body
-                specializedMacroBody.add(token);
-            }
-        }
-        return specializedMacroBody;
-    }
-
-    //-------------------------------
-    //match up the parameter with its corresponding argument so it may be
-    //referenced from the body
-    private HashMap<Token, Token> getParameterArgHash(List<Token> macroArgs,
-                                                      MacroDef mdef) {
-        HashMap<Token, Token> parameterArgHash = new HashMap<Token, Token>();
-        for (int i = 0; i < mdef.parameters.size(); i++) {
-            parameterArgHash.put(mdef.parameters.get(i),
-                    macroArgs.get(i));
+        char labelChar = machine.getLabelChar();
+        if (mdef.template == null) {
+            mdef.template = MacroTemplate.compile(mdef, labelChar);
         }
-        return parameterArgHash;
+        uniqueMacroLabelNumber += mdef.template.expand(macroArgs, scanner,
+                uniqueMacroLabelNumber, labelChar);
+        macroExpansions++;
     }
 
     //-------------------------------
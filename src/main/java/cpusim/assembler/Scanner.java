@@ -180,6 +180,12 @@ public class Scanner
     private boolean plusIsSymbol, minusIsSymbol;
     private boolean plusIsToken, minusIsToken;
 
+    //statistics for the current assembly, reset by startScanning(String)
+    private long scanNanos;         //time spent in scanning tokens & opening files
+    private int tokensScanned;      //tokens scanned from the files
+    private int filesIncluded;      //number of .include files scanned
+    private int maxIncludeDepth;    //deepest the stack of streams got
+
 
     //-------------------------------
     // constructor
@@ -211,11 +217,38 @@ public class Scanner
     {
         Token pathToken = new Token("", null, -1, -1, -1,
                 "\"" + fullPathName + "\"", true);
+        reset();
+        startScanning(pathToken);
+    }
+
+    //-------------------------------
+    // startScanning
+    //like startScanning(fullPathName) except that the given text is scanned
+    //instead of the contents of the file, so that the text being edited can
+    //be assembled before it is saved.  The path is still used for finding
+    //.include files and for the filename of the tokens.
+    public void startScanning(String fullPathName, String programText) throws AssemblyException.SyntaxError
+    {
+        long startTime = System.nanoTime();
+        reset();
+        filenames.add(fullPathName);
+        pushStream(new StreamObject(fullPathName, programText));
+        scanNanos += System.nanoTime() - startTime;
+    }
+
+    //-------------------------------
+    //empties the stacks and resets the statistics before a new program
+    //is scanned
+    private void reset()
+    {
         filenames.clear(); //empty the filenames hashtable
         streamStack.clear(); //empty the stack of StreamObjects
         //this should only be necessary if an error
         //occurred during assembly
-        startScanning(pathToken);
+        scanNanos = 0;
+        tokensScanned = 0;
+        filesIncluded = -1; //the main file is not an .include file
+        maxIncludeDepth = 0;
     }
 
     //-------------------------------
@@ -229,6 +262,7 @@ public class Scanner
     //token.filename path.
     public void startScanning(Token token) throws AssemblyException.ImportError, AssemblyException.SyntaxError
     {
+        long startTime = System.nanoTime();
         String fullPath;
 
         //get the full (absolute) path
@@ -265,8 +299,18 @@ public class Scanner
             filenames.add(fullPath);
         }
 
-        streamStack.push(new StreamObject(fullPath, token));
-        this.top = streamStack.peek();
+        pushStream(new StreamObject(fullPath, token));
+        scanNanos += System.nanoTime() - startTime;
+    }
+
+    //-------------------------------
+    //makes the given stream the one being scanned and grabs its first char
+    private void pushStream(StreamObject stream) throws AssemblyException.SyntaxError
+    {
+        streamStack.push(stream);
+        this.top = stream;
+        filesIncluded++;
+        maxIncludeDepth = Math.max(maxIncludeDepth, streamStack.size() - 1);
 
         //get the next char after all initialization
         top.currentChar = getNextChar();
@@ -280,6 +324,37 @@ public class Scanner
         return this.machine;
     }
 
+    //-------------------------------
+    //getScanNanos:  returns the time in nanoseconds spent scanning tokens
+    //and opening files since scanning of the program started.
+    public long getScanNanos()
+    {
+        return scanNanos;
+    }
+
+    //-------------------------------
+    //getTokensScanned:  returns the number of tokens scanned from the files,
+    //not counting the tokens of expanded macro bodies.
+    public int getTokensScanned()
+    {
+        return tokensScanned;
+    }
+
+    //-------------------------------
+    //getFilesIncluded:  returns the number of .include files scanned.
+    public int getFilesIncluded()
+    {
+        return filesIncluded;
+    }
+
+    //-------------------------------
+    //getMaxIncludeDepth:  returns the deepest nesting of .include files,
+    //which is 0 if the program includes no files.
+    public int getMaxIncludeDepth()
+    {
+        return maxIncludeDepth;
+    }
+
     //-------------------------------
     //setMachine:  changes the machine currently being used
     //(if the user wants to start over with a new machine).
@@ -1063,6 +1138,14 @@ public class Scanner
         }
     }
 
+    //-------------------------------
+    //pushes one token on the stack of tokens to be returned before scanning
+    //continues.  Used by macro calls, which push the macro body in reverse.
+    public void pushToken(Token t)
+    {
+        top.tokenStack.push(t);
+    }
+
     //-------------------------------
     //First checks to see if tokenStack has any tokens put there from macro
     //calls.  If so, it just pops a token and returns it.
@@ -1078,6 +1161,17 @@ public class Scanner
             return top.tokenStack.pop();
         }
 
+        long startTime = System.nanoTime();
+        Token token = scanToken();
+        scanNanos += System.nanoTime() - startTime;
+        tokensScanned++;
+        return token;
+    }
+
+    //-------------------------------
+    //scans and returns the next token in the "stream" for getNextToken.
+    private Token scanToken() throws AssemblyException.InvalidTokenException, AssemblyException.SyntaxError
+    {
         StringBuilder buffer = new StringBuilder();
         int currentState = START;
 
@@ -1146,7 +1240,7 @@ public class Scanner
                     startingColumnNumber, startingOffset, buffer.toString(), false);
             //mark as illegal
         }
-    }//end getNextToken
+    }//end scanToken
 
 //    public void setCommentPseudoAndLabelchars(char c, char p, char l)
 //    {
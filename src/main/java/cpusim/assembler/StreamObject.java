@@ -74,6 +74,23 @@ public class StreamObject
         this.reader = getReader(path, token);
     }
 
+    //-------------------------------
+    // constructor
+    //scans the given text instead of the contents of the file with the
+    //given path, such as the unsaved text of the file in an editor.
+    public StreamObject(String path, String text)
+    {
+        this.tokenStack = new Stack<>();
+        this.filename = path;
+        this.lineNumber = 0;
+        this.columnNumber = 0;
+        this.offset = 0;
+        this.prevColumnNumber = 0;
+        this.prevLineNumber = 0;
+        this.prevOffset = 0;
+        this.reader = new BufferedReader(new StringReader(text));
+    }
+
     //-------------------------------
     //the path is always absolute
     private BufferedReader getReader(String path, Token token) throws AssemblyException.ImportError
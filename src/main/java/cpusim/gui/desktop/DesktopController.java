@@ -241,10 +241,15 @@ import cpusim.gui.util.FXMLLoaderFactory;
 import cpusim.iochannel.BufferedChannel;
 import cpusim.iochannel.ConsoleChannel;
 import cpusim.iochannel.DialogChannel;
+import cpusim.mif.ObjectFile;
+import cpusim.mif.RAMExporter;
+import cpusim.mif.RAMImporter;
+import cpusim.model.BreakCondition;
 import cpusim.model.Machine;
 import cpusim.model.Microinstruction;
 import cpusim.model.microinstruction.IO;
 import cpusim.model.module.RAM;
+import cpusim.model.module.RAMLocation;
 import cpusim.model.module.Register;
 import cpusim.model.module.RegisterArray;
 import cpusim.util.*;
@@ -1313,14 +1318,18 @@ public class DesktopController implements Initializable
     /**
      * Method called when user clicks "Assemble"
      * within the Execute drop-down menu.
+     * If the assembly succeeds, the assembly statistics are
+     * printed to the console.
      *
      * @param event - unused event.
      */
     @FXML
     protected void handleAssemble(ActionEvent event) {
         File currFile = getFileToAssemble();
-        if (currFile != null) {
-            mediator.Assemble(currFile.getAbsolutePath());
+        if (currFile != null && mediator.Assemble(currFile.getAbsolutePath())) {
+            // report where the assembly time went
+            consoleManager.printlnToConsole(
+                    mediator.getAssembler().getStatistics().toString());
         }
     }
 
@@ -1613,14 +1622,19 @@ public class DesktopController implements Initializable
         EventHandlerHelper.install(codeArea.onKeyPressedProperty(), tabHandler);
 
         newTab.setContent(codeArea);
+        LineOffsetIndex lineOffsets = new LineOffsetIndex(codeArea);
+        newTab.setLineOffsetIndex(lineOffsets);
 
+        // highlight the changed lines whenever the user pauses typing and
         // add InvalidationListener so that whenever the text is changed,
-        // we recompute the highlighting and set the file to dirty
-        codeArea.textProperty().addListener(obs -> {
-            codeArea.setStyleSpans(0, codePaneController.computeStyleSpans(codeArea
-                    .getText()));
-            newTab.setDirty(true);
-        });
+        // we set the file to dirty
+        SyntaxHighlighter highlighter = new SyntaxHighlighter(codeArea, lineOffsets,
+                codePaneController);
+        // assemble the text in the background whenever the user pauses typing
+        // and mark the lines with errors
+        AssemblyChecker checker = new AssemblyChecker(newTab, codeArea, mediator,
+                codePaneController);
+        codeArea.textProperty().addListener(obs -> newTab.setDirty(true));
         // these next two approaches didn't work quite right
         // codeArea.richChanges().subscribe(change -> {
         //     codeArea.setStyleSpans(0, codePaneController.computeStyleSpans(codeArea
@@ -1634,6 +1648,7 @@ public class DesktopController implements Initializable
 
         // add the content, set what to do when closed, and set the tooltip
         codeArea.replaceText(0, 0, content);
+        highlighter.highlightNow();
         newTab.setDirty(false); // not initially dirty
         newTab.setOnClosed(this::handleTabClosed);
         if (file != null) {
@@ -1647,6 +1662,7 @@ public class DesktopController implements Initializable
         newTab.setFile(file);
         newTab.setText(title);
         addContextMenu(newTab);
+        checker.checkNow();
 
         textTabPane.getTabs().add(newTab);
         textTabPane.getSelectionModel().selectLast();
@@ -1671,6 +1687,39 @@ public class DesktopController implements Initializable
 
     }
 
+    /**
+     * asks the user for the condition of a breakpoint at the given RAM
+     * location and sets the breakpoint with it.  An empty condition makes
+     * the breakpoint unconditional.  The dialog is shown again with an error
+     * message until the condition is valid or the user cancels.
+     * @param location the RAM location at which to break
+     */
+    public void editBreakCondition(RAMLocation location) {
+        BreakCondition old = location.getBreakCondition();
+        String text = old == null ? "" : old.getText();
+        while (true) {
+            TextInputDialog dialog = Dialogs.createTextInputDialog(stage,
+                    "Break Condition", "Break at address " + location.getAddress() +
+                            " of " + location.getRam().getName() + " only when " +
+                            "(empty to break always):");
+            dialog.getEditor().setText(text);
+            Optional<String> result = dialog.showAndWait();
+            if (!result.isPresent()) {
+                return;
+            }
+            text = result.get().trim();
+            try {
+                location.getRam().setBreak((int) location.getAddress(),
+                        text.isEmpty() ? null :
+                        BreakCondition.compile(text, mediator.getMachine()));
+                return;
+            } catch (ValidationException e) {
+                Dialogs.createErrorDialog(stage, "Invalid Condition",
+                        e.getMessage()).showAndWait();
+            }
+        }
+    }
+
     /**
      * returns the index of the given item in the given list using ==.  It returns -1
      * if the item is not in the list.
@@ -1961,6 +2010,7 @@ public class DesktopController implements Initializable
         if (codeStore != null) {
             codeStore.setHaltAtBreaks(inDebug);
         }
+        mediator.getMachine().setHaltAtWatches(inDebug);
         mediator.getBackupManager().setListening(inDebug);
         ((CheckMenuItem) (executeMenu.getItems().get(0))).setSelected(inDebug);
     }
@@ -2725,8 +2775,9 @@ public class DesktopController implements Initializable
         fileChooser.setInitialDirectory(new File(currentTextDirectory));
 
         fileChooser.setTitle("Open RAM");
-        fileChooser.getExtensionFilters().add(new ExtensionFilter("Memory Text Files ("
-                + ".mif), (.hex)", "*.mif", "*" + ".hex"));
+        fileChooser.getExtensionFilters().add(new ExtensionFilter("Memory Files ("
+                + ".mif), (.hex), (" + ObjectFile.EXTENSION + ")", "*.mif", "*" + ".hex",
+                "*" + ObjectFile.EXTENSION));
 
         File fileToOpen = fileChooser.showOpenDialog(stage);
         if (fileToOpen == null) // user cancelled
@@ -2734,19 +2785,30 @@ public class DesktopController implements Initializable
             return;
         }
 
-        if (fileToOpen.getName().lastIndexOf(".mif") == fileToOpen.getName().length() -
-                4) {
+        if (fileToOpen.getName().endsWith(ObjectFile.EXTENSION)) {
             try {
-                mediator.parseMIFFile(extractTextFromFile(fileToOpen), ram, fileToOpen
-                        .getAbsolutePath());
-            } catch (MIFReaderException e) {
+                ObjectFile.read(fileToOpen, ram);
+            } catch (IOException | ObjectFileException e) {
+                Dialogs.createErrorDialog(stage, "Object File Error", e.getMessage())
+                        .showAndWait();
+            }
+        }
+        else if (fileToOpen.getName().lastIndexOf(".mif") == fileToOpen.getName()
+                .length() - 4) {
+            try {
+                warnOfIgnoredCells(RAMImporter.readMIF(fileToOpen, ram));
+            } catch (IOException | MIFReaderException e) {
                 Dialogs.createErrorDialog(stage, "MIF Parse Error", e.getMessage())
                         .showAndWait();
             }
         }
         else {
-            mediator.parseIntelHexFile(extractTextFromFile(fileToOpen), ram, fileToOpen
-                    .getAbsolutePath());
+            try {
+                warnOfIgnoredCells(RAMImporter.readIntelHex(fileToOpen, ram));
+            } catch (IOException | IntelHexReaderException e) {
+                Dialogs.createErrorDialog(stage, "Intel Hex Parse Error", e.getMessage())
+                        .showAndWait();
+            }
         }
 
         for (RamTableController rc : ramControllers) {
@@ -2755,6 +2817,21 @@ public class DesktopController implements Initializable
 
     }
 
+    /**
+     * warns the user that some of the cells in a memory file were not loaded
+     * because their addresses are beyond the end of the RAM
+     *
+     * @param numIgnored the number of cells that were not loaded
+     */
+    private void warnOfIgnoredCells(int numIgnored) {
+        if (numIgnored > 0) {
+            Dialogs.createWariningDialog(stage, "Warning", "There is more data " +
+                    "being loaded into the ram than the ram has room for.  The " +
+                    numIgnored + " cells beyond the end of the ram were not " +
+                    "loaded.").showAndWait();
+        }
+    }
+
     /**
      * saves the contents of a particular ram to an mif or hex file (as dictated by the
      * user)
@@ -2767,6 +2844,8 @@ public class DesktopController implements Initializable
 
         choices.add("Machine Instruction File (.mif)");
         choices.add("Intel Hex Format (.hex)");
+        choices.add("CPU Sim Object File (" + ObjectFile.EXTENSION + ")");
+        choices.add("Raw Binary (" + RAMExporter.RAW_EXTENSION + ")");
 
 
         // NOTE: This choicebox dialog does not have a default choice, which
@@ -2786,11 +2865,25 @@ public class DesktopController implements Initializable
 
         ExtensionFilter extensionFilter;
         boolean asMIF;
+        boolean asObject = false;
+        boolean asRaw = false;
         if (fileFormat.get().equals("Machine Instruction File (.mif)")) {
             extensionFilter = new ExtensionFilter("Machine Instruction Files (.mif)",
                     "*.mif");
             asMIF = true;
         }
+        else if (fileFormat.get().startsWith("CPU Sim Object File")) {
+            extensionFilter = new ExtensionFilter("CPU Sim Object Files (" +
+                    ObjectFile.EXTENSION + ")", "*" + ObjectFile.EXTENSION);
+            asMIF = false;
+            asObject = true;
+        }
+        else if (fileFormat.get().startsWith("Raw Binary")) {
+            extensionFilter = new ExtensionFilter("Raw Binary Files (" +
+                    RAMExporter.RAW_EXTENSION + ")", "*" + RAMExporter.RAW_EXTENSION);
+            asMIF = false;
+            asRaw = true;
+        }
         else {
             extensionFilter = new ExtensionFilter("Intel Hex Format (.hex)", "*.hex");
             asMIF = false;
@@ -2810,7 +2903,33 @@ public class DesktopController implements Initializable
         }
 
 
-        if (asMIF) {
+        if (asObject) {
+            if (!fileToSave.getName().endsWith(ObjectFile.EXTENSION)) {
+                fileToSave = new File(fileToSave.getAbsolutePath() + ObjectFile
+                        .EXTENSION);
+            }
+
+            try {
+                ObjectFile.write(ram, fileToSave);
+            } catch (IOException ioe) {
+                Dialogs.createErrorDialog(stage, "Error", "Unable to save the ram to a " +
+                        "" + "file.").showAndWait();
+            }
+        }
+        else if (asRaw) {
+            if (!fileToSave.getName().endsWith(RAMExporter.RAW_EXTENSION)) {
+                fileToSave = new File(fileToSave.getAbsolutePath() + RAMExporter
+                        .RAW_EXTENSION);
+            }
+
+            try {
+                RAMExporter.writeRawBinary(ram, fileToSave);
+            } catch (IOException ioe) {
+                Dialogs.createErrorDialog(stage, "Error", "Unable to save the ram to a " +
+                        "" + "file.").showAndWait();
+            }
+        }
+        else if (asMIF) {
 
             if (fileToSave.getAbsolutePath().lastIndexOf(".mif") != fileToSave
                     .getAbsolutePath().length() - 4) {
@@ -2818,13 +2937,7 @@ public class DesktopController implements Initializable
             }
 
             try {
-                FileWriter fwriter = new FileWriter(fileToSave);
-                BufferedWriter bwriter = new BufferedWriter(fwriter);
-
-                fwriter.write(mediator.ramToMIF(ram));
-
-                fwriter.close();
-                bwriter.close();
+                RAMExporter.writeMIF(ram, fileToSave);
             } catch (IOException ioe) {
                 Dialogs.createErrorDialog(stage, "Error", "Unable to save the ram to a " +
                         "" + "file.").showAndWait();
@@ -2838,13 +2951,7 @@ public class DesktopController implements Initializable
             }
 
             try {
-                FileWriter fwriter = new FileWriter(fileToSave);
-                BufferedWriter bwriter = new BufferedWriter(fwriter);
-
-                fwriter.write(mediator.ramToIntelHex(ram));
-
-                fwriter.close();
-                bwriter.close();
+                RAMExporter.writeIntelHex(ram, fileToSave);
             } catch (IOException ioe) {
                 Dialogs.createErrorDialog(stage, "Error", "Unable to save the ram to a " +
                         "" + "file.").showAndWait();
@@ -8,18 +8,21 @@ import cpusim.gui.util.Base;
 import cpusim.gui.util.EditingMultiBaseStyleLongCell;
 import cpusim.model.module.RAM;
 import cpusim.model.module.RAMLocation;
+import cpusim.model.module.WatchType;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.AnchorPane;
 import javafx.util.Callback;
 
 import java.net.URL;
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * FXML Controller class
@@ -52,15 +55,19 @@ public class RamTableController implements Initializable
     private Base addrBase;
 
     private DesktopController desktop;
-    private Set<Integer> addressesOfChangedCells; // the current set of addresses
+    private BitSet addressesOfChangedCells; // the current set of addresses
     // of cells that have been changed. Used to display the outline of those cells.
+    private Set<RamCell> cells; // the cells created for the table, of which the
+    // TableView reuses the few that are needed to display the visible rows.  The
+    // set is weak so that the cells the TableView throws away can be collected.
 
     public RamTableController(DesktopController d, RAM ram, String title) {
         desktop = d;
         this.ram = ram;
         this.ramLocations = ram.data();
         this.title = title;
-        this.addressesOfChangedCells = new HashSet<>();
+        this.addressesOfChangedCells = new BitSet();
+        this.cells = Collections.newSetFromMap(new WeakHashMap<>());
     }
 
     /**
@@ -86,41 +93,18 @@ public class RamTableController implements Initializable
 
         table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
-        table.getSelectionModel().selectedItemProperty().addListener((ov, t, t1) ->
-                updateTable());
-
 
         Callback<TableColumn<RAMLocation, Long>, TableCell<RAMLocation, Long>>
                 cellValMultiBaseLongFactory = setStringTableColumn -> {
-            EditingMultiBaseStyleLongCell<RAMLocation> a = new
-                    EditingMultiBaseStyleLongCell<RAMLocation>(valBase, styleInfo)
-            {
-                @Override
-                public void updateItem(Long item, boolean empty) {
-                    super.updateItem(item, empty);
-                    TableRow<RAMLocation> row = this.getTableRow();
-                    RAMLocation location = row.getItem();
-                    if (location != null) {
-                        Long address = location.getAddress();
-                        if (addressesOfChangedCells.contains(address.intValue())) {
-                            this.getStyleClass().add("Outline");
-                        }
-                        else {
-                            this.getStyleClass().remove("Outline");
-                        }
-                    }
-                    else {
-                        this.getStyleClass().remove("Outline");
-                    }
-                }
-            };
+            RamCell a = new RamCell(valBase, styleInfo, true);
+            cells.add(a);
             return a;
         };
 
         Callback<TableColumn<RAMLocation, Long>, TableCell<RAMLocation, Long>>
                 cellAddrMultiBaseLongFactory = setStringTableColumn -> {
-            EditingMultiBaseStyleLongCell<RAMLocation> a = new
-                    EditingMultiBaseStyleLongCell<>(addrBase, styleInfo);
+            RamCell a = new RamCell(addrBase, styleInfo, false);
+            cells.add(a);
             return a;
         };
 
@@ -134,8 +118,10 @@ public class RamTableController implements Initializable
         data.prefWidthProperty().bind(table.widthProperty().divide(100 / 66.0));
 
 
-        address.setCellValueFactory(new PropertyValueFactory<>("address"));
-        data.setCellValueFactory(new PropertyValueFactory<>("value"));
+        // the cells observe the properties of the RAMLocations directly, so
+        // a change of value re-renders only the cell displaying it
+        address.setCellValueFactory(cd -> asLong(cd.getValue().addressProperty()));
+        data.setCellValueFactory(cd -> asLong(cd.getValue().valueProperty()));
 
         data.setOnEditCommit(text -> {
             text.getTableView().getItems().get(text.getTablePosition().getRow()).
@@ -145,19 +131,60 @@ public class RamTableController implements Initializable
 
         table.setItems(ramLocations);
 
+        // refresh the loaded rows once after a program or memory image is
+        // loaded in bulk, since their comments and source lines changed too
+        ram.loadedRangeProperty().addListener((ov, oldRange, newRange) -> {
+            if (newRange != null) {
+                updateRows(newRange.getFirst(), newRange.getLast());
+            }
+        });
+
         // Right clicks on table
         ContextMenu cm = new ContextMenu();
         MenuItem options = new MenuItem("Options");
         options.setOnAction(e -> desktop.openOptionsDialog(2));
         MenuItem edit = new MenuItem("Edit Hardware");
         edit.setOnAction(e -> desktop.openHardwareModulesDialog(3));
+        MenuItem breakCondition = new MenuItem("Break Condition...");
+        breakCondition.setOnAction(e -> {
+            RAMLocation location = table.getSelectionModel().getSelectedItem();
+            if (location != null) {
+                desktop.editBreakCondition(location);
+            }
+        });
+
+        // the watchpoints of the selected cell, which stop the machine in
+        // debug mode
+        Menu watch = new Menu("Watch");
+        for (WatchType type : WatchType.values()) {
+            CheckMenuItem item = new CheckMenuItem(type.getDisplayName());
+            item.setOnAction(e -> {
+                RAMLocation location = table.getSelectionModel().getSelectedItem();
+                if (location != null) {
+                    int addr = (int) location.getAddress();
+                    ram.setWatch(type, addr, addr, item.isSelected());
+                }
+            });
+            watch.getItems().add(item);
+        }
+        cm.setOnShowing(e -> {
+            RAMLocation location = table.getSelectionModel().getSelectedItem();
+            for (WatchType type : WatchType.values()) {
+                ((CheckMenuItem) watch.getItems().get(type.ordinal())).setSelected(
+                        location != null &&
+                        ram.isWatched(type, (int) location.getAddress()));
+            }
+        });
 
         // bind disabled properties to whether their MenuItem is disabled
         options.disableProperty().bind(desktop.executeMenu.getItems().get(11)
                 .disableProperty());
         edit.disableProperty().bind(desktop.modifyMenu.disableProperty());
 
-        cm.getItems().addAll(options, edit);
+        breakCondition.disableProperty().bind(desktop.modifyMenu.disableProperty());
+        watch.disableProperty().bind(desktop.modifyMenu.disableProperty());
+
+        cm.getItems().addAll(options, edit, breakCondition, watch);
         table.setContextMenu(cm);
 
 
@@ -172,7 +199,24 @@ public class RamTableController implements Initializable
      */
     //added by Charlie and Mike 11/06
     public void outlineRamRows(Set<Integer> addresses) {
-        addressesOfChangedCells = addresses;
+        BitSet newAddresses = new BitSet();
+        for (int address : addresses) {
+            if (address >= 0) {
+                newAddresses.set(address);
+            }
+        }
+        // only the cells whose outline changes need to be restyled
+        BitSet changed = (BitSet) addressesOfChangedCells.clone();
+        changed.xor(newAddresses);
+        addressesOfChangedCells = newAddresses;
+        if (!changed.isEmpty()) {
+            for (RamCell cell : cells) {
+                if (cell.outlined && cell.isShown() &&
+                        changed.get(cell.getIndex())) {
+                    cell.updateOutline();
+                }
+            }
+        }
         // old body:  setOutlineDataRows(addresses);
     }
 
@@ -229,14 +273,28 @@ public class RamTableController implements Initializable
     }
 
     /**
-     * updates the table using a hack
+     * re-renders all the visible rows of the table, such as after a change of
+     * base or of font
      */
     public void updateTable() {
-        data.setVisible(false);
-        data.setVisible(true);
+        updateRows(0, ram.getLength() - 1);
+    }
 
-        address.setVisible(false);
-        address.setVisible(true);
+    /**
+     * re-renders the visible rows of the table in the given range of
+     * addresses.  Rows that are not visible have no cells and are rendered
+     * when they are scrolled into view.
+     *
+     * @param first the first address of the range
+     * @param last  the last address of the range
+     */
+    public void updateRows(int first, int last) {
+        for (RamCell cell : cells) {
+            int index = cell.getIndex();
+            if (cell.isShown() && index >= first && index <= last) {
+                cell.refresh();
+            }
+        }
     }
 
     public TableView getTable() {
@@ -247,6 +305,17 @@ public class RamTableController implements Initializable
         return this.ram;
     }
 
+    /**
+     * returns the given long property as the ObservableValue of Longs that a
+     * column of Longs needs.  A LongProperty reports its values as Longs,
+     * so this is the cast that a PropertyValueFactory would make, without
+     * looking up the property by reflection for every cell.
+     */
+    @SuppressWarnings("unchecked")
+    private static ObservableValue<Long> asLong(ObservableValue<Number> property) {
+        return (ObservableValue<Long>) (ObservableValue<?>) property;
+    }
+
     //------------------------------
     //	highlights the rows with the given addresses
     //  If an address is out of range, it does nothing with that value.
@@ -283,4 +352,59 @@ public class RamTableController implements Initializable
         }
     }
 
+    /**
+     * a cell of the table that can be re-rendered on demand.  The cells of
+     * the data column are outlined if their cell of RAM has been changed.
+     */
+    private class RamCell extends EditingMultiBaseStyleLongCell<RAMLocation>
+    {
+        private final boolean outlined;
+
+        RamCell(Base base, FontData styleInfo, boolean outlined) {
+            super(base, styleInfo);
+            this.outlined = outlined;
+        }
+
+        @Override
+        public void updateItem(Long item, boolean empty) {
+            super.updateItem(item, empty);
+            if (outlined) {
+                updateOutline();
+            }
+        }
+
+        /**
+         * returns true if the cell is displaying a row of the table, and
+         * not one that the TableView has set aside or thrown away
+         */
+        boolean isShown() {
+            return getIndex() >= 0 && isVisible() && getParent() != null &&
+                    getTableView() == table;
+        }
+
+        /**
+         * renders the cell again with its current item
+         */
+        void refresh() {
+            updateItem(getItem(), isEmpty());
+        }
+
+        /**
+         * adds or removes the outline of the cell to match the set of
+         * addresses of the changed cells of RAM
+         */
+        void updateOutline() {
+            TableRow<RAMLocation> row = getTableRow();
+            RAMLocation location = (row == null ? null : row.getItem());
+            boolean outline = !isEmpty() && location != null &&
+                    addressesOfChangedCells.get((int) location.getAddress());
+            if (outline && !getStyleClass().contains("Outline")) {
+                getStyleClass().add("Outline");
+            }
+            else if (!outline) {
+                getStyleClass().remove("Outline");
+            }
+        }
+    }
+
 }
@@ -10,6 +10,7 @@ import cpusim.gui.util.EditingIntStyleCell;
 import cpusim.gui.util.EditingMultiBaseStyleLongCell;
 import cpusim.gui.util.EditingStrStyleCell;
 import cpusim.model.module.Register;
+import cpusim.model.module.WatchType;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -150,8 +151,30 @@ public class RegisterTableController implements Initializable
                 }
             }
         });
+        // the watchpoints of the selected register, which stop the machine
+        // in debug mode.  Registers cannot be watched for reads.
+        Menu watch = new Menu("Watch");
+        for (WatchType type : new WatchType[]{WatchType.WRITE, WatchType.CHANGE}) {
+            CheckMenuItem item = new CheckMenuItem(type.getDisplayName());
+            item.setOnAction(e -> {
+                Register register = table.getSelectionModel().getSelectedItem();
+                if (register != null) {
+                    register.setWatch(type, item.isSelected());
+                }
+            });
+            item.setUserData(type);
+            watch.getItems().add(item);
+        }
+        cm.setOnShowing(e -> {
+            Register register = table.getSelectionModel().getSelectedItem();
+            for (MenuItem item : watch.getItems()) {
+                ((CheckMenuItem) item).setSelected(register != null &&
+                        register.isWatched((WatchType) item.getUserData()));
+            }
+        });
         edit.disableProperty().bind(desktop.modifyMenu.disableProperty());
-        cm.getItems().add(edit);
+        watch.disableProperty().bind(desktop.modifyMenu.disableProperty());
+        cm.getItems().addAll(edit, watch);
         table.setContextMenu(cm);
     }
 
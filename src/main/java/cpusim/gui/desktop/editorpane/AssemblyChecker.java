@@ -0,0 +1,117 @@
+package cpusim.gui.desktop.editorpane;
+
+import cpusim.Mediator;
+import cpusim.assembler.Assembler;
+import cpusim.assembler.AssemblyException;
+import cpusim.model.Machine;
+import javafx.concurrent.Task;
+import org.fxmisc.richtext.StyledTextArea;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * File: AssemblyChecker
+ * Project: CPU Sim
+ *
+ * Assembles the text of a code area in the background whenever the user
+ * pauses typing, and marks the lines with errors in the area's line number
+ * labels.  The text is assembled as it is, without being saved, by a new
+ * Assembler for the current machine, which reports all the errors it finds
+ * rather than only the first one.  The text is assembled for a copy of the
+ * instruction set of the machine, taken on the FX thread when the check
+ * starts, so that editing the machine or opening another one while the text
+ * is being assembled cannot disturb the assembly.  The errors are shown only
+ * if the text has not changed while it was being assembled.  Errors in included files
+ * are not marked, since they are not in the text of the code area.
+ */
+public class AssemblyChecker {
+    /** how long the user must pause typing before the text is assembled */
+    private static final Duration DELAY = Duration.ofMillis(500);
+
+    private final CodePaneTab tab;
+    private final StyledTextArea<?> codeArea;
+    private final Mediator mediator;
+    private final Executor executor;
+
+    /** the number of changes made to the text so far */
+    private long version;
+
+    /**
+     * creates a checker of the code area of the given tab
+     *
+     * @param tab the tab whose code area is to be checked
+     * @param codeArea the code area of the tab
+     * @param mediator the source of the machine the text is assembled for
+     * @param codePaneController the source of the background assembly thread
+     */
+    public AssemblyChecker(CodePaneTab tab, StyledTextArea<?> codeArea,
+                           Mediator mediator, CodePaneController codePaneController) {
+        this.tab = tab;
+        this.codeArea = codeArea;
+        this.mediator = mediator;
+        this.executor = codePaneController.getAssemblyExecutor();
+        this.version = 0;
+
+        codeArea.plainTextChanges().subscribe(change -> version++);
+        codeArea.plainTextChanges().successionEnds(DELAY).subscribe(c -> check());
+    }
+
+    /**
+     * assembles the text now rather than after the next pause
+     */
+    public void checkNow() {
+        check();
+    }
+
+    /**
+     * assembles the text in the background and marks the lines with errors
+     */
+    private void check() {
+        Machine machine = mediator.getMachine();
+        if (machine == null) {
+            return;
+        }
+        File file = tab.getFile();
+        String fileName = (file != null ? file.getAbsolutePath() : tab.getText());
+        String text = codeArea.getText();
+        int startingAddress = machine.getStartingAddressForLoading();
+        Machine snapshot = machine.getAssemblySnapshot();
+        long startVersion = version;
+
+        Task<List<AssemblyException>> task = new Task<List<AssemblyException>>() {
+            @Override
+            protected List<AssemblyException> call() {
+                return new Assembler(snapshot).check(fileName, text, startingAddress);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            // mark the errors only if they are for the current text
+            if (version == startVersion) {
+                markErrors(fileName, task.getValue());
+            }
+        });
+        executor.execute(task);
+    }
+
+    /**
+     * marks the lines of the code area with the errors in the given file
+     */
+    private void markErrors(String fileName, List<AssemblyException> errors) {
+        Map<Integer, String> messages = new HashMap<>();
+        for (AssemblyException error : errors) {
+            if (error.token == null || error.token.lineNumber < 0
+                    || !fileName.equals(error.token.filename)) {
+                continue;
+            }
+            messages.merge(error.token.lineNumber, error.getMessage(),
+                    (first, second) -> first + System.lineSeparator() + second);
+        }
+        ((LineNumAndBreakpointFactory) codeArea.getParagraphGraphicFactory())
+                .setErrorMessages(messages);
+    }
+}
@@ -1,5 +1,6 @@
 package cpusim.gui.desktop.editorpane;
 
+import cpusim.model.Machine;
 import cpusim.model.MachineInstruction;
 import cpusim.Mediator;
 import cpusim.assembler.PunctChar;
@@ -9,6 +10,9 @@ import org.fxmisc.richtext.StyleSpansBuilder;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,9 +28,31 @@ public class CodePaneController
     /** the style info for the various parts of an assembly language program */
     private Map<String,StyleInfo> styles;
 
+    /** the pattern last computed for the machine and what it was computed from */
+    private Pattern codePattern;
+    private Machine patternMachine;
+    private List<MachineInstruction> patternInstructions;
+    private int patternNumInstructions;
+    private PunctChar[] patternPunctChars;
+
+    /** the thread on which the SyntaxHighlighters of the tabs compute styles */
+    private ExecutorService highlightExecutor;
+    /** the thread on which the AssemblyCheckers of the tabs assemble the text */
+    private ExecutorService assemblyExecutor;
+
     public CodePaneController(Mediator m) {
         this.mediator = m;
         this.styles = new HashMap<>();
+        this.highlightExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Syntax highlighting thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.assemblyExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Background assembly thread");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         // the default styles for each part.
         StyleInfo base = new StyleInfo().
@@ -43,16 +69,34 @@ public class CodePaneController
         this.styles.put("comment", base.updateTextColor("#880").updateItalic(true));
     }
 
+    /**
+     * returns the regular expression pattern for color-coding the program in the
+     * CodeArea.  The pattern varies depending on the machine being simulated, so
+     * it is computed again only when a machine is loaded or the machine's list
+     * of instructions or its punctuation characters are replaced, as the
+     * dialogs that edit them do.
+     * @return  the Pattern for the CodeArea to use when highlighting its contents.
+     */
+    public Pattern getPatternForMachine() {
+        Machine machine = mediator.getMachine();
+        if (codePattern == null || machine != patternMachine ||
+                machine.getInstructions() != patternInstructions ||
+                machine.getInstructions().size() != patternNumInstructions ||
+                machine.getPunctChars() != patternPunctChars) {
+            patternMachine = machine;
+            patternInstructions = machine.getInstructions();
+            patternNumInstructions = patternInstructions.size();
+            patternPunctChars = machine.getPunctChars();
+            codePattern = computePatternForMachine();
+        }
+        return codePattern;
+    }
+
     /**
      * generate the regular expression pattern for color-coding the program in the CodeArea.
      * @return  the Pattern for the CodeArea to use when highlighting its contents.
      */
     private Pattern computePatternForMachine() {
-        /* Note: The pattern varies depending on the machine being simulated, so this pattern is
-         * regenerated every time computeStyleSpans() is called.  If this turns out to be
-         * too slow, we can compute it once every time a machine is loaded and again every
-         * time a machine instruction or assembly punctuation changes.
-         */
         // get the regExpr for the instruction names
         List<MachineInstruction> instrs = mediator.getMachine().getInstructions();
         String[] instrNames = instrs.stream().map(MachineInstruction::getName).toArray
@@ -115,7 +159,21 @@ public class CodePaneController
     }
 
     public StyleSpans<StyleInfo> computeStyleSpans(String text) {
-        Pattern codePattern = computePatternForMachine();
+        return computeStyleSpans(text, getPatternForMachine(), styles);
+    }
+
+    /**
+     * computes the styles of the given text using the given pattern and
+     * styles.  It uses no other state, so it can be called on any thread.
+     * Since no part of the pattern matches across a newline, the text can be
+     * any sequence of whole lines of a program.
+     * @param text the text to be styled
+     * @param codePattern the pattern returned by getPatternForMachine
+     * @param styles the style info for each group of the pattern
+     * @return the styles of the text
+     */
+    static StyleSpans<StyleInfo> computeStyleSpans(String text, Pattern codePattern,
+                                                   Map<String,StyleInfo> styles) {
         Matcher matcher = codePattern.matcher(text);
         int lastGroupEnd = 0; // index of the last character in the group to be styled
         StyleSpansBuilder<StyleInfo> spansBuilder = new StyleSpansBuilder<>();
@@ -138,6 +196,32 @@ public class CodePaneController
         return spansBuilder.create();
     }
 
+    /**
+     * returns a copy of the style info of all the groups, for use off the
+     * JavaFX thread
+     * @return a copy of the map from group names to StyleInfo
+     */
+    Map<String,StyleInfo> getStylesCopy() {
+        return new HashMap<>(styles);
+    }
+
+    /**
+     * returns the executor of the background syntax highlighting tasks
+     * @return the executor with a single daemon thread
+     */
+    Executor getHighlightExecutor() {
+        return highlightExecutor;
+    }
+
+    /**
+     * returns the executor of the background assembly tasks, which is separate
+     * from the highlighting one so that highlighting isn't held up by assembly
+     * @return the executor with a single daemon thread
+     */
+    Executor getAssemblyExecutor() {
+        return assemblyExecutor;
+    }
+
     /**
      * returns the StyleInfo for the given group
      * @param group one of the strings "instr", "keyword", "label", "symbol", "literal",
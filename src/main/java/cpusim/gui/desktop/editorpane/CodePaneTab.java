@@ -16,6 +16,8 @@ public class CodePaneTab extends Tab {
     private SimpleObjectProperty<File> file;
     /** indicates whether the code area has been modified since last saved */
     private SimpleBooleanProperty dirty;
+    /** the offsets of the lines of the code area's text */
+    private LineOffsetIndex lineOffsetIndex;
 
     public CodePaneTab() {
         this.file = new SimpleObjectProperty<>();
@@ -60,4 +62,12 @@ public class CodePaneTab extends Tab {
     public SimpleObjectProperty<File> fileProperty() {
         return file;
     }
+
+    public LineOffsetIndex getLineOffsetIndex() {
+        return lineOffsetIndex;
+    }
+
+    public void setLineOffsetIndex(LineOffsetIndex lineOffsetIndex) {
+        this.lineOffsetIndex = lineOffsetIndex;
+    }
 }
\ No newline at end of file
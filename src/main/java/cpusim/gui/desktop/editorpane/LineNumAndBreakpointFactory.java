@@ -13,6 +13,7 @@ import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
 import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.CornerRadii;
@@ -23,8 +24,10 @@ import org.fxmisc.richtext.StyledTextArea;
 import org.reactfx.EventStream;
 import org.reactfx.EventStreams;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.IntFunction;
 
@@ -43,6 +46,11 @@ public class LineNumAndBreakpointFactory implements IntFunction<Node>
      * set when program stops at a break point
      */
     private SimpleIntegerProperty currentBreakPointLineNumber;
+    /**
+     * the messages of the assembly errors found in the text, keyed by the
+     * indices of the lines they are in
+     */
+    private SimpleObjectProperty<Map<Integer, String>> errorMessages;
 
     private static final String STYLESHEET = LineNumAndBreakpointFactory.class
             .getResource("/cpusim/gui/css/LineNumbers.css").toExternalForm();
@@ -81,6 +89,7 @@ public class LineNumAndBreakpointFactory implements IntFunction<Node>
         this.stylesheet = stylesheet;
         this.breakPoints = FXCollections.observableArrayList();
         this.currentBreakPointLineNumber = new SimpleIntegerProperty(-1);
+        this.errorMessages = new SimpleObjectProperty<>(Collections.emptyMap());
 
         // add a listener to the codeArea's set of breakpoints
         // so that breakpoints can be added dynamically as the code is being stepped
@@ -118,6 +127,22 @@ public class LineNumAndBreakpointFactory implements IntFunction<Node>
         return this.currentBreakPointLineNumber;
     }
 
+    /**
+     * marks the lines with assembly errors, replacing any marks made before.
+     * The label of each such line gets a red background and a tooltip with
+     * the messages of its errors.
+     *
+     * @param errorMessages the messages of the errors keyed by the indices of
+     *                      the lines they are in
+     */
+    public void setErrorMessages(Map<Integer, String> errorMessages) {
+        this.errorMessages.set(errorMessages);
+    }
+
+    public SimpleObjectProperty<Map<Integer, String>> errorMessagesProperty() {
+        return this.errorMessages;
+    }
+
     /**
      * @return the Set of line numbers with break points so that corresponding RAM
      * breakpoints
@@ -216,9 +241,30 @@ public class LineNumAndBreakpointFactory implements IntFunction<Node>
         EventStreams.valuesOf(label.sceneProperty()).flatMap(scene -> scene != null ?
                 nParagraphs.map(n -> formatTheLineNumber(idx + 1, n)) : EventStreams
                 .<String>never()).feedTo(label.textProperty());
+
+        // mark the line if it has assembly errors, in the same way
+        EventStreams.valuesOf(label.sceneProperty()).flatMap(scene -> scene != null ?
+                EventStreams.valuesOf(errorMessages) : EventStreams
+                .<Map<Integer, String>>never()).subscribe(messages ->
+                markErrors(label, messages.get(idx)));
         return label;
     }
 
+    /**
+     * gives the label a red background and a tooltip with the given messages,
+     * or removes them if there are no messages
+     */
+    private void markErrors(Label label, String messages) {
+        if (messages == null) {
+            label.setStyle("");
+            label.setTooltip(null);
+        }
+        else {
+            label.setStyle("-fx-background-color: #f4b4b4;");
+            label.setTooltip(new Tooltip(messages));
+        }
+    }
+
     private String formatTheLineNumber(int x, int max) {
         int digits = (int) Math.floor(Math.log10(max)) + 1;
         return String.format(format.get().apply(digits), x);
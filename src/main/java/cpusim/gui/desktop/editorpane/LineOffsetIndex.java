@@ -0,0 +1,155 @@
+package cpusim.gui.desktop.editorpane;
+
+import org.fxmisc.richtext.PlainTextChange;
+import org.fxmisc.richtext.StyledTextArea;
+
+import java.util.Arrays;
+
+/**
+ * File: LineOffsetIndex
+ * Project: CPU Sim
+ *
+ * An index of the offsets at which the lines of the text in a code area
+ * start.  It is updated with each change to the text, by shifting the
+ * offsets of the lines after the change and inserting or removing the
+ * offsets of the lines the change adds or deletes, so the start and end of
+ * any line can be found without copying or scanning the text.
+ */
+public class LineOffsetIndex {
+    /** the offsets of the starts of the lines, in order; lineStarts[0] == 0 */
+    private int[] lineStarts;
+    /** the number of lines in the text */
+    private int numLines;
+    /** the number of chars in the text */
+    private int length;
+
+    /**
+     * creates an index of the lines of the given code area and keeps it up
+     * to date as the text of the code area changes
+     *
+     * @param codeArea the code area whose lines are to be indexed
+     */
+    public LineOffsetIndex(StyledTextArea<?> codeArea) {
+        lineStarts = new int[64];
+        numLines = 1;
+        length = 0;
+        insert(0, codeArea.getText());
+        codeArea.plainTextChanges().subscribe(this::update);
+    }
+
+    /**
+     * returns the number of lines in the text
+     *
+     * @return the number of lines in the text
+     */
+    public int getNumLines() {
+        return numLines;
+    }
+
+    /**
+     * returns the offset of the start of the given line, or the length of the
+     * text if there is no such line
+     *
+     * @param line the index of the line, starting at 0
+     * @return the offset of the first char of the line
+     */
+    public int getLineStartOffset(int line) {
+        if (line < 0) {
+            return 0;
+        }
+        return line < numLines ? lineStarts[line] : length;
+    }
+
+    /**
+     * returns the offset just past the end of the given line, including its
+     * newline, or the length of the text if it is the last line or there is
+     * no such line
+     *
+     * @param line the index of the line, starting at 0
+     * @return the offset of the first char after the line
+     */
+    public int getLineEndOffset(int line) {
+        if (line < 0) {
+            return 0;
+        }
+        return line + 1 < numLines ? lineStarts[line + 1] : length;
+    }
+
+    /**
+     * returns the index of the line containing the given offset.  An offset
+     * at the end of the text is in the last line.
+     *
+     * @param offset the offset of a char in the text
+     * @return the index of the line, starting at 0
+     */
+    public int getLineOfOffset(int offset) {
+        return Math.max(lineAfter(offset) - 1, 0);
+    }
+
+    /**
+     * updates the index for the given change to the text
+     */
+    private void update(PlainTextChange change) {
+        remove(change.getPosition(), change.getRemoved().length());
+        insert(change.getPosition(), change.getInserted());
+    }
+
+    /**
+     * updates the index for the removal of the given number of chars at the
+     * given offset
+     */
+    private void remove(int position, int count) {
+        if (count == 0) {
+            return;
+        }
+        // the lines starting in (position, position + count] are joined
+        // with the line containing position
+        int first = lineAfter(position);
+        int last = lineAfter(position + count);
+        System.arraycopy(lineStarts, last, lineStarts, first, numLines - last);
+        numLines -= last - first;
+        for (int i = first; i < numLines; i++) {
+            lineStarts[i] -= count;
+        }
+        length -= count;
+    }
+
+    /**
+     * updates the index for the insertion of the given text at the given
+     * offset
+     */
+    private void insert(int position, String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        int newLines = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            newLines++;
+        }
+        int first = lineAfter(position);
+        if (numLines + newLines > lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts,
+                    Math.max(2 * lineStarts.length, numLines + newLines));
+        }
+        System.arraycopy(lineStarts, first, lineStarts, first + newLines,
+                numLines - first);
+        numLines += newLines;
+        for (int i = first + newLines; i < numLines; i++) {
+            lineStarts[i] += text.length();
+        }
+        int line = first;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            lineStarts[line++] = position + i + 1;
+        }
+        length += text.length();
+    }
+
+    /**
+     * returns the index of the first line that starts after the given offset
+     */
+    private int lineAfter(int offset) {
+        int i = Arrays.binarySearch(lineStarts, 0, numLines, offset);
+        // skip the line starting at offset, or find the insertion point
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+}
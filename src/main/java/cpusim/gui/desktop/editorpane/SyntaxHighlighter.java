@@ -0,0 +1,136 @@
+package cpusim.gui.desktop.editorpane;
+
+import javafx.concurrent.Task;
+import org.fxmisc.richtext.PlainTextChange;
+import org.fxmisc.richtext.StyleSpans;
+import org.fxmisc.richtext.StyledTextArea;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * File: SyntaxHighlighter
+ * Project: CPU Sim
+ *
+ * Keeps the syntax highlighting of a code area up to date as it is edited.
+ * The range of text changed since the last highlighting is recorded with
+ * each change, and once the user pauses typing only the lines in that range
+ * are styled again.  The styles are computed by the CodePaneController's
+ * background thread and applied on the JavaFX thread, unless the text has
+ * changed again in the meantime, in which case the next pause styles the
+ * lines again.  The whole text is styled again if the pattern for the
+ * machine has changed since the last highlighting.
+ */
+public class SyntaxHighlighter {
+    /** how long the user must pause typing before the text is highlighted */
+    private static final Duration DELAY = Duration.ofMillis(200);
+
+    private final StyledTextArea<StyleInfo> codeArea;
+    private final LineOffsetIndex lineOffsets;
+    private final CodePaneController codePaneController;
+
+    /** the range of offsets of the text changed since it was last highlighted,
+     * or -1 if there is none */
+    private int dirtyStart;
+    private int dirtyEnd;
+    /** the number of changes made to the text so far */
+    private long version;
+    /** the pattern used the last time the text was highlighted */
+    private Pattern lastPattern;
+
+    /**
+     * creates a highlighter of the given code area
+     *
+     * @param codeArea the code area to be highlighted
+     * @param lineOffsets the index of the lines of the code area
+     * @param codePaneController the source of the pattern and the styles
+     */
+    public SyntaxHighlighter(StyledTextArea<StyleInfo> codeArea,
+                             LineOffsetIndex lineOffsets,
+                             CodePaneController codePaneController) {
+        this.codeArea = codeArea;
+        this.lineOffsets = lineOffsets;
+        this.codePaneController = codePaneController;
+        this.dirtyStart = -1;
+        this.dirtyEnd = -1;
+        this.version = 0;
+        this.lastPattern = null;
+
+        codeArea.plainTextChanges().subscribe(this::markDirty);
+        codeArea.plainTextChanges().successionEnds(DELAY).subscribe(c -> highlight());
+    }
+
+    /**
+     * highlights the changed lines now rather than after the next pause
+     */
+    public void highlightNow() {
+        highlight();
+    }
+
+    /**
+     * extends the dirty range to include the given change, shifting its end
+     * if the change comes before it
+     */
+    private void markDirty(PlainTextChange change) {
+        version++;
+        int position = change.getPosition();
+        int insertedEnd = position + change.getInserted().length();
+        if (dirtyStart == -1) {
+            dirtyStart = position;
+            dirtyEnd = insertedEnd;
+        }
+        else {
+            if (dirtyEnd > position) {
+                dirtyEnd += change.getInserted().length() - change.getRemoved().length();
+            }
+            dirtyStart = Math.min(dirtyStart, position);
+            dirtyEnd = Math.max(dirtyEnd, insertedEnd);
+        }
+    }
+
+    /**
+     * styles the lines of the dirty range, or all the lines if the pattern
+     * has changed, in the background
+     */
+    private void highlight() {
+        Pattern pattern = codePaneController.getPatternForMachine();
+        int firstLine;
+        int lastLine;
+        if (pattern != lastPattern) {
+            firstLine = 0;
+            lastLine = lineOffsets.getNumLines() - 1;
+        }
+        else if (dirtyStart != -1) {
+            firstLine = lineOffsets.getLineOfOffset(dirtyStart);
+            lastLine = lineOffsets.getLineOfOffset(
+                    Math.min(dirtyEnd, codeArea.getLength()));
+        }
+        else {
+            return;
+        }
+
+        int start = lineOffsets.getLineStartOffset(firstLine);
+        int end = lineOffsets.getLineEndOffset(lastLine);
+        String text = codeArea.getText(start, end);
+        Map<String, StyleInfo> styles = codePaneController.getStylesCopy();
+        long startVersion = version;
+
+        Task<StyleSpans<StyleInfo>> task = new Task<StyleSpans<StyleInfo>>() {
+            @Override
+            protected StyleSpans<StyleInfo> call() {
+                return CodePaneController.computeStyleSpans(text, pattern, styles);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            // apply the styles only if they are for the current text
+            if (version == startVersion) {
+                codeArea.setStyleSpans(start, task.getValue());
+                dirtyStart = -1;
+                dirtyEnd = -1;
+                lastPattern = pattern;
+            }
+        });
+        codePaneController.getHighlightExecutor().execute(task);
+    }
+}
@@ -25,7 +25,6 @@ import javafx.scene.layout.Pane;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
-import org.fxmisc.richtext.InlineStyleTextArea;
 import org.fxmisc.richtext.StyledTextArea;
 
 import java.io.IOException;
@@ -128,45 +127,28 @@ public class FindReplaceController implements Initializable {
     public void onReplaceAllButtonClicked() {
         if (updateInstances()) {
             ArrayList<int[]> instancesWOOverlaps = removeOverlaps(instances);
-
-            // Loop through and replace
-            for (int i = instancesWOOverlaps.size() - 1; i >= 0; i--) {
-                int I = instancesWOOverlaps.get(i)[0];
-                int J = instancesWOOverlaps.get(i)[1];
-                replaceItoJWith(I, J, replaceWithTF.getText());
+            if (instancesWOOverlaps.isEmpty()) {
+                statusLabel.setText("Text not found.");
+                return;
             }
 
-            // New code (December 2013) - start (by Nick, Devon, and Jon)
-
-            //get text area of the current tab
-            InlineStyleTextArea ta = (InlineStyleTextArea) desktop.getTextTabPane()
-                    .getSelectionModel(
-            ).getSelectedItem().getContent();
-            //get the system clipboard
-            Clipboard clipboard = Clipboard.getSystemClipboard();
-
-            //get the old content on the clipboard
-            DataFormat df = (DataFormat) (clipboard.getContentTypes().toArray()[0]);
-            Object oldClipboardValue = (clipboard.getContent(df));
-
-            //put the old content into a ClipboardContent Object
-            ClipboardContent oldContent = new ClipboardContent();
-            oldContent.put(df, oldClipboardValue);
-            //copy everything in the text field
-            ta.selectAll();
-            ta.copy();
-            //undo all the find replae changes made
-            for (int i = instancesWOOverlaps.size() - 1; i >= 0; i--) {
-                ta.undo();
+            // build the new text between the first and last instances in one
+            // pass and make it a single change, so that it is highlighted once
+            // and undoing the replace-all undoes the entire action
+            StyledTextArea ta = validAreaToSearch();
+            String content = ta.getText();
+            String replacement = replaceWithTF.getText();
+            int first = instancesWOOverlaps.get(0)[0];
+            int last = instancesWOOverlaps.get(instancesWOOverlaps.size() - 1)[1];
+            StringBuilder newText = new StringBuilder(last - first +
+                    instancesWOOverlaps.size() * replacement.length());
+            int end = first;
+            for (int[] instance : instancesWOOverlaps) {
+                newText.append(content, end, instance[0]).append(replacement);
+                end = instance[1];
             }
-            //paste the copied (new) content to the text area
-            ta.selectAll();
-            ta.paste();
-
-            //reset the content of the clipboard
-            clipboard.setContent(oldContent);
-
-            // End of new code (December 2013)
+            ta.replaceText(first, last, newText.toString());
+            statusLabel.setText("");
         }
         // else the status label is already updated so just return
     }
@@ -189,27 +171,33 @@ public class FindReplaceController implements Initializable {
 
             int caret = ta.getCaretPosition();
             int anchor = ta.getAnchor();
-            int length = ta.getText().length();
             int start = Math.min(caret, anchor);
-            int pos = start;
-            int direction = searchForward ? 1 : -1;
-
-            while (true) {
-                pos = (pos + direction + length) % length;
-                for (int i = 0; i < instances.size(); i++) {
-                    if (instances.get(i)[0] == pos) {
-                        if ((searchForward && pos < start) ||
-                                (!searchForward && pos > start)) {
-                            statusLabel.setText("Wrapped.");
-                        }
-                        else {
-                            statusLabel.setText("");
-                        }
-                        ta.selectRange(instances.get(i)[0], instances.get(i)[1]);
-                        return;
-                    }
+
+            // the instances are in order of their starts, so the next one is
+            // found by binary search, wrapping around at either end
+            int i;
+            if (searchForward) {
+                i = numInstancesStartingBy(start);
+                if (i == instances.size()) {
+                    i = 0;
                 }
             }
+            else {
+                i = numInstancesStartingBy(start - 1) - 1;
+                if (i < 0) {
+                    i = instances.size() - 1;
+                }
+            }
+
+            int pos = instances.get(i)[0];
+            if ((searchForward && pos < start) ||
+                    (!searchForward && pos > start)) {
+                statusLabel.setText("Wrapped.");
+            }
+            else {
+                statusLabel.setText("");
+            }
+            ta.selectRange(instances.get(i)[0], instances.get(i)[1]);
         }
     }
 
@@ -331,6 +319,29 @@ public class FindReplaceController implements Initializable {
         return true;
     }
 
+    /**
+     * Returns the number of instances that start at or before the given
+     * position, which is also the index of the first instance that starts
+     * after it.
+     *
+     * @param pos the position in the text.
+     * @return the number of instances starting at or before pos.
+     */
+    private int numInstancesStartingBy(int pos) {
+        int low = 0;
+        int high = instances.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (instances.get(mid)[0] <= pos) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     /**
      * Gives the CodeArea of the current tab open, if there
      * is one. Returns null if not.
@@ -381,36 +392,9 @@ public class FindReplaceController implements Initializable {
             i = b;
         }
 
-        // Note that the below implementation is a major hack.
-        // We select the text we want to replace, paste the
-        // contents in to replace, then return the Clipboard to
-        // its original state. This way the actions can be un-done
-        // and re-done.
-        ta.selectRange(i, j);
-
-        Clipboard clipboard = Clipboard.getSystemClipboard();
-
-        boolean setBack = true;
-        DataFormat df = null;
-        Object oldVal = null;
-        try {
-            df = (DataFormat) (clipboard.getContentTypes().toArray()[0]);
-            oldVal = (clipboard.getContent(df));
-        } catch (Exception e) {
-            setBack = false;
-        }
-
-        ClipboardContent content = new ClipboardContent();
-        content.putString(s);
-        clipboard.setContent(content);
-        ta.paste();
-
-        if (setBack) {
-            ClipboardContent oldContent = new ClipboardContent();
-            oldContent.put(df, oldVal);
-            clipboard.setContent(oldContent);
-        }
-
+        // the replacement is recorded by the text area's undo manager,
+        // so it can be un-done and re-done like any other edit
+        ta.replaceText(i, j, s);
     }
 
     /**
@@ -426,38 +410,52 @@ public class FindReplaceController implements Initializable {
 
         String content = ta.getText();
         String key = findTF.getText();
-        key = capsSensitive ? key : key.toLowerCase();
-        content = capsSensitive ? content : content.toLowerCase();
+        key = capsSensitive ? key : toLowerCase(key);
+        content = capsSensitive ? content : toLowerCase(content);
 
         if (content.length() < key.length()) {
             statusLabel.setText("Text not found.");
             return instances;
         }
 
-        for (int i = 0; i < content.length() - key.length() + 1; i++) {
-            if (content.substring(i, i + key.length()).equals(key)) {
-                int[] a = {i, i + key.length()};
-                if (!matchWholeWord) {
-                    instances.add(a);
+        for (int i = content.indexOf(key); i >= 0; i = content.indexOf(key, i + 1)) {
+            int[] a = {i, i + key.length()};
+            if (!matchWholeWord) {
+                instances.add(a);
+            }
+            else {
+                boolean beforeIsSeparator = true;
+                boolean afterIsSeparator = true;
+                if (i > 0) {
+                    beforeIsSeparator = isSeparator(content.charAt(i - 1));
                 }
-                else {
-                    boolean beforeIsSeparator = true;
-                    boolean afterIsSeparator = true;
-                    if (i > 0) {
-                        beforeIsSeparator = isSeparator(content.charAt(i - 1));
-                    }
-                    if (i < content.length() - key.length()) {
-                        afterIsSeparator = isSeparator(content.charAt(i + key.length()));
-                    }
-                    if (beforeIsSeparator && afterIsSeparator) {
-                        instances.add(a);
-                    }
+                if (i < content.length() - key.length()) {
+                    afterIsSeparator = isSeparator(content.charAt(i + key.length()));
+                }
+                if (beforeIsSeparator && afterIsSeparator) {
+                    instances.add(a);
                 }
             }
         }
         return instances;
     }
 
+    /**
+     * Returns the string in lower case, one char for one char, so that
+     * the indices of the instances found in it are also their indices in
+     * the original string.
+     *
+     * @param s the string.
+     * @return the string in lower case.
+     */
+    private static String toLowerCase(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
     /**
      * Returns an arraylist equivalent to the arraylist of
      * int[] that was passed to it, after the overlapping
@@ -472,39 +470,15 @@ public class FindReplaceController implements Initializable {
      * key occurrence arrays have been removed.
      */
     private ArrayList<int[]> removeOverlaps(ArrayList<int[]> arraylist) {
-        if (arraylist.size() == 0 || arraylist.size() == 1) {
-            return arraylist;
-        }
-        else if (arraylist.size() == 2) {
-            if (arraylist.get(0)[0] <= arraylist.get(0)[1] &&
-                    arraylist.get(0)[1] <= arraylist.get(1)[0] &&
-                    arraylist.get(1)[0] <= arraylist.get(1)[1]) {
-                return arraylist;
-            }
-            else {
-                ArrayList<int[]> al = new ArrayList<int[]>();
-                al.add(arraylist.get(0));
-                return al;
-            }
-        }
-
+        // the occurrences are in order of their starts, so keeping each one
+        // that starts at or after the end of the last one kept removes
+        // all overlaps, from left to right
         ArrayList<int[]> ret = new ArrayList<int[]>();
-        for (int i = 0; i < arraylist.size(); i++) {
-            if (i % 2 == 1) {
-                if (i == arraylist.size() - 1) {
-                    if (!(arraylist.get(i - 1)[1] > arraylist.get(i)[0])) {
-                        ret.add(arraylist.get(i));
-                    }
-                }
-                else {
-                    if (!(arraylist.get(i - 1)[1] > arraylist.get(i)[0] ||
-                            arraylist.get(i)[1] > arraylist.get(i + 1)[0])) {
-                        ret.add(arraylist.get(i));
-                    }
-                }
-            }
-            else {
-                ret.add(arraylist.get(i));
+        int end = 0;
+        for (int[] occurrence : arraylist) {
+            if (occurrence[0] >= end) {
+                ret.add(occurrence);
+                end = occurrence[1];
             }
         }
         return ret;
@@ -0,0 +1,223 @@
+/**
+ * File: HelpSearchIndex
+ * Project: CPU Sim
+ */
+
+package cpusim.gui.help;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An index of the text of the help pages, used by the SearchController to
+ * answer searches without reading the pages again.  The pages are read
+ * once, in the background, the first time a help window is opened.  The
+ * text of each page, with its tags stripped, is kept along with an inverted
+ * index from each sequence of three chars, ignoring case, to the pages
+ * containing it.  A page can only contain a string of three or more chars
+ * if it contains every such sequence in the string, so the index narrows
+ * a search down to the few pages whose text must then be matched.
+ */
+public class HelpSearchIndex {
+    /** the number of chars in the sequences that are indexed */
+    private static final int GRAM_LENGTH = 3;
+
+    /** the index being built or already built, or null if not yet started */
+    private static FutureTask<HelpSearchIndex> index;
+
+    private final String[] names;
+    private final String[] texts;
+    /** the pages containing each sequence of chars, keyed by the lower case
+     * chars packed into a long */
+    private final HashMap<Long, BitSet> pagesOfGrams;
+
+    /**
+     * starts building the index of the given pages in the background, unless
+     * it has already been started
+     *
+     * @param nameURLPairs the names and resource paths of the help pages
+     */
+    public static synchronized void startIndexing(String[][] nameURLPairs) {
+        if (index == null) {
+            index = new FutureTask<>(() -> new HelpSearchIndex(nameURLPairs));
+            Thread thread = new Thread(index, "Help indexing thread");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * returns the index, waiting for it to be built if necessary
+     *
+     * @return the index of the help pages
+     * @throws IllegalStateException if startIndexing has not been called or
+     *                               the index could not be built
+     */
+    public static HelpSearchIndex getIndex() {
+        FutureTask<HelpSearchIndex> task;
+        synchronized (HelpSearchIndex.class) {
+            task = index;
+        }
+        if (task == null) {
+            throw new IllegalStateException("The help pages have not been indexed");
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Indexing of the help pages was interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The help pages could not be indexed",
+                    e.getCause());
+        }
+    }
+
+    /**
+     * reads and indexes the given pages
+     */
+    private HelpSearchIndex(String[][] nameURLPairs) {
+        names = new String[nameURLPairs.length];
+        texts = new String[nameURLPairs.length];
+        pagesOfGrams = new HashMap<>();
+        for (int page = 0; page < nameURLPairs.length; page++) {
+            names[page] = nameURLPairs[page][0];
+            texts[page] = readText(nameURLPairs[page][1]);
+            char[] chars = toLowerCase(texts[page]);
+            for (int i = 0; i + GRAM_LENGTH <= chars.length; i++) {
+                pagesOfGrams.computeIfAbsent(gram(chars, i), k -> new BitSet()).set(page);
+            }
+        }
+    }
+
+    /**
+     * returns the text of the page with the given resource path as the
+     * SearchController searches it:  its lines joined without newlines and
+     * its tags stripped.  The text is empty if the page could not be read.
+     */
+    private String readText(String path) {
+        URL fileUrl = getClass().getResource(path);
+        StringBuilder fileText = new StringBuilder();
+        if (fileUrl == null) {
+            System.out.println("IO Exception caught in Builing Maps, Please check files");
+            return "";
+        }
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                fileUrl.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                fileText.append(line);
+            }
+        } catch (IOException ex) {
+            System.out.println("IO Exception caught in Builing Maps, Please check files");
+        }
+        return SearchController.tagStripper(fileText.toString());
+    }
+
+    /**
+     * returns the number of pages in the index
+     *
+     * @return the number of pages
+     */
+    public int getNumPages() {
+        return texts.length;
+    }
+
+    /**
+     * returns the name of the given page, as shown in the help tree
+     *
+     * @param page the index of the page
+     * @return the name of the page
+     */
+    public String getName(int page) {
+        return names[page];
+    }
+
+    /**
+     * returns the text of the given page with its tags stripped
+     *
+     * @param page the index of the page
+     * @return the text of the page
+     */
+    public String getText(int page) {
+        return texts[page];
+    }
+
+    /**
+     * returns the pages that might contain, for every list of strings given,
+     * at least one of the strings in the list, ignoring case.  Pages not
+     * returned contain none of the strings of some list.  A string with
+     * fewer than three chars could be in any page.
+     *
+     * @param stringLists the lists of strings to be looked for
+     * @return the indices of the pages that might contain them
+     */
+    public BitSet getCandidates(List<List<String>> stringLists) {
+        BitSet candidates = new BitSet();
+        candidates.set(0, texts.length);
+        for (List<String> strings : stringLists) {
+            BitSet pages = new BitSet();
+            for (String string : strings) {
+                if (string.length() < GRAM_LENGTH) {
+                    pages.set(0, texts.length);
+                    break;
+                }
+                pages.or(getCandidates(string));
+            }
+            candidates.and(pages);
+        }
+        return candidates;
+    }
+
+    /**
+     * returns the pages containing every sequence of chars in the string
+     */
+    private BitSet getCandidates(String string) {
+        char[] chars = toLowerCase(string);
+        BitSet pages = null;
+        for (int i = 0; i + GRAM_LENGTH <= chars.length; i++) {
+            BitSet pagesOfGram = pagesOfGrams.get(gram(chars, i));
+            if (pagesOfGram == null) {
+                return new BitSet();
+            }
+            if (pages == null) {
+                pages = (BitSet) pagesOfGram.clone();
+            }
+            else {
+                pages.and(pagesOfGram);
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * returns the chars of the string in lower case, one for one, so that
+     * the text matched case insensitively by a regular expression also
+     * matches in lower case
+     */
+    private static char[] toLowerCase(String string) {
+        char[] chars = string.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return chars;
+    }
+
+    /**
+     * packs the sequence of chars starting at the given index into a long
+     */
+    private static long gram(char[] chars, int start) {
+        long gram = 0;
+        for (int i = start; i < start + GRAM_LENGTH; i++) {
+            gram = (gram << 16) | chars[i];
+        }
+        return gram;
+    }
+}
@@ -33,6 +33,9 @@ import javafx.beans.property.SimpleStringProperty;
 
 public class RegularExpressionGenerator {
     private List<String> occurrenceRegExList;
+    //the strings matched by each regular expression, unless the search
+    //mode is Regular Expressions, in which case it is null
+    private List<List<String>> occurrenceStringsList;
     private String searchString;
     private SimpleStringProperty searchMode;
     //This exists to replace characters that are recognized
@@ -78,6 +81,7 @@ public class RegularExpressionGenerator {
      */
     public RegularExpressionGenerator(String srchString, SimpleStringProperty mode){
         occurrenceRegExList = new ArrayList<>();
+        occurrenceStringsList = new ArrayList<>();
         searchString = srchString;
         searchMode = mode;
     }
@@ -90,6 +94,18 @@ public class RegularExpressionGenerator {
         return this.occurrenceRegExList;
     }
     
+    /**
+     * returns, for each regular expression to be searched, the list of
+     * strings it matches, apart from case and word boundaries.  Used to
+     * narrow down the pages to be searched.
+     *
+     * @return a list of lists of strings parallel to the list of regular
+     * expressions, or null if the search mode is Regular Expressions
+     */
+    public List<List<String>> getOccurrenceStrings(){
+        return this.occurrenceStringsList;
+    }
+
     /**
      * calls auxiliary methods to parse the search string based on
      * the current search mode. 
@@ -99,6 +115,7 @@ public class RegularExpressionGenerator {
     public void searchRegExGenerator(){
         if(searchString.equals("")){
             occurrenceRegExList.clear();
+            occurrenceStringsList.clear();
             return;
         }
         switch(searchMode.get()){
@@ -107,6 +124,7 @@ public class RegularExpressionGenerator {
                 removeEmptyMatchString();
                 break;
             case "Regular Expressions":
+                occurrenceStringsList = null;
                 occurrenceRegExList = regExParse();
                 removeEmptyMatchString();
                 break;
@@ -134,6 +152,9 @@ public class RegularExpressionGenerator {
             Matcher m = p.matcher("");
             if(m.matches()){
                 occurrenceRegExList.remove(occurrenceRegExList.get(i));
+                if(occurrenceStringsList != null){
+                    occurrenceStringsList.remove(i);
+                }
                 i--;//to deal with concurrent modification
             }
         }
@@ -161,6 +182,12 @@ public class RegularExpressionGenerator {
         //strip AND
         List<String> tempRegExList = new ArrayList<>(Arrays.asList(searchString.split(" AND ")));
         
+        //the strings ORed in each regular expression
+        occurrenceStringsList = new ArrayList<>();
+        for(String regEx : tempRegExList){
+            occurrenceStringsList.add(Arrays.asList(regEx.split(" OR ", -1)));
+        }
+
         //Strip OR and add case insensitive
         for(String regEx : tempRegExList){
             int i = tempRegExList.indexOf(regEx);
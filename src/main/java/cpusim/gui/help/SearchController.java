@@ -30,11 +30,8 @@
 
 package cpusim.gui.help;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -52,11 +49,16 @@ import org.w3c.dom.Text;
 
 
 public class SearchController {
+    private static final Pattern TAG_PATTERN = Pattern.compile("<[^>]*>");
+    private static final Pattern PLUS_PATTERN = Pattern.compile("\\+");
+
     private String[][] nameURLPairs;
     private Map<String, Integer> nameOccurrenceMap;
     private ArrayList<Node> copyNodeList;
     private String htmlHighlightColor;
     private List<String> occurrenceRegExList;
+    private List<Pattern> occurrencePatterns;
+    private List<List<String>> occurrenceStringsList;
     private RegularExpressionGenerator generator;
     private SimpleStringProperty searchMode;
     
@@ -71,8 +73,11 @@ public class SearchController {
         nameOccurrenceMap = new HashMap<>();
         htmlHighlightColor = "background-color:yellow";
         occurrenceRegExList = new ArrayList();
+        occurrencePatterns = new ArrayList<>();
+        occurrenceStringsList = new ArrayList<>();
         copyNodeList = new ArrayList();
         searchMode = mode;
+        HelpSearchIndex.startIndexing(namedUrlPairs);
     }
         
     /**
@@ -86,6 +91,11 @@ public class SearchController {
         generator = new RegularExpressionGenerator(searchFieldText, searchMode);
         generator.searchRegExGenerator();
         occurrenceRegExList = generator.getOccurrencetRegEx();
+        occurrenceStringsList = generator.getOccurrenceStrings();
+        occurrencePatterns = new ArrayList<>();
+        for(String regEx : occurrenceRegExList){
+            occurrencePatterns.add(Pattern.compile(regEx));
+        }
         //TODO change input
         addHighlightTagsToBody(doc);
         //Handle the search list and occurences
@@ -148,8 +158,8 @@ public class SearchController {
             return;
         }
         
-        for(String searchRegEx : occurrenceRegExList){
-            addHighlightNodes(originalDoc,originalDocNodeList,searchRegEx);
+        for(Pattern searchPattern : occurrencePatterns){
+            addHighlightNodes(originalDoc,originalDocNodeList,searchPattern);
         }
     }
     
@@ -158,15 +168,15 @@ public class SearchController {
      *
      * @param originalDoc   a Document generated from webEngine based on webView
      * @param nodeList      a NodeList that has children nodes of original Doc
-     * @param searchRegEx   a regular expression to be searched
+     * @param searchPattern a regular expression to be searched
      */
-    private void addHighlightNodes(Document originalDoc, NodeList nodeList, String searchRegEx) {
+    private void addHighlightNodes(Document originalDoc, NodeList nodeList, Pattern searchPattern) {
         for(int i=0; i<nodeList.getLength(); i++){
             Node node = nodeList.item(i);
             if(node.getNodeType() == Node.TEXT_NODE){
-                nodeBuilder(originalDoc,node,searchRegEx);
+                nodeBuilder(originalDoc,node,searchPattern);
             }else{
-                addHighlightNodes(originalDoc,node.getChildNodes(),searchRegEx);
+                addHighlightNodes(originalDoc,node.getChildNodes(),searchPattern);
             }  
         }
     }
@@ -175,13 +185,12 @@ public class SearchController {
      *
      * @param originalDoc   a Document generated from webEngine based on webView
      * @param node          a node that contains text to be searched
-     * @param searchRegEx   a regular expression to be searched
+     * @param searchPattern a regular expression to be searched
      */
-    private void nodeBuilder(Document originalDoc, Node node, String searchRegEx) {
+    private void nodeBuilder(Document originalDoc, Node node, Pattern searchPattern) {
         String nodeText = node.getTextContent();
         
-        Pattern p = Pattern.compile(searchRegEx);
-        Matcher m = p.matcher(nodeText);
+        Matcher m = searchPattern.matcher(nodeText);
 
         if(m.find()){
             int occurenceStartIndex = m.start();
@@ -192,7 +201,7 @@ public class SearchController {
             parentNode.replaceChild(newChild, node);
             
             if(newChild.getLastChild().getNodeType() == Node.TEXT_NODE){
-                nodeBuilder(originalDoc, newChild.getLastChild(), searchRegEx);
+                nodeBuilder(originalDoc, newChild.getLastChild(), searchPattern);
             }
         }
     }
@@ -240,17 +249,12 @@ public class SearchController {
      * @return a boolean if the given text should be occurrence counted and highlighted
      */
     private boolean isAnd(String fileText){
-        boolean hasAll = true;
-        Pattern p;
-        Matcher m;
-        for(String regEx : occurrenceRegExList){
-            p = Pattern.compile(regEx);
-            m = p.matcher(fileText);
-            if(!m.find()){
-                hasAll = false;
+        for(Pattern p : occurrencePatterns){
+            if(!p.matcher(fileText).find()){
+                return false;
             }
         }
-        return hasAll;
+        return true;
     }
     
     /**
@@ -261,14 +265,9 @@ public class SearchController {
      * @param fileText
      * @return 
      */
-    private String tagStripper(String fileText){
-        Pattern p = Pattern.compile("<[^>]*>");
-        Matcher m = p.matcher(fileText);
-        fileText = m.replaceAll("");  
-                
-        p = Pattern.compile("\\+");
-        m = p.matcher(fileText);
-        fileText = m.replaceAll(" ");
+    static String tagStripper(String fileText){
+        fileText = TAG_PATTERN.matcher(fileText).replaceAll("");
+        fileText = PLUS_PATTERN.matcher(fileText).replaceAll(" ");
         return fileText;
     }
     
@@ -289,25 +288,28 @@ public class SearchController {
         if(!occurrenceRegEx.isEmpty()){
             occurrenceRegEx = occurrenceRegEx.substring(1);
         }
-        
-        for(String[] filePair : nameURLPairs){
-            URL fileUrl = getClass().getResource(filePair[1]);
-            BufferedReader in;
-            Integer occurrences = 0;
-            //forced catch block for file reading. will politely exit
-            try {
-                in = new BufferedReader(new InputStreamReader(fileUrl.openStream()));
-                if(!occurrenceRegEx.isEmpty()){ //keeps empty map form occurence counting
-                    occurrences = countOccurrences(in, occurrenceRegEx);
-                }
-                in.close();
-            } catch (IOException ex) {
-                System.out.println("IO Exception caught in Builing Maps, Please check files");
-            }
+        else{ //keeps empty map form occurence counting
+            return;
+        }
+        Pattern occurrencePattern = Pattern.compile(occurrenceRegEx);
+
+        //only the pages that might contain the searched strings are matched
+        HelpSearchIndex index = HelpSearchIndex.getIndex();
+        BitSet pages;
+        if(occurrenceStringsList != null){
+            pages = index.getCandidates(occurrenceStringsList);
+        }
+        else{ //regular expressions could match anything
+            pages = new BitSet();
+            pages.set(0, index.getNumPages());
+        }
+
+        for(int page = pages.nextSetBit(0); page >= 0; page = pages.nextSetBit(page + 1)){
+            Integer occurrences = countOccurrences(index.getText(page), occurrencePattern);
             if(occurrences < 1){ //nothing there, nothing to do
                 continue;
             }
-            nameOccurrenceMap.put(occurrences.toString()+" "+filePair[0], occurrences);
+            nameOccurrenceMap.put(occurrences.toString()+" "+index.getName(page), occurrences);
         }
         if(!nameOccurrenceMap.isEmpty()){
             sortOccurrenceMap();
@@ -316,26 +318,20 @@ public class SearchController {
     
     /** 
      * Auxiliary method which returns the number of occurrences of a 
-     * regular expression in the text of a Document. 
+     * regular expression in the text of a page. 
      * 
-     * @param  doc 			the document where we search for the occurrence of a particular String
-     * @param  searchString the string we will be searching in the doc
-     * @return 				the number of occurrence of searchString in doc
+     * @param  fileText          the text of the page with its tags stripped
+     * @param  occurrencePattern the regular expression to be counted
+     * @return 				the number of occurrences of the pattern in the
+     *                      text, or 0 if the text doesn't match all ANDed strings
      */
-    private int countOccurrences(BufferedReader fileIn, String occurrenceRegEx) throws IOException {
-        String lines;
+    private int countOccurrences(String fileText, Pattern occurrencePattern) {
         int count = 0;
-        String fileText = "";
-        while ((lines= fileIn.readLine()) != null){
-            fileText += lines;
-        }
-        fileText = tagStripper(fileText);
         if(!isAnd(fileText)){ //file doesn't match all anded strings.
             return 0;
         }
         
-        Pattern p = Pattern.compile(occurrenceRegEx);
-        Matcher m = p.matcher(fileText);
+        Matcher m = occurrencePattern.matcher(fileText);
 
         while(m.find()){
             count++;
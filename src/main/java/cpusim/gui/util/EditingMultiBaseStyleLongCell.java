@@ -16,6 +16,7 @@ import cpusim.assembler.EQU;
 import cpusim.gui.desktop.FontData;
 import cpusim.model.module.RAMLocation;
 import cpusim.model.module.Register;
+import cpusim.util.BaseFormatter;
 import cpusim.util.Convert;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -118,7 +119,7 @@ public class EditingMultiBaseStyleLongCell<T> extends TableCell<T, Long> {
         }
         else {
             setTooltipsAndCellSize();
-            setText(formatString(convertLong(Long.parseLong(getString()))));
+            setText(convertLong(getItem(), base.getBase()));
             if(isReadOnlyRegisterValue()) {
                 ImageView graphic = new ImageView(new Image("/images/icons/Lock.png"));
                 graphic.setFitHeight(styleInfo == null ? this.getHeight() :
@@ -139,7 +140,7 @@ public class EditingMultiBaseStyleLongCell<T> extends TableCell<T, Long> {
      * at the proper time
      */
     private void createTextField() {
-        textField = new TextField(formatString(convertLong(Long.parseLong(getString()))));
+        textField = new TextField(convertLong(getItem(), base.getBase()));
         textField.setMinWidth(this.getWidth() - this.getGraphicTextGap() * 2);
 
         // if user takes focus from the textField, check the validity of its
@@ -249,18 +250,32 @@ public class EditingMultiBaseStyleLongCell<T> extends TableCell<T, Long> {
         }
     }
 
-    private String convertLong(Long l) {
-        switch (base.getBase()) {
+    /**
+     * Formats the value in the given base using the cell size, with the
+     * digits in groups of 4 if the base is binary or hex.  The formatters
+     * are cached and write the digits directly, so refreshing the cells
+     * creates little garbage.
+     * @param value the value to be displayed
+     * @param baseName the name of the base, as in the Base class
+     * @return the formatted value
+     */
+    private String convertLong(long value, String baseName) {
+        switch (baseName) {
             case "Bin":
-                return Convert.fromLongToTwosComplementString(l, cellSize);
+                return BaseFormatter.get(BaseFormatter.Style.BINARY, cellSize, true)
+                        .format(value);
             case "Hex":
-                return Convert.fromLongToHexadecimalString(l, cellSize);
+                return BaseFormatter.get(BaseFormatter.Style.HEX, cellSize, true)
+                        .format(value);
             case "Dec":
-                return String.valueOf(l);
+                return BaseFormatter.get(BaseFormatter.Style.DECIMAL, cellSize, false)
+                        .format(value);
             case "Unsigned Dec":
-                return Convert.fromLongToUnsignedDecString(l, cellSize);
+                return BaseFormatter.get(BaseFormatter.Style.UNSIGNED_DECIMAL,
+                        cellSize, false).format(value);
             default:
-                return Convert.fromLongToAsciiString(l, cellSize);
+                return BaseFormatter.get(BaseFormatter.Style.ASCII, cellSize, false)
+                        .format(value);
         }
     }
 
@@ -279,37 +294,13 @@ public class EditingMultiBaseStyleLongCell<T> extends TableCell<T, Long> {
     }
 
     public String allBasesToolTip() {
-    	String toolTip = "";
-        String originalBase = base.getBase();
         String newLine = System.getProperty("line.separator");
-
-        // 1
-        toolTip += "Decimal: ";
-        base.setBase(Base.DECIMAL);
-        toolTip += formatString(convertLong(Long.parseLong(getString())));
-        toolTip += newLine;
-        // 2
-        toolTip += "Unsigned Decimal: ";
-        base.setBase(Base.UNSIGNEDDECIMAL);
-        toolTip += formatString(convertLong(Long.parseLong(getString())));
-        toolTip += newLine;
-        // 3
-        toolTip += "Binary: ";
-        base.setBase(Base.BINARY);
-        toolTip += formatString(convertLong(Long.parseLong(getString())));
-        toolTip += newLine;
-        // 4
-        toolTip += "Hexadecimal: ";
-        base.setBase(Base.HEX);
-        toolTip += formatString(convertLong(Long.parseLong(getString())));
-        toolTip += newLine;
-        // 5
-        toolTip += "Ascii: ";
-        base.setBase(Base.ASCII);
-        toolTip += formatString(convertLong(Long.parseLong(getString())));
-
-        base.setBase(originalBase);
-        return toolTip;
+        long value = getItem();
+        return "Decimal: " + convertLong(value, Base.DECIMAL) + newLine +
+                "Unsigned Decimal: " + convertLong(value, Base.UNSIGNEDDECIMAL) + newLine +
+                "Binary: " + convertLong(value, Base.BINARY) + newLine +
+                "Hexadecimal: " + convertLong(value, Base.HEX) + newLine +
+                "Ascii: " + convertLong(value, Base.ASCII);
     }
 
     /**
@@ -4,145 +4,131 @@
  */
 package cpusim.mif;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.ArrayList;
-import javafx.application.Application;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
-import javafx.scene.Scene;
-import javafx.scene.control.Button;
-import javafx.scene.layout.StackPane;
-import javafx.stage.Stage;
 
 /**
- * This class converts strings into arrays of tokens
- * under the assumption that the strings consists of lines of text
- * from an MIF file.
+ * This class converts the lines of text of an MIF file into arrays of
+ * tokens.  The lines are read one at a time from a reader, so only the
+ * current line of the file is held in memory.
  * @author Ben Borchard
  */
 public class MIFScanner{
-    
-    private String[] mifText;
+
+    private BufferedReader reader;
     private boolean inComment;
     /** the current line number */
     private int lineNumber;
+    /** the characters of the token being scanned */
+    private StringBuilder token;
 
     /**
      * constructor
-     * @param text the array of Strings to be converted to an array of tokens.
+     * @param reader the reader of the lines to be converted to tokens.
      */
-    public MIFScanner(String[] text){
-        mifText = text;
+    public MIFScanner(BufferedReader reader){
+        this.reader = reader;
         inComment = false;
         lineNumber = 0;
+        token = new StringBuilder();
     }
-    
+
     /**
      * gives an array list of the tokens on the next line of the mif text
      * @param comments true if you want to include the end-of-line comment as another token
      * @return array list of tokens or null if there are no more lines to scan.
+     * @throws IOException if the next line could not be read
      */
-    public ArrayList<String> getNextTokens(boolean comments){
-        ArrayList<String> tokens = new ArrayList<>();
-        
-        char[] line;
-        
-        try{
-            line = mifText[lineNumber].toCharArray();
-        }
-        catch(ArrayIndexOutOfBoundsException e){
+    public ArrayList<String> getNextTokens(boolean comments) throws IOException{
+        String line = reader.readLine();
+        if (line == null){
             return null;
         }
-        
+
         lineNumber++;
-        
+
+        ArrayList<String> tokens = new ArrayList<>();
         boolean dashPrevious = false;
         boolean periodPrevious = false;
-        
-        String token = "";
-        int i = 0;
-        for (char c : line){
+
+        token.setLength(0);
+        for (int i = 0; i < line.length(); i++){
+            char c = line.charAt(i);
             if (inComment){
                 if (c == '%'){
                     inComment = false;
                 }
             }
             else{
-                if (c == ' '){
-                    tokens.add(token);
-                    token = "";
+                if (c == ' ' || c == '\t'){
+                    addToken(tokens);
                     dashPrevious = false;
                     periodPrevious = false;
                 }
                 else if (c == '=' || c == ';' || c == ':' || c == '[' || c == ']'){
-                    tokens.add(token);
-                    token = "";
+                    addToken(tokens);
                     tokens.add(String.valueOf(c));
                     dashPrevious = false;
                     periodPrevious = false;
                 }
                 else if (c == '%'){
-                    tokens.add(token);
-                    token = "";
+                    addToken(tokens);
                     inComment = true;
                     dashPrevious = false;
                     periodPrevious = false;
                 }
                 else if (c == '.'){
                     if (periodPrevious){
-                        token = token.substring(0, token.length()-1);
-                        tokens.add(token);
+                        token.setLength(token.length()-1);
+                        addToken(tokens);
                         tokens.add("..");
-                        token = "";
                         periodPrevious = false;
                     }
                     else{
-                        token += c;
+                        token.append(c);
                         periodPrevious = true;
                     }
                     dashPrevious = false;
                 }
                 else if (c == '-'){
                     if (dashPrevious){
-                        token = token.substring(0, token.length()-1);
-                        tokens.add(token);
-                        if (comments){
-                            if (i != line.length-1){
-                                tokens.add(mifText[lineNumber-1].substring(i+1, 
-                                        mifText[lineNumber-1].length()));
-                            }
+                        token.setLength(token.length()-1);
+                        addToken(tokens);
+                        if (comments && i != line.length()-1){
+                            tokens.add(line.substring(i+1));
                         }
-                        break;
+                        return tokens;
                     }
                     else{
-                        token += c;
+                        token.append(c);
                         dashPrevious = true;
                         periodPrevious = false;
                     }
                 }
                 else{
-                    token += c;
+                    token.append(c);
                     dashPrevious = false;
                     periodPrevious = false;
                 }
             }
-            i++;
-        }
-        tokens.add(token);
-        
-        ArrayList<String> tokensToRemove = new ArrayList<>();
-        for (String t : tokens){
-            if (t.equals("")){
-                tokensToRemove.add(t);
-            }
-        }
-        
-        for (String t : tokensToRemove){
-            tokens.remove(t);
         }
-        
+        addToken(tokens);
+
         return tokens;
     }
-    
+
+    /**
+     * adds the token being scanned, if it is not empty, to the given tokens
+     * and starts a new token
+     */
+    private void addToken(ArrayList<String> tokens){
+        if (token.length() > 0){
+            tokens.add(token.toString());
+            token.setLength(0);
+        }
+    }
+
     public int getLineNumber(){
         return lineNumber;
     }
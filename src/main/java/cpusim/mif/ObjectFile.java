@@ -0,0 +1,271 @@
+/*
+ * File: ObjectFile.java
+ * Project: CPU Sim
+ */
+
+package cpusim.mif;
+
+import cpusim.model.module.RAM;
+import cpusim.model.module.RAMLocation;
+import cpusim.util.ObjectFileException;
+import cpusim.util.SourceLine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class reads and writes CPU Sim object files, a compact binary format
+ * holding an image of the cells of a RAM together with the comments and
+ * source lines attached to them.  Loading an object file is a bulk copy of
+ * the cell image into the RAM, so no assembly or text parsing is needed.
+ * <p>
+ * All values are stored big-endian.  The layout (version 1) is:
+ * <pre>
+ *   int    magic number "CPSO"
+ *   short  version
+ *   short  number of bytes per cell = ceil(cellSize / 8)
+ *   int    cell size in bits
+ *   int    address of the first cell in the image
+ *   int    number of cells in the image
+ *   byte[] the cell values, bytesPerCell bytes per cell
+ *   int    number of source file names, followed by each name as a string
+ *   int    number of source lines, followed by (cell offset, name index, line)
+ *          triples of ints
+ *   int    number of comments, followed by (cell offset, string) pairs
+ * </pre>
+ * where a string is an int byte count followed by the UTF-8 bytes.
+ * Only the source lines and comments of the cells that have them are stored.
+ */
+public class ObjectFile
+{
+    /** the file name extension of object files */
+    public static final String EXTENSION = ".obj";
+
+    /** the bytes "CPSO", used to recognize object files */
+    private static final int MAGIC = 0x4350534F;
+    /** the current version of the format */
+    private static final short VERSION = 1;
+
+    /**
+     * writes the contents of the given RAM to the given file.  Only the cells
+     * from the lowest to the highest address that have a nonzero value, a
+     * comment or a source line are included in the image.
+     *
+     * @param ram the RAM whose contents are to be saved
+     * @param file the object file to be written
+     * @throws IOException if the file could not be written
+     */
+    public static void write(RAM ram, File file) throws IOException {
+        List<RAMLocation> data = ram.data();
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < data.size(); i++) {
+            RAMLocation loc = data.get(i);
+            if (loc.getValue() != 0 || loc.getComment().length() > 0 ||
+                    loc.getSourceLine() != null) {
+                if (first == -1) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        int start = Math.max(first, 0);
+        int count = (first == -1 ? 0 : last - first + 1);
+        int bytesPerCell = (ram.getCellSize() + 7) / 8;
+
+        // collect the sparse source line and comment tables
+        Map<String, Integer> fileNames = new LinkedHashMap<>();
+        List<int[]> sourceLines = new ArrayList<>();
+        List<Integer> commentOffsets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            RAMLocation loc = data.get(start + i);
+            SourceLine sourceLine = loc.getSourceLine();
+            if (sourceLine != null) {
+                Integer nameIndex = fileNames.get(sourceLine.getFileName());
+                if (nameIndex == null) {
+                    nameIndex = fileNames.size();
+                    fileNames.put(sourceLine.getFileName(), nameIndex);
+                }
+                sourceLines.add(new int[]{i, nameIndex, sourceLine.getLine()});
+            }
+            if (loc.getComment().length() > 0) {
+                commentOffsets.add(i);
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(bytesPerCell);
+            out.writeInt(ram.getCellSize());
+            out.writeInt(start);
+            out.writeInt(count);
+
+            for (int i = 0; i < count; i++) {
+                long value = data.get(start + i).getValue();
+                for (int b = bytesPerCell - 1; b >= 0; b--) {
+                    out.write((int) (value >>> (8 * b)));
+                }
+            }
+
+            out.writeInt(fileNames.size());
+            for (String name : fileNames.keySet()) {
+                writeString(out, name);
+            }
+            out.writeInt(sourceLines.size());
+            for (int[] entry : sourceLines) {
+                out.writeInt(entry[0]);
+                out.writeInt(entry[1]);
+                out.writeInt(entry[2]);
+            }
+            out.writeInt(commentOffsets.size());
+            for (int offset : commentOffsets) {
+                out.writeInt(offset);
+                writeString(out, data.get(start + offset).getComment());
+            }
+        }
+    }
+
+    /**
+     * loads the image in the given object file into the given RAM at the
+     * address stored in the file.  The file is memory-mapped and the cells
+     * are copied into the RAM in bulk.
+     *
+     * @param file the object file to be read
+     * @param ram the RAM into which the image is loaded
+     * @throws IOException if the file could not be read
+     * @throws ObjectFileException if the file is not a valid object file or
+     *                             if its image does not fit in the RAM
+     */
+    public static void read(File file, RAM ram) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buf.getInt() != MAGIC) {
+                throw new ObjectFileException("The file " + file.getName() +
+                        " is not a CPU Sim object file.");
+            }
+            short version = buf.getShort();
+            if (version != VERSION) {
+                throw new ObjectFileException("The object file " + file.getName() +
+                        " has version " + version + ", which this version of " +
+                        "CPU Sim cannot read.");
+            }
+            int bytesPerCell = buf.getShort();
+            int cellSize = buf.getInt();
+            int start = buf.getInt();
+            int count = buf.getInt();
+            if (cellSize != ram.getCellSize() || bytesPerCell != (cellSize + 7) / 8) {
+                throw new ObjectFileException("The cell size " + cellSize + " of the " +
+                        "object file does not match the cell size of RAM " +
+                        ram.getName() + " and so the file cannot be loaded.");
+            }
+            if (start < 0 || count < 0 || (long) start + count > ram.getLength()) {
+                throw new ObjectFileException("There is not enough room in RAM " +
+                        ram.getName() + " to load the " + count + " cells of the " +
+                        "object file starting at address " + start + ".");
+            }
+
+            checkLength(count, bytesPerCell, buf, file);
+            long[] values = new long[count];
+            if (bytesPerCell == 8) {
+                buf.asLongBuffer().get(values);
+                buf.position(buf.position() + 8 * count);
+            }
+            else {
+                for (int i = 0; i < count; i++) {
+                    long value = 0;
+                    for (int b = 0; b < bytesPerCell; b++) {
+                        value = (value << 8) | (buf.get() & 0xFF);
+                    }
+                    values[i] = value;
+                }
+            }
+
+            // each file name takes at least the 4 bytes of its length
+            String[] fileNames = new String[checkLength(buf.getInt(), 4, buf, file)];
+            for (int i = 0; i < fileNames.length; i++) {
+                fileNames[i] = readString(buf, file);
+            }
+            SourceLine[] sourceLines = new SourceLine[count];
+            int numSourceLines = buf.getInt();
+            for (int i = 0; i < numSourceLines; i++) {
+                int offset = checkOffset(buf.getInt(), count, file);
+                int nameIndex = buf.getInt();
+                int line = buf.getInt();
+                if (nameIndex < 0 || nameIndex >= fileNames.length) {
+                    throw new ObjectFileException("The object file " +
+                            file.getName() + " is corrupt.");
+                }
+                sourceLines[offset] = new SourceLine(line, fileNames[nameIndex]);
+            }
+            String[] comments = new String[count];
+            int numComments = buf.getInt();
+            for (int i = 0; i < numComments; i++) {
+                int offset = checkOffset(buf.getInt(), count, file);
+                comments[offset] = readString(buf, file);
+            }
+
+            ram.loadImage(start, values, comments, sourceLines);
+        } catch (BufferUnderflowException | IllegalArgumentException |
+                NegativeArraySizeException e) {
+            throw new ObjectFileException("The object file " + file.getName() +
+                    " is truncated or corrupt.");
+        }
+    }
+
+    /**
+     * checks that the given cell offset read from the file lies in the image
+     */
+    private static int checkOffset(int offset, int count, File file) {
+        if (offset < 0 || offset >= count) {
+            throw new ObjectFileException("The object file " + file.getName() +
+                    " is corrupt.");
+        }
+        return offset;
+    }
+
+    /**
+     * checks that the given number of items read from the file, each taking
+     * at least the given number of bytes, is not negative and fits in the
+     * rest of the file, so that a corrupt length cannot make the reader
+     * allocate a huge array
+     */
+    private static int checkLength(int length, int bytesEach, ByteBuffer buf,
+                                   File file) {
+        if (length < 0 || (long) length * bytesEach > buf.remaining()) {
+            throw new ObjectFileException("The object file " + file.getName() +
+                    " is truncated or corrupt.");
+        }
+        return length;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf, File file) {
+        byte[] bytes = new byte[checkLength(buf.getInt(), 1, buf, file)];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * File: RAMExporter.java
+ * Project: CPU Sim
+ */
+
+package cpusim.mif;
+
+import cpusim.model.module.RAM;
+import cpusim.model.module.RAMLocation;
+import cpusim.util.BaseFormatter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * This class saves the contents of a RAM to a file as a Memory
+ * Initialization File (MIF), in Intel HEX format or as a raw binary dump.
+ * The cells are streamed to a file channel through fixed-size buffers, so
+ * the memory used does not depend on the size of the RAM and the time is
+ * linear in it.
+ */
+public class RAMExporter
+{
+    /** the file name extension of raw binary dumps */
+    public static final String RAW_EXTENSION = ".bin";
+
+    /** the number of chars or bytes buffered before they are written */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String NEWLINE = System.lineSeparator();
+    private static final String SPACES = "              ";
+
+    /**
+     * writes the contents of the given RAM to the given file in MIF format,
+     * with the addresses in hexadecimal and the data in binary.  A run of
+     * cells with the same value is written as one range of addresses,
+     * followed by the comment of the last cell of the run.
+     *
+     * @param ram the RAM whose contents are to be saved
+     * @param file the MIF file to be written
+     * @throws IOException if the file could not be written
+     */
+    public static void writeMIF(RAM ram, File file) throws IOException {
+        List<RAMLocation> data = ram.data();
+        int cellSize = ram.getCellSize();
+        int numAddrBits = ram.getNumAddrBits();
+
+        try (ChannelWriter out = new ChannelWriter(file)) {
+            out.append("DEPTH = ").append(Integer.toString(ram.getLength()))
+                    .append(";").append(NEWLINE);
+            out.append("WIDTH = ").append(Integer.toString(cellSize))
+                    .append(";").append(NEWLINE);
+            out.append("ADDRESS_RADIX = HEX;").append(NEWLINE);
+            out.append("DATA_RADIX = BIN;").append(NEWLINE);
+            out.append("CONTENT").append(NEWLINE);
+            out.append("BEGIN").append(NEWLINE).append(NEWLINE);
+
+            int runStart = 0;
+            long value = data.isEmpty() ? 0 : data.get(0).getValue();
+            for (int i = 0; i < data.size(); i++) {
+                // each value is read once, as the next value of the cell
+                // before.  The run ends at the last cell or at a change of value.
+                long nextValue = (i + 1 < data.size() ? data.get(i + 1).getValue() : 0);
+                boolean runEnds = (i + 1 == data.size() || nextValue != value);
+                long runValue = value;
+                value = nextValue;
+                if (!runEnds) {
+                    continue;
+                }
+                if (runStart == i) {
+                    out.appendHex(i, numAddrBits).append("        :  ");
+                }
+                else {
+                    out.append("[").appendHex(runStart, numAddrBits).append("..")
+                            .appendHex(i, numAddrBits).append("]:  ");
+                }
+                out.appendBinary(runValue, cellSize).append(";").append(SPACES)
+                        .append("-- ").append(data.get(i).getComment()).append(NEWLINE);
+                runStart = i + 1;
+            }
+
+            out.append("END;").append(NEWLINE);
+        }
+    }
+
+    /**
+     * writes the contents of the given RAM to the given file in Intel HEX
+     * format, one data record per cell.  Extended linear address records are
+     * written for RAMs with more than 64K cells.
+     *
+     * @param ram the RAM whose contents are to be saved
+     * @param file the Intel HEX file to be written
+     * @throws IOException if the file could not be written
+     */
+    public static void writeIntelHex(RAM ram, File file) throws IOException {
+        List<RAMLocation> data = ram.data();
+        int bytesNeeded = (ram.getCellSize() + 7) / 8;
+
+        try (ChannelWriter out = new ChannelWriter(file)) {
+            int upperAddress = 0;
+            for (int i = 0; i < data.size(); i++) {
+                RAMLocation ramLoc = data.get(i);
+                int address = (int) ramLoc.getAddress();
+                if ((address >>> 16) != upperAddress) {
+                    upperAddress = address >>> 16;
+                    int sum = 2 + 4 + (upperAddress >>> 8) + upperAddress;
+                    out.append(":02000004").appendHex(upperAddress, 16)
+                            .appendHex(-sum & 255, 8).append(NEWLINE);
+                }
+                address &= 0xFFFF;
+                long value = ramLoc.getValue();
+                int sum = bytesNeeded + (address >>> 8) + address;
+                for (int b = 0; b < bytesNeeded; b++) {
+                    sum += (int) (value >>> (8 * b)) & 255;
+                }
+                out.append(":").appendHex(bytesNeeded, 8).appendHex(address, 16)
+                        .append("00").appendHex(value, bytesNeeded * 8)
+                        .appendHex(-sum & 255, 8).append(NEWLINE);
+            }
+            out.append(":00000001FF");
+        }
+    }
+
+    /**
+     * writes the values of all the cells of the given RAM to the given file
+     * as a raw binary dump, each cell as ceil(cellSize / 8) bytes, big-endian.
+     *
+     * @param ram the RAM whose contents are to be saved
+     * @param file the file to be written
+     * @throws IOException if the file could not be written
+     */
+    public static void writeRawBinary(RAM ram, File file) throws IOException {
+        List<RAMLocation> data = ram.data();
+        int bytesPerCell = (ram.getCellSize() + 7) / 8;
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+        try (FileChannel channel = openForWriting(file)) {
+            for (int i = 0; i < data.size(); i++) {
+                if (bytes.remaining() < bytesPerCell) {
+                    writeAll(channel, bytes);
+                }
+                long value = data.get(i).getValue();
+                for (int b = bytesPerCell - 1; b >= 0; b--) {
+                    bytes.put((byte) (value >>> (8 * b)));
+                }
+            }
+            writeAll(channel, bytes);
+        }
+    }
+
+    private static FileChannel openForWriting(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * writes the bytes in the given buffer to the channel and clears the buffer
+     */
+    private static void writeAll(FileChannel channel, ByteBuffer bytes)
+            throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * buffers text and writes it as UTF-8 to a file channel.  Numbers are
+     * formatted straight into the buffer.
+     */
+    private static class ChannelWriter implements Closeable
+    {
+        private final FileChannel channel;
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        // the digits of the value being appended
+        private char[] digits = new char[64];
+        // at most 3 bytes are needed for each char in UTF-8
+        private final ByteBuffer bytes = ByteBuffer.allocate(3 * BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        ChannelWriter(File file) throws IOException {
+            channel = openForWriting(file);
+        }
+
+        ChannelWriter append(String s) throws IOException {
+            int start = 0;
+            while (start < s.length()) {
+                if (!chars.hasRemaining()) {
+                    drain(false);
+                }
+                int end = Math.min(s.length(), start + chars.remaining());
+                chars.put(s, start, end);
+                start = end;
+            }
+            return this;
+        }
+
+        /**
+         * appends the value in hexadecimal with at least numBits / 4 digits,
+         * rounded up, as Convert.fromLongToHexadecimalString does.  A negative
+         * value is written in two's complement using numBits bits.
+         */
+        ChannelWriter appendHex(long value, int numBits) throws IOException {
+            return append(BaseFormatter.get(BaseFormatter.Style.HEX, numBits, false),
+                    value);
+        }
+
+        /**
+         * appends the value in binary with at least numBits digits, as
+         * Convert.fromLongToTwosComplementString does.  A negative value is
+         * written in two's complement using numBits bits.
+         */
+        ChannelWriter appendBinary(long value, int numBits) throws IOException {
+            return append(BaseFormatter.get(BaseFormatter.Style.BINARY, numBits, false),
+                    value);
+        }
+
+        /**
+         * appends the value as formatted by the given formatter
+         */
+        private ChannelWriter append(BaseFormatter formatter, long value)
+                throws IOException {
+            if (digits.length < formatter.getMaxLength()) {
+                digits = new char[formatter.getMaxLength()];
+            }
+            int length = formatter.format(value, digits, 0);
+            if (chars.remaining() < length) {
+                drain(false);
+            }
+            chars.put(digits, 0, length);
+            return this;
+        }
+
+        /**
+         * encodes the buffered chars and writes them to the channel
+         */
+        private void drain(boolean endOfInput) throws IOException {
+            chars.flip();
+            encoder.encode(chars, bytes, endOfInput);
+            if (endOfInput) {
+                encoder.flush(bytes);
+            }
+            chars.compact();
+            writeAll(channel, bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
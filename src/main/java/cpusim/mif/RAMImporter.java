@@ -0,0 +1,453 @@
+/*
+ * File: RAMImporter.java
+ * Project: CPU Sim
+ */
+
+package cpusim.mif;
+
+import cpusim.model.module.RAM;
+import cpusim.util.IntelHexReaderException;
+import cpusim.util.MIFReaderException;
+import cpusim.util.SourceLine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class loads the contents of a RAM from a Memory Initialization File
+ * (MIF) or an Intel HEX file, the formats written by RAMExporter.  The file
+ * is read one line at a time through a buffer and each value is stored
+ * directly into an image of the RAM's cells, which is copied into the RAM
+ * with a single bulk load once the whole file has been read without errors.
+ * Errors are reported with the number of the line on which they were found,
+ * and the RAM is left unchanged when there is an error.
+ * <p>
+ * The image replaces the whole contents of the RAM, so cells that are not
+ * given a value by the file are cleared to 0.
+ */
+public class RAMImporter
+{
+    /** the number of chars buffered by the reader of the file */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * loads the contents of the given MIF file into the given RAM.  The WIDTH
+     * of the file must be the cell size of the RAM.  Values for addresses
+     * beyond the end of the RAM are ignored and counted.
+     *
+     * @param file the MIF file to be read
+     * @param ram the RAM to be loaded
+     * @return the number of cells in the file that did not fit into the RAM
+     * @throws IOException if the file could not be read
+     * @throws MIFReaderException if the file is not a valid MIF file for the RAM
+     */
+    public static int readMIF(File file, RAM ram) throws IOException {
+        try (BufferedReader reader = openForReading(file)) {
+            MIFScanner scanner = new MIFScanner(reader);
+            String pathName = file.getAbsolutePath();
+            int addressRadix = 2;
+            int dataRadix = 2;
+            int width = -1;
+
+            //search for the preliminary information
+            while (true) {
+                ArrayList<String> tokens = scanner.getNextTokens(false);
+                if (tokens == null) {
+                    throw new MIFReaderException("There is no content indicator");
+                }
+                int line = scanner.getLineNumber();
+
+                if (tokens.size() == 4) {
+                    if (!tokens.get(1).equals("=")) {
+                        throw new MIFReaderException("Equals sign missing or in " +
+                                "incorrect position on line " + line);
+                    }
+                    if (!tokens.get(3).equals(";")) {
+                        throw new MIFReaderException("Semicolon missing or in " +
+                                "incorrect position on line " + line);
+                    }
+                    String name = tokens.get(0).toLowerCase();
+                    if (name.equals("width")) {
+                        try {
+                            width = Integer.parseInt(tokens.get(2));
+                        } catch (NumberFormatException nfe) {
+                            throw new MIFReaderException("The value for width " +
+                                    "assigned on line " + line + " should be a " +
+                                    "valid integer");
+                        }
+                    }
+                    else if (name.equals("depth")) {
+                        try {
+                            Integer.parseInt(tokens.get(2));
+                        } catch (NumberFormatException nfe) {
+                            throw new MIFReaderException("The value for depth " +
+                                    "assigned on line " + line + " should be a " +
+                                    "valid integer");
+                        }
+                    }
+                    else if (name.equals("address_radix")) {
+                        addressRadix = radixOf(tokens.get(2), line);
+                    }
+                    else if (name.equals("data_radix")) {
+                        dataRadix = radixOf(tokens.get(2), line);
+                    }
+                }
+                else if (tokens.size() == 1 || tokens.size() == 2) {
+                    if (!tokens.get(0).equalsIgnoreCase("content")) {
+                        throw new MIFReaderException("Unknown indicator " +
+                                tokens.get(0) + " on line " + line);
+                    }
+                    if (tokens.size() == 2 && !tokens.get(1).equalsIgnoreCase("begin")) {
+                        throw new MIFReaderException("Unknown indicator " +
+                                tokens.get(1) + " on line " + line);
+                    }
+                    if (tokens.size() == 1) {
+                        findBegin(scanner);
+                    }
+                    break;
+                }
+                else if (tokens.size() != 0) {
+                    throw new MIFReaderException("Parse error on line " + line);
+                }
+            }
+
+            if (width != ram.getCellSize()) {
+                throw new MIFReaderException("The specified width does not match " +
+                        "the cell size of the ram and therefore the data from the " +
+                        "file cannot be loaded");
+            }
+
+            //parse the data
+            Image image = new Image(ram);
+            long[] data = new long[16];
+            while (true) {
+                ArrayList<String> tokens = scanner.getNextTokens(true);
+                if (tokens == null) {
+                    throw new MIFReaderException("There is no end indicator");
+                }
+                if (tokens.size() == 0) {
+                    continue;
+                }
+                int line = scanner.getLineNumber();
+
+                if (tokens.get(0).equalsIgnoreCase("end")) {
+                    if (tokens.size() < 2 || !tokens.get(1).equals(";")) {
+                        throw new MIFReaderException("Semicolon missing or in " +
+                                "incorrect position on line " + line);
+                    }
+                    break;
+                }
+
+                long startAddr;
+                long endAddr = -1;
+                int index;
+                if (tokens.size() > 1 && tokens.get(1).equals(":")) {
+                    startAddr = parseAddress(tokens.get(0), addressRadix, line);
+                    index = 2;
+                }
+                else if (tokens.get(0).equals("[")) {
+                    if (tokens.size() < 6 || !tokens.get(2).equals("..")) {
+                        throw new MIFReaderException("Parse error on line " + line);
+                    }
+                    if (!tokens.get(4).equals("]")) {
+                        throw new MIFReaderException("Closed bracket is missing or " +
+                                "misplaced on line " + line);
+                    }
+                    if (!tokens.get(5).equals(":")) {
+                        throw new MIFReaderException("Colon is missing or misplaced " +
+                                "on line " + line);
+                    }
+                    startAddr = parseAddress(tokens.get(1), addressRadix, line);
+                    endAddr = parseAddress(tokens.get(3), addressRadix, line);
+                    if (endAddr < startAddr) {
+                        throw new MIFReaderException("The range of addresses on " +
+                                "line " + line + " is empty");
+                    }
+                    index = 6;
+                }
+                else {
+                    throw new MIFReaderException("Parse error on line " + line);
+                }
+
+                //the values, up to the semicolon, and the comment after it
+                int numValues = 0;
+                while (index < tokens.size() && !tokens.get(index).equals(";")) {
+                    if (numValues == data.length) {
+                        data = Arrays.copyOf(data, 2 * data.length);
+                    }
+                    data[numValues++] = parseData(tokens.get(index), dataRadix, line);
+                    index++;
+                }
+                if (index == tokens.size()) {
+                    throw new MIFReaderException("Semicolon missing on line " + line);
+                }
+                if (numValues == 0) {
+                    throw new MIFReaderException("There is no data value on line " +
+                            line);
+                }
+                if (index < tokens.size() - 2) {
+                    throw new MIFReaderException("Parse error on line " + line);
+                }
+                String comment = (index == tokens.size() - 2 ?
+                        tokens.get(index + 1).trim() : "");
+
+                SourceLine sourceLine = new SourceLine(line, pathName);
+                if (endAddr == -1) {
+                    for (int k = 0; k < numValues; k++) {
+                        image.set(startAddr + k, data[k], comment, sourceLine);
+                    }
+                }
+                else {
+                    for (long addr = startAddr; addr <= endAddr; addr++) {
+                        if (addr >= image.values.length) {
+                            image.ignored += endAddr - addr + 1;
+                            break;
+                        }
+                        image.set(addr, data[(int) ((addr - startAddr) % numValues)],
+                                comment, sourceLine);
+                    }
+                }
+            }
+
+            image.loadInto(ram);
+            return (int) Math.min(image.ignored, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * loads the contents of the given Intel HEX file into the given RAM.
+     * Each data record holds the values of one or more consecutive cells,
+     * ceil(cellSize / 8) bytes per cell, big-endian, starting at the cell
+     * whose address is given by the record.  Extended segment and extended
+     * linear address records are honored and start address records are
+     * ignored.  Values for addresses beyond the end of the RAM are ignored
+     * and counted.
+     *
+     * @param file the Intel HEX file to be read
+     * @param ram the RAM to be loaded
+     * @return the number of cells in the file that did not fit into the RAM
+     * @throws IOException if the file could not be read
+     * @throws IntelHexReaderException if the file is not a valid Intel HEX file
+     *                                 for the RAM
+     */
+    public static int readIntelHex(File file, RAM ram) throws IOException {
+        try (BufferedReader reader = openForReading(file)) {
+            String pathName = file.getAbsolutePath();
+            int bytesPerCell = (ram.getCellSize() + 7) / 8;
+            Image image = new Image(ram);
+            int[] bytes = new int[5 + 255];
+            long baseAddress = 0;
+            int lineNumber = 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.charAt(0) != ':') {
+                    throw new IntelHexReaderException("Line " + lineNumber +
+                            " does not start with a colon as it should");
+                }
+                if (line.length() % 2 != 1) {
+                    throw new IntelHexReaderException("There is an even number of " +
+                            "characters on line " + lineNumber + ", which is not " +
+                            "allowed in Intel HEX format");
+                }
+                int numBytes = (line.length() - 1) / 2;
+                if (numBytes < 5 || numBytes > bytes.length) {
+                    throw new IntelHexReaderException("Line " + lineNumber +
+                            " does not have the length of a record");
+                }
+                int sum = 0;
+                for (int i = 0; i < numBytes; i++) {
+                    int high = Character.digit(line.charAt(2 * i + 1), 16);
+                    int low = Character.digit(line.charAt(2 * i + 2), 16);
+                    if (high < 0 || low < 0) {
+                        throw new IntelHexReaderException("Line " + lineNumber +
+                                " contains a character that is not a " +
+                                "hexadecimal digit");
+                    }
+                    bytes[i] = (high << 4) | low;
+                    sum += bytes[i];
+                }
+
+                int bytesOfData = bytes[0];
+                if (numBytes != 5 + bytesOfData) {
+                    throw new IntelHexReaderException("Line " + lineNumber +
+                            " specifies " + bytesOfData + " bytes of data but " +
+                            "contains " + (numBytes - 5) + " bytes of data.");
+                }
+                if ((sum & 255) != 0) {
+                    throw new IntelHexReaderException("Line " + lineNumber +
+                            " has an incorrect checksum value.");
+                }
+                int offset = (bytes[1] << 8) | bytes[2];
+                int recordType = bytes[3];
+
+                switch (recordType) {
+                    case 0: // data
+                        if (bytesOfData % bytesPerCell != 0) {
+                            throw new IntelHexReaderException("Line " + lineNumber +
+                                    " holds " + bytesOfData + " bytes of data, which" +
+                                    " is not a whole number of " + bytesPerCell +
+                                    "-byte cells.");
+                        }
+                        SourceLine sourceLine = new SourceLine(lineNumber, pathName);
+                        for (int c = 0; c < bytesOfData / bytesPerCell; c++) {
+                            long value = 0;
+                            for (int b = 0; b < bytesPerCell; b++) {
+                                value = (value << 8) | bytes[4 + c * bytesPerCell + b];
+                            }
+                            image.set(baseAddress + offset + c, value, null,
+                                    sourceLine);
+                        }
+                        break;
+                    case 1: // end of file
+                        image.loadInto(ram);
+                        return (int) Math.min(image.ignored, Integer.MAX_VALUE);
+                    case 2: // extended segment address
+                    case 4: // extended linear address
+                        if (bytesOfData != 2) {
+                            throw new IntelHexReaderException("Line " + lineNumber +
+                                    " is an extended address record but does not " +
+                                    "hold 2 bytes of data.");
+                        }
+                        baseAddress = (long) ((bytes[4] << 8) | bytes[5]) <<
+                                (recordType == 2 ? 4 : 16);
+                        break;
+                    case 3: // start segment address
+                    case 5: // start linear address
+                        break;
+                    default:
+                        throw new IntelHexReaderException("Line " + lineNumber +
+                                " has record type " + recordType + ", which CPU " +
+                                "Sim cannot read.");
+                }
+            }
+
+            // if we get here, there must not have been an end-of-file record
+            throw new IntelHexReaderException("The file is missing an end-of-file " +
+                    "record.");
+        }
+    }
+
+    private static BufferedReader openForReading(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * skips the empty lines after the CONTENT indicator of an MIF file up to
+     * the BEGIN indicator.
+     */
+    private static void findBegin(MIFScanner scanner) throws IOException {
+        while (true) {
+            ArrayList<String> tokens = scanner.getNextTokens(false);
+            if (tokens == null) {
+                throw new MIFReaderException("There is no begin indicator");
+            }
+            if (tokens.size() == 1 && tokens.get(0).equalsIgnoreCase("begin")) {
+                return;
+            }
+            if (tokens.size() != 0) {
+                throw new MIFReaderException("The begin indicator is missing on " +
+                        "line " + scanner.getLineNumber());
+            }
+        }
+    }
+
+    /**
+     * returns the radix named by the given value of ADDRESS_RADIX or
+     * DATA_RADIX in an MIF file.
+     */
+    private static int radixOf(String name, int line) {
+        switch (name.toLowerCase()) {
+            case "hex":
+            case "hexadecimal":
+                return 16;
+            case "dec":
+            case "decimal":
+            case "uns":
+            case "unsigned":
+                return 10;
+            case "oct":
+            case "octal":
+                return 8;
+            case "bin":
+            case "binary":
+                return 2;
+            default:
+                throw new MIFReaderException("unknown radix '" + name +
+                        "' found on line " + line);
+        }
+    }
+
+    private static long parseAddress(String token, int radix, int line) {
+        try {
+            long address = Long.parseLong(token, radix);
+            if (address >= 0) {
+                return address;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new MIFReaderException("Invalid address value " + token +
+                " on line " + line);
+    }
+
+    /**
+     * parses a data value of an MIF file.  Decimal values may be negative and
+     * the other radixes may give all 64 bits of the value.
+     */
+    private static long parseData(String token, int radix, int line) {
+        try {
+            return (radix == 10 ? Long.parseLong(token) :
+                    Long.parseUnsignedLong(token, radix));
+        } catch (NumberFormatException e) {
+            throw new MIFReaderException("Invalid data value " + token +
+                    " on line " + line);
+        }
+    }
+
+    /**
+     * the values, comments and source lines of all the cells of a RAM, as
+     * they are read from a file
+     */
+    private static class Image
+    {
+        final long[] values;
+        final String[] comments;
+        final SourceLine[] sourceLines;
+        /** the number of cells whose address was beyond the end of the RAM */
+        long ignored = 0;
+
+        Image(RAM ram) {
+            values = new long[ram.getLength()];
+            comments = new String[ram.getLength()];
+            sourceLines = new SourceLine[ram.getLength()];
+        }
+
+        void set(long address, long value, String comment, SourceLine sourceLine) {
+            if (address >= values.length) {
+                ignored++;
+                return;
+            }
+            int i = (int) address;
+            values[i] = value;
+            comments[i] = comment;
+            sourceLines[i] = sourceLine;
+        }
+
+        void loadInto(RAM ram) {
+            ram.loadImage(0, values, comments, sourceLines);
+        }
+    }
+}
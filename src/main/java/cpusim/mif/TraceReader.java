@@ -0,0 +1,459 @@
+/*
+ * File: TraceReader.java
+ * Project: CPU Sim
+ */
+
+package cpusim.mif;
+
+import cpusim.model.Machine;
+import cpusim.model.module.RAM;
+import cpusim.model.module.RAMLocation;
+import cpusim.model.module.Register;
+import cpusim.util.TraceFileException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class reads an execution trace written by a TraceRecorder.  It can
+ * dump the trace as text, one line per machine cycle, or replay it into the
+ * machine it was recorded from, setting the registers and RAMs to their
+ * values after any number of cycles.  The file is memory-mapped and scanned
+ * once when it is opened to find its keyframes, so that a replay only reads
+ * the records from the nearest keyframe on.  A trace that ends without an
+ * END record is read up to its last complete record.
+ */
+public class TraceReader
+{
+    private final File file;
+    private final ByteBuffer buf;
+
+    private final String machineName;
+    private final String[] registerNames;
+    private final String[] ramNames;
+    private final int[] ramLengths;
+    private final String[] instructionNames;
+
+    /** the position of the first record */
+    private final int recordsStart;
+    /** the position just past the last complete record */
+    private final int recordsEnd;
+    /** the number of cycle records */
+    private final long numCycles;
+    /** the cycle numbers and positions of the keyframes, in order */
+    private long[] keyframeCycles;
+    private int[] keyframePositions;
+    private int numKeyframes;
+
+    /**
+     * opens the given trace file, reads its header and finds its keyframes
+     *
+     * @param file the trace file to be read
+     * @throws IOException if the file could not be read
+     * @throws TraceFileException if the file is not a valid trace file
+     */
+    public TraceReader(File file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buf.getInt() != TraceRecorder.MAGIC) {
+                throw new TraceFileException("The file " + file.getName() +
+                        " is not a CPU Sim trace file.");
+            }
+            short version = buf.getShort();
+            if (version != TraceRecorder.VERSION) {
+                throw new TraceFileException("The trace file " + file.getName() +
+                        " has version " + version + ", which this version of " +
+                        "CPU Sim cannot read.");
+            }
+            machineName = readString();
+            registerNames = new String[checkLength(buf.getInt(), 4)];
+            for (int i = 0; i < registerNames.length; i++) {
+                registerNames[i] = readString();
+            }
+            // each RAM has its name and its length
+            int numRAMs = checkLength(buf.getInt(), 8);
+            ramNames = new String[numRAMs];
+            ramLengths = new int[numRAMs];
+            for (int i = 0; i < numRAMs; i++) {
+                ramNames[i] = readString();
+                ramLengths[i] = buf.getInt();
+            }
+            instructionNames = new String[checkLength(buf.getInt(), 4)];
+            for (int i = 0; i < instructionNames.length; i++) {
+                instructionNames[i] = readString();
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new TraceFileException("The trace file " + file.getName() +
+                    " is truncated or corrupt.");
+        }
+        recordsStart = buf.position();
+
+        // scan the records, skipping their contents
+        keyframeCycles = new long[16];
+        keyframePositions = new int[16];
+        long cycles = 0;
+        int end = recordsStart;
+        try {
+            scan:
+            while (buf.hasRemaining()) {
+                int start = buf.position();
+                switch (buf.get()) {
+                    case TraceRecorder.END:
+                        break scan;
+                    case TraceRecorder.CYCLE:
+                        skipCycle();
+                        cycles++;
+                        break;
+                    case TraceRecorder.KEYFRAME:
+                        long cycle = readVarint();
+                        skipKeyframe(buf);
+                        addKeyframe(cycle, start);
+                        break;
+                    default:
+                        throw corrupt();
+                }
+                end = buf.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // the recorder did not finish the last record
+        }
+        recordsEnd = end;
+        numCycles = cycles;
+        if (numKeyframes == 0 || keyframeCycles[0] != 0) {
+            throw new TraceFileException("The trace file " + file.getName() +
+                    " is truncated or corrupt.");
+        }
+    }
+
+    private void addKeyframe(long cycle, int position) {
+        if (numKeyframes == keyframeCycles.length) {
+            keyframeCycles = Arrays.copyOf(keyframeCycles, 2 * numKeyframes);
+            keyframePositions = Arrays.copyOf(keyframePositions, 2 * numKeyframes);
+        }
+        keyframeCycles[numKeyframes] = cycle;
+        keyframePositions[numKeyframes] = position;
+        numKeyframes++;
+    }
+
+    private void skipCycle() {
+        readSigned();
+        readVarint();
+        long numRegisterChanges = readVarint();
+        for (long i = 0; i < numRegisterChanges; i++) {
+            readVarint();
+            readSigned();
+        }
+        long numCellChanges = readVarint();
+        for (long i = 0; i < numCellChanges; i++) {
+            readVarint();
+            readVarint();
+            readSigned();
+        }
+    }
+
+    /**
+     * returns the name of the machine whose execution was recorded
+     *
+     * @return the name of the machine
+     */
+    public String getMachineName() {
+        return machineName;
+    }
+
+    /**
+     * returns the number of machine cycles recorded
+     *
+     * @return the number of cycles in the trace
+     */
+    public long getNumCycles() {
+        return numCycles;
+    }
+
+    /**
+     * writes the trace as text: the registers and RAMs of the machine, then
+     * one line for each cycle with its number, the program counter at its
+     * start, the instruction decoded and the new values of the registers and
+     * RAM cells it changed.  Each keyframe is shown as a line listing the
+     * values of all the registers.
+     *
+     * @param out the writer to which the text is written
+     * @throws TraceFileException if the trace is corrupt
+     */
+    public void dump(PrintWriter out) {
+        out.println("Trace of machine " + machineName + ", " + numCycles + " cycles");
+        out.println("Registers: " + String.join(", ", registerNames));
+        StringBuilder rams = new StringBuilder();
+        for (int i = 0; i < ramNames.length; i++) {
+            rams.append(i == 0 ? "" : ", ").append(ramNames[i])
+                .append("[").append(ramLengths[i]).append("]");
+        }
+        out.println("RAMs: " + rams);
+        out.println();
+
+        ByteBuffer records = recordsBuffer(recordsStart);
+        StringBuilder line = new StringBuilder();
+        long cycle = 0;
+        long pc = 0;
+        while (records.position() < recordsEnd) {
+            line.setLength(0);
+            byte tag = records.get();
+            if (tag == TraceRecorder.KEYFRAME) {
+                line.append("keyframe at cycle ").append(readVarint(records)).append(":");
+                for (String registerName : registerNames) {
+                    line.append(" ").append(registerName).append("=")
+                        .append(readSigned(records));
+                }
+                for (String ramName : ramNames) {
+                    long numCells = readVarint(records);
+                    for (long j = 0; j < numCells; j++) {
+                        readVarint(records);
+                        readSigned(records);
+                    }
+                    line.append(" ").append(ramName).append(":").append(numCells)
+                        .append(" nonzero cells");
+                }
+                pc = 0;
+            }
+            else if (tag == TraceRecorder.CYCLE) {
+                pc += readSigned(records);
+                int instruction = (int) readVarint(records) - 1;
+                line.append("cycle ").append(cycle).append(" pc=").append(pc)
+                    .append(" ").append(instruction < 0 ? "-" :
+                            instructionName(instruction));
+                long numRegisterChanges = readVarint(records);
+                for (long i = 0; i < numRegisterChanges; i++) {
+                    line.append(" ").append(registerName(readVarint(records)))
+                        .append("=").append(readSigned(records));
+                }
+                long numCellChanges = readVarint(records);
+                for (long i = 0; i < numCellChanges; i++) {
+                    int ram = ramIndex(readVarint(records));
+                    long address = readVarint(records);
+                    line.append(" ").append(ramNames[ram]).append("[").append(address)
+                        .append("]=").append(readSigned(records));
+                }
+                cycle++;
+            }
+            else {
+                break;
+            }
+            out.println(line);
+        }
+        out.flush();
+    }
+
+    /**
+     * sets the registers and RAMs of the given machine to their values after
+     * the given number of cycles of the recorded execution, and resets its
+     * control unit to the start of the fetch sequence.
+     *
+     * @param machine the machine whose execution was recorded
+     * @param cycle the number of cycles to be replayed, from 0 to
+     *              getNumCycles()
+     * @throws TraceFileException if the registers or RAMs of the machine
+     *                            do not match those recorded, or if the
+     *                            trace is corrupt
+     */
+    public void replay(Machine machine, long cycle) {
+        if (cycle < 0 || cycle > numCycles) {
+            throw new IllegalArgumentException("Cycle " + cycle + " is not in the " +
+                    "trace, which has " + numCycles + " cycles.");
+        }
+        Register[] registers = machine.getAllRegisters().toArray(new Register[0]);
+        RAM[] rams = machine.getAllRAMs().toArray(new RAM[0]);
+        checkMachine(registers, rams);
+
+        // find the last keyframe at or before the cycle
+        int k = Arrays.binarySearch(keyframeCycles, 0, numKeyframes, cycle);
+        if (k < 0) {
+            k = -k - 2;
+        }
+        ByteBuffer records = recordsBuffer(keyframePositions[k]);
+        records.get();  // the KEYFRAME tag
+        long current = readVarint(records);
+        for (Register register : registers) {
+            register.setValue(readSigned(records));
+        }
+        for (RAM ram : rams) {
+            List<RAMLocation> cells = ram.data();
+            long[] values = new long[cells.size()];
+            long numCells = readVarint(records);
+            int address = 0;
+            for (long j = 0; j < numCells; j++) {
+                address += (int) readVarint(records);
+                values[checkAddress(address, values.length)] = readSigned(records);
+            }
+            for (int a = 0; a < values.length; a++) {
+                cells.get(a).setValue(values[a]);
+            }
+        }
+
+        while (current < cycle) {
+            byte tag = records.get();
+            if (tag == TraceRecorder.KEYFRAME) {
+                readVarint(records);
+                skipKeyframe(records);
+                continue;
+            }
+            if (tag != TraceRecorder.CYCLE) {
+                throw corrupt();
+            }
+            readSigned(records);
+            readVarint(records);
+            long numRegisterChanges = readVarint(records);
+            for (long i = 0; i < numRegisterChanges; i++) {
+                int index = registerIndex(readVarint(records));
+                registers[index].setValue(readSigned(records));
+            }
+            long numCellChanges = readVarint(records);
+            for (long i = 0; i < numCellChanges; i++) {
+                int ram = ramIndex(readVarint(records));
+                List<RAMLocation> cells = rams[ram].data();
+                int address = checkAddress(readVarint(records), cells.size());
+                cells.get(address).setValue(readSigned(records));
+            }
+            current++;
+        }
+        machine.getControlUnit().reset();
+    }
+
+    /**
+     * checks that the given registers and RAMs have the names and lengths
+     * of those recorded
+     */
+    private void checkMachine(Register[] registers, RAM[] rams) {
+        boolean matches = registers.length == registerNames.length &&
+                rams.length == ramNames.length;
+        for (int i = 0; matches && i < registers.length; i++) {
+            matches = registers[i].getName().equals(registerNames[i]);
+        }
+        for (int i = 0; matches && i < rams.length; i++) {
+            matches = rams[i].getName().equals(ramNames[i]) &&
+                    rams[i].getLength() == ramLengths[i];
+        }
+        if (!matches) {
+            throw new TraceFileException("The trace file " + file.getName() +
+                    " was not recorded from this machine, since its registers " +
+                    "and RAMs are different.");
+        }
+    }
+
+    private void skipKeyframe(ByteBuffer records) {
+        for (int i = 0; i < registerNames.length; i++) {
+            readSigned(records);
+        }
+        for (int i = 0; i < ramNames.length; i++) {
+            long numCells = readVarint(records);
+            for (long j = 0; j < numCells; j++) {
+                readVarint(records);
+                readSigned(records);
+            }
+        }
+    }
+
+    /**
+     * returns a view of the mapped file from the given position to the end
+     * of the last complete record
+     */
+    private ByteBuffer recordsBuffer(int position) {
+        ByteBuffer records = buf.duplicate();
+        records.limit(recordsEnd);
+        records.position(position);
+        return records;
+    }
+
+    private String instructionName(int index) {
+        if (index >= instructionNames.length) {
+            throw corrupt();
+        }
+        return instructionNames[index];
+    }
+
+    private String registerName(long index) {
+        return registerNames[registerIndex(index)];
+    }
+
+    private int registerIndex(long index) {
+        if (index < 0 || index >= registerNames.length) {
+            throw corrupt();
+        }
+        return (int) index;
+    }
+
+    private int ramIndex(long index) {
+        if (index < 0 || index >= ramNames.length) {
+            throw corrupt();
+        }
+        return (int) index;
+    }
+
+    private int checkAddress(long address, int length) {
+        if (address < 0 || address >= length) {
+            throw corrupt();
+        }
+        return (int) address;
+    }
+
+    private TraceFileException corrupt() {
+        return new TraceFileException("The trace file " + file.getName() +
+                " is corrupt.");
+    }
+
+    //-------------------------------
+    // reading from the mapped file
+
+    private String readString() {
+        byte[] bytes = new byte[checkLength(buf.getInt(), 1)];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // checks that the given number of items, each taking at least the given
+    // number of bytes, is not negative and fits in the rest of the file, so
+    // that a corrupt length cannot make the reader allocate a huge array
+    private int checkLength(int length, int bytesEach) {
+        if (length < 0 || (long) length * bytesEach > buf.remaining()) {
+            throw new TraceFileException("The trace file " + file.getName() +
+                    " is truncated or corrupt.");
+        }
+        return length;
+    }
+
+    private long readVarint() {
+        return readVarint(buf);
+    }
+
+    private long readSigned() {
+        return readSigned(buf);
+    }
+
+    private static long readVarint(ByteBuffer buf) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buf.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 64);
+        return value;
+    }
+
+    private static long readSigned(ByteBuffer buf) {
+        long value = readVarint(buf);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ * File: TraceRecorder.java
+ * Project: CPU Sim
+ */
+
+package cpusim.mif;
+
+import cpusim.model.Machine;
+import cpusim.model.MachineInstruction;
+import cpusim.model.TraceListener;
+import cpusim.model.module.RAM;
+import cpusim.model.module.RAMLocation;
+import cpusim.model.module.Register;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ObservableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * This class records the execution of a machine in a compact binary trace
+ * file, which a TraceReader can dump as text or replay into the machine.
+ * For each machine cycle it records the program counter at the start of the
+ * cycle, the machine instruction decoded in the cycle and the new values of
+ * the registers and RAM cells the cycle changed.  Every KEYFRAME_INTERVAL
+ * cycles it also records the values of all the registers and the nonzero
+ * cells of all the RAMs, so that a reader can reach any cycle by starting
+ * from the nearest keyframe.
+ * <p>
+ * The registers are not compared after each cycle.  Instead, each register
+ * marks itself dirty through an InvalidationListener when its value
+ * changes, and each RAM reports the cells it is about to change through
+ * its data property, so the cost of recording a cycle depends only on the
+ * number of changes in it.
+ * <p>
+ * A keyframe holds the state at the start of the cycle whose number it
+ * records, and a cycle record holds the changes made by the cycle, so the
+ * state after n cycles is that of the last keyframe numbered n or less,
+ * updated by the cycle records between it and the n-th cycle record.
+ * <p>
+ * The header uses fixed-size big-endian values and the records use varints
+ * (7 bits per byte, low-order group first), with signed values zigzag
+ * encoded.  The layout (version 1) is:
+ * <pre>
+ *   int    magic number "CPST"
+ *   short  version
+ *   string machine name
+ *   int    number of registers, followed by each name as a string
+ *   int    number of RAMs, followed by each name as a string and its length
+ *          as an int
+ *   int    number of machine instructions, followed by each name as a string
+ *   records, each starting with a tag byte:
+ *     KEYFRAME:  varint cycle number, signed value of each register, and
+ *                for each RAM, varint number of nonzero cells followed by
+ *                (varint gap from the previous address, signed value) pairs
+ *     CYCLE:     signed change of the program counter at the start of the
+ *                cycle since the previous cycle (or since 0 after a
+ *                keyframe), varint instruction index + 1 (0 if none was
+ *                decoded), varint number of register changes followed by
+ *                (varint register index, signed value) pairs, varint number
+ *                of RAM changes followed by (varint RAM index, varint
+ *                address, signed value) triples
+ *     END
+ * </pre>
+ * where a string is an int byte count followed by the UTF-8 bytes.  A trace
+ * that was not closed, for example because the simulator was killed, can
+ * still be read up to its last complete record.
+ */
+public class TraceRecorder implements TraceListener
+{
+    /** the bytes "CPST", used to recognize trace files */
+    static final int MAGIC = 0x43505354;
+    /** the current version of the format */
+    static final short VERSION = 1;
+    /** the tags of the records */
+    static final byte END = 0;
+    static final byte CYCLE = 1;
+    static final byte KEYFRAME = 2;
+    /** the number of cycles between keyframes */
+    static final int KEYFRAME_INTERVAL = 1 << 16;
+
+    /** the size of the buffer in which records are collected before being
+     * written, and the room kept free for one varint */
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_VARINT_SIZE = 10;
+
+    private final Machine machine;
+    private final MachineInstruction fetchSequence;
+    private final Register programCounter;
+    private final Register[] registers;
+    private final RAM[] rams;
+    private final IdentityHashMap<MachineInstruction, Integer> instructionIndices;
+    private final FileChannel channel;
+
+    /** the records not yet written to the file */
+    private final byte[] buffer;
+    private int position;
+
+    /** the values of the registers last recorded */
+    private final long[] registerValues;
+    /** the indices of the registers changed in the current cycle */
+    private int[] dirtyRegisters;
+    private int numDirtyRegisters;
+    private final boolean[] isDirty;
+    /** the RAM indices and addresses of the cells changed in the current
+     * cycle, in pairs */
+    private int[] dirtyCells;
+    private int numDirtyCells;
+
+    private final InvalidationListener[] registerListeners;
+    private final List<ChangeListener<ObservableList<RAMLocation>>> ramListeners;
+
+    /** true if a cycle has started and not yet been recorded */
+    private boolean inCycle;
+    /** the number of cycles recorded */
+    private long numCycles;
+    private long cyclePC;
+    private long previousPC;
+    private MachineInstruction lastInstruction;
+    private int instructionIndex;
+    /** the first error writing the file, or null if there was none */
+    private IOException error;
+
+    /**
+     * creates a recorder of the execution of the given machine, writes the
+     * header and the first keyframe to the given file, and starts listening
+     * for changes to the registers and RAMs
+     *
+     * @param machine the machine whose execution is to be recorded
+     * @param file the trace file to be written
+     * @throws IOException if the file could not be written
+     */
+    public TraceRecorder(Machine machine, File file) throws IOException {
+        this.machine = machine;
+        this.fetchSequence = machine.getFetchSequence();
+        this.programCounter = machine.getProgramCounter();
+        this.registers = machine.getAllRegisters().toArray(new Register[0]);
+        this.rams = machine.getAllRAMs().toArray(new RAM[0]);
+        List<MachineInstruction> instructions = machine.getInstructions();
+        this.instructionIndices = new IdentityHashMap<>();
+        for (int i = 0; i < instructions.size(); i++) {
+            instructionIndices.put(instructions.get(i), i);
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer = new byte[BUFFER_SIZE];
+        this.position = 0;
+
+        this.registerValues = new long[registers.length];
+        this.dirtyRegisters = new int[16];
+        this.isDirty = new boolean[registers.length];
+        this.dirtyCells = new int[16];
+        this.registerListeners = new InvalidationListener[registers.length];
+        this.ramListeners = new ArrayList<>(rams.length);
+
+        writeHeader(instructions);
+        writeKeyframe();
+        for (int i = 0; i < registers.length; i++) {
+            final int index = i;
+            registerListeners[i] = observable -> markRegister(index);
+            registers[i].valueProperty().addListener(registerListeners[i]);
+        }
+        for (int i = 0; i < rams.length; i++) {
+            final int index = i;
+            ChangeListener<ObservableList<RAMLocation>> listener =
+                    (observable, oldCells, newCells) -> {
+                        if (newCells != null) {
+                            for (RAMLocation cell : newCells) {
+                                markCell(index, (int) cell.getAddress());
+                            }
+                        }
+                    };
+            ramListeners.add(listener);
+            rams[i].dataProperty().addListener(listener);
+        }
+    }
+
+    /**
+     * writes the header of the file
+     */
+    private void writeHeader(List<MachineInstruction> instructions) throws IOException {
+        writeInt(MAGIC);
+        writeShort(VERSION);
+        writeString(machine.getName());
+        writeInt(registers.length);
+        for (Register register : registers) {
+            writeString(register.getName());
+        }
+        writeInt(rams.length);
+        for (RAM ram : rams) {
+            writeString(ram.getName());
+            writeInt(ram.getLength());
+        }
+        writeInt(instructions.size());
+        for (MachineInstruction instruction : instructions) {
+            writeString(instruction.getName());
+        }
+    }
+
+    /**
+     * records the values of all registers and the nonzero cells of all RAMs
+     */
+    private void writeKeyframe() throws IOException {
+        writeByte(KEYFRAME);
+        // the next cycle records its program counter in full
+        previousPC = 0;
+        writeVarint(numCycles);
+        for (int i = 0; i < registers.length; i++) {
+            registerValues[i] = registers[i].getValue();
+            writeSigned(registerValues[i]);
+        }
+        for (RAM ram : rams) {
+            List<RAMLocation> cells = ram.data();
+            int numNonzero = 0;
+            for (RAMLocation cell : cells) {
+                if (cell.getValue() != 0) {
+                    numNonzero++;
+                }
+            }
+            writeVarint(numNonzero);
+            int previousAddress = 0;
+            for (int address = 0; address < cells.size(); address++) {
+                long value = cells.get(address).getValue();
+                if (value != 0) {
+                    writeVarint(address - previousAddress);
+                    writeSigned(value);
+                    previousAddress = address;
+                }
+            }
+        }
+    }
+
+    /**
+     * notes the micro about to be executed, ending the current cycle and
+     * starting a new one if it is the first micro of the fetch sequence.
+     * The machine calls it before executing each micro.
+     *
+     * @param instruction the machine instruction being executed
+     * @param microIndex the position of the micro in the instruction
+     */
+    @Override
+    public void beforeMicro(MachineInstruction instruction, int microIndex) {
+        if (microIndex == 0 && instruction == fetchSequence) {
+            if (inCycle) {
+                endCycle();
+            }
+            startCycle();
+        }
+        else if (!inCycle) {
+            startCycle();
+        }
+        if (instruction != lastInstruction) {
+            lastInstruction = instruction;
+            if (instruction != fetchSequence) {
+                Integer index = instructionIndices.get(instruction);
+                instructionIndex = (index == null ? -1 : index);
+            }
+        }
+    }
+
+    /**
+     * writes all the records so far to the file.  The machine calls it when
+     * it stops executing.  The current cycle, if any, is left open, since
+     * the machine may have stopped in the middle of it, and is recorded
+     * when the next one starts or the recorder is closed.
+     */
+    @Override
+    public void executionStopped() {
+        try {
+            flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void startCycle() {
+        inCycle = true;
+        cyclePC = (programCounter == null ? 0 : programCounter.getValue());
+        instructionIndex = -1;
+        lastInstruction = null;
+    }
+
+    /**
+     * writes the record of the cycle that just ended
+     */
+    private void endCycle() {
+        inCycle = false;
+        if (error != null) {
+            numDirtyRegisters = 0;
+            numDirtyCells = 0;
+            return;
+        }
+        try {
+            writeCycle();
+            numCycles++;
+            if (numCycles % KEYFRAME_INTERVAL == 0) {
+                writeKeyframe();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * writes the record of a cycle.  The dirty registers whose values are
+     * back to what was last recorded are left out.
+     */
+    private void writeCycle() throws IOException {
+        writeByte(CYCLE);
+        writeSigned(cyclePC - previousPC);
+        previousPC = cyclePC;
+        writeVarint(instructionIndex + 1);
+
+        int numChanged = 0;
+        for (int i = 0; i < numDirtyRegisters; i++) {
+            int index = dirtyRegisters[i];
+            isDirty[index] = false;
+            // reading the value also lets the register report its next change
+            long value = registers[index].getValue();
+            if (value != registerValues[index]) {
+                registerValues[index] = value;
+                dirtyRegisters[numChanged++] = index;
+            }
+        }
+        writeVarint(numChanged);
+        for (int i = 0; i < numChanged; i++) {
+            writeVarint(dirtyRegisters[i]);
+            writeSigned(registerValues[dirtyRegisters[i]]);
+        }
+        numDirtyRegisters = 0;
+
+        writeVarint(numDirtyCells / 2);
+        for (int i = 0; i < numDirtyCells; i += 2) {
+            RAM ram = rams[dirtyCells[i]];
+            int address = dirtyCells[i + 1];
+            writeVarint(dirtyCells[i]);
+            writeVarint(address);
+            writeSigned(ram.data().get(address).getValue());
+        }
+        numDirtyCells = 0;
+    }
+
+    private void markRegister(int index) {
+        if (!isDirty[index]) {
+            isDirty[index] = true;
+            if (numDirtyRegisters == dirtyRegisters.length) {
+                dirtyRegisters = Arrays.copyOf(dirtyRegisters, 2 * numDirtyRegisters);
+            }
+            dirtyRegisters[numDirtyRegisters++] = index;
+        }
+    }
+
+    private void markCell(int ramIndex, int address) {
+        if (numDirtyCells + 2 > dirtyCells.length) {
+            dirtyCells = Arrays.copyOf(dirtyCells, 2 * dirtyCells.length);
+        }
+        dirtyCells[numDirtyCells++] = ramIndex;
+        dirtyCells[numDirtyCells++] = address;
+    }
+
+    /**
+     * returns the number of cycles recorded so far
+     *
+     * @return the number of cycles recorded
+     */
+    public long getNumCycles() {
+        return numCycles;
+    }
+
+    /**
+     * stops listening to the machine, records the current cycle, if any,
+     * and closes the file
+     *
+     * @throws IOException if the file could not be written, now or while
+     *                     the machine was executing
+     */
+    public void close() throws IOException {
+        for (int i = 0; i < registers.length; i++) {
+            registers[i].valueProperty().removeListener(registerListeners[i]);
+        }
+        for (int i = 0; i < rams.length; i++) {
+            rams[i].dataProperty().removeListener(ramListeners.get(i));
+        }
+        try {
+            if (inCycle) {
+                endCycle();
+            }
+            if (error == null) {
+                writeByte(END);
+                flush();
+            }
+        } finally {
+            channel.close();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * remembers the first error and stops recording, since the execution
+     * of the machine cannot be interrupted by it
+     */
+    private void fail(IOException e) {
+        if (error == null) {
+            error = e;
+        }
+        position = 0;
+    }
+
+    //-------------------------------
+    // writing to the buffer
+
+    private void flush() throws IOException {
+        if (error != null) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, position);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        position = 0;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == BUFFER_SIZE) {
+            flush();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        if (position > BUFFER_SIZE - MAX_VARINT_SIZE) {
+            flush();
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeSigned(long value) throws IOException {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeShort(int value) throws IOException {
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeShort(value >>> 16);
+        writeShort(value);
+    }
+
+    private void writeString(String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        for (byte b : bytes) {
+            writeByte(b);
+        }
+    }
+}
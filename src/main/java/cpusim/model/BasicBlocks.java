@@ -0,0 +1,113 @@
+/**
+ * File: BasicBlocks
+ * Project: CPU Sim
+ */
+package cpusim.model;
+
+import cpusim.model.microinstruction.Branch;
+import cpusim.model.microinstruction.Decode;
+import cpusim.model.microinstruction.End;
+import cpusim.model.microinstruction.Test;
+import cpusim.model.module.ConditionBit;
+import cpusim.model.module.Register;
+import cpusim.model.module.RegisterArray;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The straight-line runs of micros of a machine instruction, used by the
+ * machine to execute a whole run at a time in command line mode.
+ * <p>
+ * A run ends just after a micro that can change the flow of control,
+ * that is, a Branch, Test, Decode or End micro, or that can set a halt bit,
+ * that is, a micro that uses a halt bit, the register of a halt bit, or a
+ * register array containing such a register.  None of the other micros of
+ * a run can change which micro comes next or stop the machine, so the
+ * machine can execute a run without looking up the current instruction
+ * and micro and checking the halt bits before each micro, and it checks
+ * them only once at the end of the run.  Executing a run still executes
+ * exactly the same micros in the same order as executing them one at a
+ * time.
+ */
+class BasicBlocks {
+    /** the micros of the instruction */
+    final Microinstruction[] micros;
+    /**
+     * for each index, the index just after the end of the run starting
+     * there
+     */
+    final int[] runEnd;
+
+    /**
+     * finds the runs of the given instruction
+     *
+     * @param instruction the instruction whose micros are split into runs
+     * @param haltModules the modules whose use can set a halt bit, as
+     *                    returned by haltModules
+     */
+    BasicBlocks(MachineInstruction instruction, Set<Module> haltModules) {
+        List<Microinstruction> microList = instruction.getMicros();
+        micros = microList.toArray(new Microinstruction[microList.size()]);
+        runEnd = new int[micros.length];
+        int end = micros.length;
+        for (int i = micros.length - 1; i >= 0; i--) {
+            if (endsRun(micros[i], haltModules)) {
+                end = i + 1;
+            }
+            runEnd[i] = end;
+        }
+    }
+
+    /**
+     * returns the modules whose use by a micro can set one of the given
+     * halt bits:  the bits, their registers and the register arrays
+     * containing those registers
+     *
+     * @param haltBits the halt bits of the machine
+     * @param registerArrays the register arrays of the machine
+     * @return the set of modules, compared by identity
+     */
+    static Set<Module> haltModules(List<ConditionBit> haltBits,
+                                   List<RegisterArray> registerArrays) {
+        Set<Module> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ConditionBit bit : haltBits) {
+            result.add(bit);
+            if (bit.getRegister() != null) {
+                result.add(bit.getRegister());
+            }
+        }
+        for (RegisterArray array : registerArrays) {
+            for (Register register : array.registers()) {
+                if (result.contains(register)) {
+                    result.add(array);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * returns true if the given micro has to be the last of its run
+     */
+    private static boolean endsRun(Microinstruction micro, Set<Module> haltModules) {
+        if (micro instanceof Branch || micro instanceof Test ||
+                micro instanceof Decode || micro instanceof End) {
+            return true;
+        }
+        for (Module module : micro.getModulesUsed()) {
+            if (haltModules.contains(module)) {
+                return true;
+            }
+            // a bit that is not itself a halt bit can share a register with one
+            if (module instanceof ConditionBit &&
+                    haltModules.contains(((ConditionBit) module).getRegister())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
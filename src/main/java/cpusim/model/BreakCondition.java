@@ -0,0 +1,395 @@
+/**
+ * File: BreakCondition
+ * Project: CPU Sim
+ */
+package cpusim.model;
+
+import cpusim.model.module.ConditionBit;
+import cpusim.model.module.RAM;
+import cpusim.model.module.Register;
+import cpusim.model.module.RegisterArray;
+import cpusim.util.ValidationException;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * The condition of a conditional breakpoint, such as
+ * <pre>    acc == 0 &amp;&amp; Main[sp] &gt; 10</pre>
+ * A breakpoint with a condition stops execution at its address only if the
+ * condition holds, that is, if its value is not 0.
+ * <p>
+ * A condition is an expression over the registers, register arrays,
+ * condition bits and RAMs of a machine, using the operators of Java with
+ * their usual precedence:  || &amp;&amp; | ^ &amp; == != &lt; &lt;= &gt; &gt;= + - * / %
+ * and the unary - and !.  Comparisons and the logical operators have the
+ * value 1 for true and 0 for false.  A register or condition bit is named
+ * by itself, and an element of a register array or a cell of a RAM by the
+ * name of the array or RAM followed by an index expression in brackets.
+ * Numbers can be written in decimal, in hexadecimal with the prefix 0x or
+ * in binary with the prefix 0b.  Names may contain letters, digits and the
+ * characters _ $ and ., and also - when the name with the - is that of a
+ * module of the machine.
+ * <p>
+ * The text is parsed once, into a tree of LongSuppliers that refer directly
+ * to the modules named, so evaluating the condition involves no lookups.
+ * An index out of range and a division by 0 give the value 0, so that
+ * evaluating a condition never stops the machine with an error.
+ */
+public class BreakCondition {
+    /** the text of the condition */
+    private final String text;
+    /** the compiled condition */
+    private final LongSupplier evaluator;
+
+    private BreakCondition(String text, LongSupplier evaluator) {
+        this.text = text;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * parses the given text into a condition over the modules of the
+     * given machine
+     *
+     * @param text the text of the condition
+     * @param machine the machine whose modules the condition refers to
+     * @return the compiled condition
+     * @throws ValidationException if the text is not a valid condition for
+     *                             the machine
+     */
+    public static BreakCondition compile(String text, Machine machine) {
+        Parser parser = new Parser(text, machine);
+        LongSupplier evaluator = parser.parseExpression(1);
+        parser.skipSpaces();
+        if (parser.pos < text.length()) {
+            throw parser.error("Unexpected \"" + text.charAt(parser.pos) + "\"");
+        }
+        return new BreakCondition(text.trim(), evaluator);
+    }
+
+    /**
+     * returns true if the condition holds for the current state of the
+     * machine
+     *
+     * @return true if the value of the condition is not 0
+     */
+    public boolean holds() {
+        return evaluator.getAsLong() != 0;
+    }
+
+    /**
+     * returns the value of the condition for the current state of the
+     * machine
+     *
+     * @return the value of the condition
+     */
+    public long evaluate() {
+        return evaluator.getAsLong();
+    }
+
+    /**
+     * returns the text of the condition
+     *
+     * @return the text from which the condition was compiled
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * A precedence-climbing parser producing the evaluator tree directly.
+     */
+    private static class Parser {
+        /** the binary operators, from lowest to highest precedence */
+        private static final String[][] OPERATORS = {
+                {"||"}, {"&&"}, {"|"}, {"^"}, {"&"},
+                {"==", "!="}, {"<=", ">=", "<", ">"},
+                {"+", "-"}, {"*", "/", "%"}
+        };
+
+        private final String text;
+        private final Machine machine;
+        private int pos;
+
+        Parser(String text, Machine machine) {
+            this.text = text;
+            this.machine = machine;
+            this.pos = 0;
+        }
+
+        /**
+         * parses an expression whose binary operators all have at least the
+         * given precedence, where 1 is the lowest
+         */
+        LongSupplier parseExpression(int precedence) {
+            if (precedence > OPERATORS.length) {
+                return parseUnary();
+            }
+            LongSupplier left = parseExpression(precedence + 1);
+            String operator;
+            while ((operator = nextOperator(OPERATORS[precedence - 1])) != null) {
+                LongSupplier right = parseExpression(precedence + 1);
+                left = combine(operator, left, right);
+            }
+            return left;
+        }
+
+        /**
+         * consumes and returns the next token if it is one of the given
+         * operators, or returns null
+         */
+        private String nextOperator(String[] operators) {
+            skipSpaces();
+            for (String operator : operators) {
+                if (text.startsWith(operator, pos) &&
+                        !isLongerOperator(operator)) {
+                    pos += operator.length();
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * returns true if the operator at pos is a longer one that starts
+         * with the given one, such as || for |
+         */
+        private boolean isLongerOperator(String operator) {
+            if (operator.length() != 1 || pos + 1 >= text.length()) {
+                return false;
+            }
+            char next = text.charAt(pos + 1);
+            char c = operator.charAt(0);
+            return (c == '|' || c == '&') && next == c ||
+                    (c == '<' || c == '>') && next == '=';
+        }
+
+        private static LongSupplier combine(String operator, LongSupplier left,
+                                            LongSupplier right) {
+            switch (operator) {
+                case "||":
+                    return () -> left.getAsLong() != 0 || right.getAsLong() != 0 ? 1 : 0;
+                case "&&":
+                    return () -> left.getAsLong() != 0 && right.getAsLong() != 0 ? 1 : 0;
+                case "|":
+                    return () -> left.getAsLong() | right.getAsLong();
+                case "^":
+                    return () -> left.getAsLong() ^ right.getAsLong();
+                case "&":
+                    return () -> left.getAsLong() & right.getAsLong();
+                case "==":
+                    return () -> left.getAsLong() == right.getAsLong() ? 1 : 0;
+                case "!=":
+                    return () -> left.getAsLong() != right.getAsLong() ? 1 : 0;
+                case "<":
+                    return () -> left.getAsLong() < right.getAsLong() ? 1 : 0;
+                case "<=":
+                    return () -> left.getAsLong() <= right.getAsLong() ? 1 : 0;
+                case ">":
+                    return () -> left.getAsLong() > right.getAsLong() ? 1 : 0;
+                case ">=":
+                    return () -> left.getAsLong() >= right.getAsLong() ? 1 : 0;
+                case "+":
+                    return () -> left.getAsLong() + right.getAsLong();
+                case "-":
+                    return () -> left.getAsLong() - right.getAsLong();
+                case "*":
+                    return () -> left.getAsLong() * right.getAsLong();
+                case "/":
+                    return () -> {
+                        long divisor = right.getAsLong();
+                        return divisor == 0 ? 0 : left.getAsLong() / divisor;
+                    };
+                default:
+                    assert operator.equals("%") : "Unknown operator " + operator;
+                    return () -> {
+                        long divisor = right.getAsLong();
+                        return divisor == 0 ? 0 : left.getAsLong() % divisor;
+                    };
+            }
+        }
+
+        private LongSupplier parseUnary() {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == '-') {
+                pos++;
+                LongSupplier operand = parseUnary();
+                return () -> -operand.getAsLong();
+            }
+            if (pos < text.length() && text.charAt(pos) == '!' &&
+                    !text.startsWith("!=", pos)) {
+                pos++;
+                LongSupplier operand = parseUnary();
+                return () -> operand.getAsLong() == 0 ? 1 : 0;
+            }
+            return parsePrimary();
+        }
+
+        private LongSupplier parsePrimary() {
+            skipSpaces();
+            if (pos >= text.length()) {
+                throw error("The condition ends too soon");
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                LongSupplier inner = parseExpression(1);
+                expect(')');
+                return inner;
+            }
+            if (Character.isDigit(c)) {
+                long value = parseNumber();
+                return () -> value;
+            }
+            if (isNameChar(c)) {
+                String name = parseName();
+                skipSpaces();
+                if (pos < text.length() && text.charAt(pos) == '[') {
+                    pos++;
+                    LongSupplier index = parseExpression(1);
+                    expect(']');
+                    return indexed(name, index);
+                }
+                return named(name);
+            }
+            throw error("Unexpected \"" + c + "\"");
+        }
+
+        private long parseNumber() {
+            int start = pos;
+            int radix = 10;
+            if (text.startsWith("0x", pos) || text.startsWith("0X", pos)) {
+                radix = 16;
+                pos += 2;
+            }
+            else if (text.startsWith("0b", pos) || text.startsWith("0B", pos)) {
+                radix = 2;
+                pos += 2;
+            }
+            int digitsStart = pos;
+            while (pos < text.length() &&
+                    Character.digit(text.charAt(pos), radix) != -1) {
+                pos++;
+            }
+            try {
+                return Long.parseUnsignedLong(text.substring(digitsStart, pos), radix);
+            } catch (NumberFormatException e) {
+                throw error("\"" + text.substring(start, pos) +
+                        "\" is not a valid number");
+            }
+        }
+
+        /**
+         * parses a name, extending it over a - only if the name with the -
+         * is that of a module
+         */
+        private String parseName() {
+            int start = pos;
+            while (pos < text.length() && isNameChar(text.charAt(pos))) {
+                pos++;
+            }
+            while (pos + 1 < text.length() && text.charAt(pos) == '-' &&
+                    isNameChar(text.charAt(pos + 1))) {
+                int end = pos + 1;
+                while (end < text.length() && isNameChar(text.charAt(end))) {
+                    end++;
+                }
+                if (!isModuleName(text.substring(start, end))) {
+                    break;
+                }
+                pos = end;
+            }
+            return text.substring(start, pos);
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+        }
+
+        private boolean isModuleName(String name) {
+            return find(name, "registers") != null ||
+                    find(name, "conditionBits") != null ||
+                    find(name, "registerArrays") != null ||
+                    find(name, "rams") != null;
+        }
+
+        /**
+         * returns the evaluator of a register or condition bit
+         */
+        private LongSupplier named(String name) {
+            Module module = find(name, "registers");
+            if (module != null) {
+                Register register = (Register) module;
+                return register::getValue;
+            }
+            module = find(name, "conditionBits");
+            if (module != null) {
+                ConditionBit bit = (ConditionBit) module;
+                return () -> bit.isSet() ? 1 : 0;
+            }
+            if (find(name, "registerArrays") != null || find(name, "rams") != null) {
+                throw error("\"" + name + "\" must be followed by an index in brackets");
+            }
+            throw error("There is no register or condition bit named \"" + name + "\"");
+        }
+
+        /**
+         * returns the evaluator of an element of a register array or a cell
+         * of a RAM
+         */
+        private LongSupplier indexed(String name, LongSupplier index) {
+            Module module = find(name, "registerArrays");
+            if (module != null) {
+                List<Register> registers = ((RegisterArray) module).registers();
+                return () -> {
+                    long i = index.getAsLong();
+                    return 0 <= i && i < registers.size() ?
+                            registers.get((int) i).getValue() : 0;
+                };
+            }
+            module = find(name, "rams");
+            if (module != null) {
+                RAM ram = (RAM) module;
+                return () -> {
+                    long address = index.getAsLong();
+                    return 0 <= address && address < ram.getLength() ?
+                            ram.getData((int) address) : 0;
+                };
+            }
+            throw error("There is no register array or RAM named \"" + name + "\"");
+        }
+
+        private Module find(String name, String moduleType) {
+            for (Module module : machine.getModule(moduleType)) {
+                if (module.getName().equals(name)) {
+                    return module;
+                }
+            }
+            return null;
+        }
+
+        private void expect(char c) {
+            skipSpaces();
+            if (pos >= text.length() || text.charAt(pos) != c) {
+                throw error("Missing \"" + c + "\"");
+            }
+            pos++;
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        ValidationException error(String message) {
+            return new ValidationException(message + " at position " + (pos + 1) +
+                    " of the condition \"" + text + "\".");
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * File: ExecutionLimits
+ * Project: CPU Sim
+ */
+package cpusim.model;
+
+/**
+ * Limits on the machine cycles, micros, time and output of each execution
+ * of a machine, so that a program that loops forever or floods its output
+ * is stopped cleanly instead of tying up the simulator.  The machine calls
+ * check() before executing each micro.  The counts are kept as countdowns
+ * of what is left, so the check is a few decrements and comparisons, and
+ * the clock is read only once every TIME_CHECK_INTERVAL micros.  The
+ * countdowns start again each time the machine starts executing.
+ */
+public class ExecutionLimits {
+
+    /**
+     * The limits that can be reached, each with the exit code used when a
+     * command line run is stopped by it.
+     */
+    public enum Limit {
+        MACHINE_CYCLES("machine cycles", 3),
+        MICROS("microinstructions", 4),
+        TIME("time", 5),
+        OUTPUT("output bytes", 6);
+
+        private final String description;
+        private final int exitCode;
+
+        Limit(String description, int exitCode) {
+            this.description = description;
+            this.exitCode = exitCode;
+        }
+
+        /**
+         * @return the exit code of a command line run stopped by this limit
+         */
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        @Override
+        public String toString() {
+            return "the limit on " + description + " was reached";
+        }
+    }
+
+    /** the number of micros between readings of the clock */
+    private static final int TIME_CHECK_INTERVAL = 4096;
+
+    /** the limits, or Long.MAX_VALUE for no limit */
+    private long maxMachineCycles;
+    private long maxMicros;
+    private long maxNanos;
+    private long maxOutputBytes;
+
+    /** what is left of each limit in the current execution */
+    private long machineCyclesLeft;
+    private long microsLeft;
+    private long outputBytesLeft;
+    private long deadline;
+    private int timeCheckCountdown;
+    /** the limit last reached, or null if none was */
+    private volatile Limit limitReached;
+
+    /**
+     * creates limits with no limit set
+     */
+    public ExecutionLimits() {
+        maxMachineCycles = Long.MAX_VALUE;
+        maxMicros = Long.MAX_VALUE;
+        maxNanos = Long.MAX_VALUE;
+        maxOutputBytes = Long.MAX_VALUE;
+        executionStarted();
+    }
+
+    /**
+     * sets the largest number of machine cycles started in each execution
+     *
+     * @param max the limit, or a negative number for no limit
+     */
+    public void setMaxMachineCycles(long max) {
+        maxMachineCycles = max < 0 ? Long.MAX_VALUE : max;
+    }
+
+    /**
+     * sets the largest number of micros executed in each execution
+     *
+     * @param max the limit, or a negative number for no limit
+     */
+    public void setMaxMicros(long max) {
+        maxMicros = max < 0 ? Long.MAX_VALUE : max;
+    }
+
+    /**
+     * sets the longest time each execution may take
+     *
+     * @param millis the limit in milliseconds, or a negative number for no
+     *               limit
+     */
+    public void setMaxMillis(long millis) {
+        maxNanos = millis < 0 || millis > Long.MAX_VALUE / 1000000 ?
+                Long.MAX_VALUE : millis * 1000000;
+    }
+
+    /**
+     * sets the largest number of bytes written by output IO micros in each
+     * execution
+     *
+     * @param max the limit, or a negative number for no limit
+     */
+    public void setMaxOutputBytes(long max) {
+        maxOutputBytes = max < 0 ? Long.MAX_VALUE : max;
+    }
+
+    /**
+     * starts the countdowns again.  The machine calls it each time it
+     * starts executing.
+     */
+    public void executionStarted() {
+        machineCyclesLeft = maxMachineCycles;
+        microsLeft = maxMicros;
+        outputBytesLeft = maxOutputBytes;
+        long now = System.nanoTime();
+        deadline = maxNanos == Long.MAX_VALUE || now + maxNanos < now ?
+                Long.MAX_VALUE : now + maxNanos;
+        timeCheckCountdown = TIME_CHECK_INTERVAL;
+        limitReached = null;
+    }
+
+    /**
+     * counts a micro about to be executed, unless a limit would be exceeded
+     * by executing it.  The machine calls it before executing each micro
+     * and stops without executing it if a limit is returned.
+     *
+     * @param startsMachineCycle true if the micro is the first of the fetch
+     *                           sequence
+     * @return the limit reached, or null if the micro may be executed
+     */
+    public Limit check(boolean startsMachineCycle) {
+        if (outputBytesLeft < 0) {
+            return limitReached = Limit.OUTPUT;
+        }
+        if (microsLeft == 0) {
+            return limitReached = Limit.MICROS;
+        }
+        if (startsMachineCycle && machineCyclesLeft == 0) {
+            return limitReached = Limit.MACHINE_CYCLES;
+        }
+        if (--timeCheckCountdown == 0) {
+            timeCheckCountdown = TIME_CHECK_INTERVAL;
+            if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+                return limitReached = Limit.TIME;
+            }
+        }
+        if (startsMachineCycle) {
+            machineCyclesLeft--;
+        }
+        microsLeft--;
+        return null;
+    }
+
+    /**
+     * counts bytes written by an output IO micro.  The limit is reached
+     * once more bytes than allowed have been written, and execution stops
+     * before the next micro.
+     *
+     * @param numBytes the number of bytes written
+     */
+    public void countOutputBytes(int numBytes) {
+        outputBytesLeft -= numBytes;
+    }
+
+    /**
+     * returns the limit that stopped the last execution
+     *
+     * @return the limit, or null if the last execution was not stopped by
+     *         a limit
+     */
+    public Limit getLimitReached() {
+        return limitReached;
+    }
+}
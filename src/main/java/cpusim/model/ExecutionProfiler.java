@@ -0,0 +1,323 @@
+/**
+ * File: ExecutionProfiler
+ * Project: CPU Sim
+ */
+package cpusim.model;
+
+import cpusim.model.module.RAM;
+import cpusim.model.module.Register;
+import cpusim.util.SourceLine;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Counts how often each machine instruction, each microinstruction and each
+ * code store address is executed while a machine runs.  The machine calls
+ * count() before executing each micro.  Each machine instruction is given a
+ * dense id the first time it is counted, and the counts are kept in arrays
+ * indexed by that id and, for micros, by the position of the micro in the
+ * instruction, so counting needs no hashing except when the current
+ * instruction changes.  The counts of the micros themselves are summed from
+ * the counts of their positions when the profile is written.
+ *
+ * An instruction is counted each time its first micro is executed, and an
+ * address each time a machine cycle starts with the program counter holding
+ * it, if that address is in the code store.  The counts accumulate over all
+ * runs until clear() is called.
+ */
+public class ExecutionProfiler {
+    /** the instructions, indexed by their ids */
+    private MachineInstruction[] instructions;
+    /** the ids of the instructions */
+    private IdentityHashMap<MachineInstruction, Integer> ids;
+    /** the number of ids given out so far */
+    private int numInstructions;
+    /** the number of times each instruction was executed */
+    private long[] instructionCounts;
+    /** the number of times each micro of each instruction was executed,
+     * indexed by the id of the instruction and the position of the micro */
+    private long[][] microCounts;
+    /** the number of machine cycles started at each address */
+    private long[] addressCounts;
+
+    /** the fetch sequence of the machine, once a machine cycle is counted */
+    private MachineInstruction fetchSequence;
+    /** the last instruction counted and its id */
+    private MachineInstruction lastInstruction;
+    private int lastId;
+
+    /**
+     * creates a profiler with all counts zero
+     */
+    public ExecutionProfiler() {
+        clear();
+    }
+
+    /**
+     * sets all counts back to zero
+     */
+    public void clear() {
+        instructions = new MachineInstruction[16];
+        ids = new IdentityHashMap<>();
+        numInstructions = 0;
+        instructionCounts = new long[16];
+        microCounts = new long[16][];
+        addressCounts = new long[0];
+        fetchSequence = null;
+        lastInstruction = null;
+        lastId = -1;
+    }
+
+    /**
+     * counts the execution of the micro at the given position of the given
+     * instruction.
+     *
+     * @param instruction the machine instruction being executed
+     * @param microIndex the position of the micro about to be executed
+     * @param fetchSequence the fetch sequence of the machine
+     * @param programCounter the program counter of the machine
+     * @param codeStore the code store of the machine, whose length bounds
+     *                  the addresses counted
+     */
+    public void count(MachineInstruction instruction, int microIndex,
+                      MachineInstruction fetchSequence, Register programCounter,
+                      RAM codeStore) {
+        if (instruction != lastInstruction) {
+            lastInstruction = instruction;
+            lastId = idOf(instruction);
+        }
+        long[] counts = microCounts[lastId];
+        if (microIndex >= counts.length) {
+            counts = microCounts[lastId] = Arrays.copyOf(counts,
+                    Math.max(2 * counts.length, microIndex + 1));
+        }
+        counts[microIndex]++;
+
+        if (microIndex == 0) {
+            instructionCounts[lastId]++;
+            if (instruction == fetchSequence) {
+                this.fetchSequence = fetchSequence;
+                if (programCounter != null && codeStore != null) {
+                    countAddress(programCounter.getValue(), codeStore.getLength());
+                }
+            }
+        }
+    }
+
+    /**
+     * returns the id of the instruction, giving it a new one if it has none
+     */
+    private int idOf(MachineInstruction instruction) {
+        Integer id = ids.get(instruction);
+        if (id != null) {
+            return id;
+        }
+        if (numInstructions == instructions.length) {
+            int newLength = 2 * numInstructions;
+            instructions = Arrays.copyOf(instructions, newLength);
+            instructionCounts = Arrays.copyOf(instructionCounts, newLength);
+            microCounts = Arrays.copyOf(microCounts, newLength);
+        }
+        instructions[numInstructions] = instruction;
+        instructionCounts[numInstructions] = 0;
+        microCounts[numInstructions] = new long[instruction.getMicros().size()];
+        ids.put(instruction, numInstructions);
+        return numInstructions++;
+    }
+
+    /**
+     * counts the start of a machine cycle at the given address.  An address
+     * outside the code store is not counted, since the fetch will fail there,
+     * and counting it could make a runaway program grow the counts to an
+     * enormous size first.
+     */
+    private void countAddress(long address, int codeStoreLength) {
+        if (address < 0 || address >= codeStoreLength) {
+            return;
+        }
+        int index = (int) address;
+        if (index >= addressCounts.length) {
+            addressCounts = Arrays.copyOf(addressCounts,
+                    Math.max(2 * addressCounts.length, index + 1));
+        }
+        addressCounts[index]++;
+    }
+
+    /**
+     * returns the number of times the given instruction was executed
+     *
+     * @param instruction a machine instruction or the fetch sequence
+     * @return the number of times its first micro was executed
+     */
+    public long getCount(MachineInstruction instruction) {
+        Integer id = ids.get(instruction);
+        return id == null ? 0 : instructionCounts[id];
+    }
+
+    /**
+     * returns the number of times the given micro was executed, in all the
+     * instructions containing it.  The micros are found at the positions
+     * they have in the instructions now.
+     *
+     * @param micro a microinstruction
+     * @return the number of times it was executed
+     */
+    public long getCount(Microinstruction micro) {
+        Long count = getMicroCounts().get(micro);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * returns the number of machine cycles started at the given address
+     *
+     * @param address an address in the code store
+     * @return the number of cycles started with the program counter at it
+     */
+    public long getCount(int address) {
+        return 0 <= address && address < addressCounts.length ?
+                addressCounts[address] : 0;
+    }
+
+    /**
+     * returns the number of times each micro was executed, in all the
+     * instructions containing it
+     */
+    private Map<Microinstruction, Long> getMicroCounts() {
+        Map<Microinstruction, Long> result = new IdentityHashMap<>();
+        for (int id = 0; id < numInstructions; id++) {
+            List<Microinstruction> micros = instructions[id].getMicros();
+            long[] counts = microCounts[id];
+            for (int i = 0; i < counts.length && i < micros.size(); i++) {
+                if (counts[i] > 0) {
+                    result.merge(micros.get(i), counts[i], Long::sum);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * writes the flat profile: the instructions, micros and addresses
+     * executed, each with its count and its share of the total, most
+     * executed first.  The fetch sequence is counted with the micros but
+     * not with the instructions.
+     *
+     * @param out the writer to which the profile is written
+     * @param codeStore the RAM whose addresses were counted, used to find
+     *                  the source line of each address, or null
+     */
+    public void writeFlatProfile(PrintWriter out, RAM codeStore) {
+        Map<String, Long> instructionCountsByName = new LinkedHashMap<>();
+        for (int id = 0; id < numInstructions; id++) {
+            if (instructionCounts[id] > 0 && instructions[id] != fetchSequence) {
+                instructionCountsByName.put(instructions[id].getName(),
+                        instructionCounts[id]);
+            }
+        }
+        writeCounts(out, "Machine instructions", instructionCountsByName);
+
+        Map<String, Long> microCountsByName = new LinkedHashMap<>();
+        for (Map.Entry<Microinstruction, Long> entry : getMicroCounts().entrySet()) {
+            Microinstruction micro = entry.getKey();
+            microCountsByName.merge(micro.getMicroClass() + " " + micro.getName(),
+                    entry.getValue(), Long::sum);
+        }
+        writeCounts(out, "Microinstructions", microCountsByName);
+
+        Map<String, Long> addressCountsByName = new LinkedHashMap<>();
+        for (int address = 0; address < addressCounts.length; address++) {
+            if (addressCounts[address] > 0) {
+                SourceLine sourceLine = codeStore == null ? null :
+                        codeStore.getSourceLine(address);
+                addressCountsByName.put(address + (sourceLine == null ? "" :
+                        "  " + sourceLine.getFileName() + ":" +
+                        (sourceLine.getLine() + 1)), addressCounts[address]);
+            }
+        }
+        writeCounts(out, "Addresses", addressCountsByName);
+        out.flush();
+    }
+
+    /**
+     * writes a table of the given counts, largest first, under the heading
+     */
+    private void writeCounts(PrintWriter out, String heading, Map<String, Long> counts) {
+        long total = 0;
+        for (long count : counts.values()) {
+            total += count;
+        }
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()));
+
+        out.println(heading + " (" + total + " executed):");
+        out.printf("%14s %7s  %s%n", "count", "%", "name");
+        for (Map.Entry<String, Long> entry : entries) {
+            out.printf("%14d %7.2f  %s%n", entry.getValue(),
+                    100.0 * entry.getValue() / total, entry.getKey());
+        }
+        out.println();
+    }
+
+    /**
+     * writes each source file of the program in the code store with the
+     * number of machine cycles started at each of its lines in the margin.
+     * The lines are found from the source lines of the addresses counted.
+     *
+     * @param out the writer to which the listing is written
+     * @param codeStore the RAM whose addresses were counted
+     */
+    public void writeAnnotatedListing(PrintWriter out, RAM codeStore) {
+        // key = file name, value = (key = line, value = count)
+        Map<String, Map<Integer, Long>> countsOfFiles = new LinkedHashMap<>();
+        long unknown = 0;
+        for (int address = 0; address < addressCounts.length; address++) {
+            if (addressCounts[address] == 0) {
+                continue;
+            }
+            SourceLine sourceLine = codeStore.getSourceLine(address);
+            if (sourceLine == null) {
+                unknown += addressCounts[address];
+                continue;
+            }
+            countsOfFiles.computeIfAbsent(sourceLine.getFileName(), k -> new HashMap<>())
+                         .merge(sourceLine.getLine(), addressCounts[address], Long::sum);
+        }
+
+        for (Map.Entry<String, Map<Integer, Long>> entry : countsOfFiles.entrySet()) {
+            String fileName = entry.getKey();
+            Map<Integer, Long> counts = entry.getValue();
+            out.println("File: " + fileName);
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8);
+            } catch (IOException | RuntimeException e) {
+                // list just the lines that were counted
+                out.println("(the file could not be read)");
+                lines = null;
+            }
+            if (lines != null) {
+                for (int line = 0; line < lines.size(); line++) {
+                    Long count = counts.get(line);
+                    out.printf("%14s  %s%n", count == null ? "" : count.toString(),
+                            lines.get(line));
+                }
+            }
+            else {
+                for (int line : new TreeSet<>(counts.keySet())) {
+                    out.printf("%14d  line %d%n", counts.get(line), line + 1);
+                }
+            }
+            out.println();
+        }
+        if (unknown > 0) {
+            out.println(unknown + " machine cycles started at addresses " +
+                    "with no source line.");
+        }
+        out.flush();
+    }
+}
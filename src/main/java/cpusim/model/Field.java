@@ -254,14 +254,20 @@ public class Field implements NamedObject, Cloneable
      */
     public String getXMLDescription(String indent) {
         String nl = System.getProperty("line.separator");
-        String result = indent + "<Field name=\"" + HtmlEncoder.sEncode(getName()) +
-                "\" type=\"" + getType() + "\" numBits=\"" + getNumBits() + "\" " +
-                "relativity=\"" + getRelativity() + "\" signed=\"" + isSigned() + "\" " +
-                "defaultValue=\"" + getDefaultValue() + "\" id=\"" + getID() + "\">" + nl;
+        StringBuilder result = new StringBuilder();
+        result.append(indent).append("<Field name=\"")
+                .append(HtmlEncoder.sEncode(getName()))
+                .append("\" type=\"").append(getType())
+                .append("\" numBits=\"").append(getNumBits())
+                .append("\" relativity=\"").append(getRelativity())
+                .append("\" signed=\"").append(isSigned())
+                .append("\" defaultValue=\"").append(getDefaultValue())
+                .append("\" id=\"").append(getID()).append("\">").append(nl);
         for (FieldValue value : values)
-            result += indent + "\t" + value.getXMLDescription() + nl;
-        result += indent + "</Field>";
-        return result;
+            result.append(indent).append("\t").append(value.getXMLDescription())
+                    .append(nl);
+        result.append(indent).append("</Field>");
+        return result.toString();
     }
 
     /**
@@ -270,18 +276,21 @@ public class Field implements NamedObject, Cloneable
      * @return Gives an HTML description of this Field.
      */
     public String getHTMLDescription() {
-        String result = "<TR><TD>" + HtmlEncoder.sEncode(name.get()) + "</TD><TD>" +
-                getType() + "</TD><TD>" + getNumBits() + "</TD><TD>" + getRelativity()
-                + "</TD><TD>" + isSigned() +
-                // "</TD><TD>" + offset +  //offset is not yet used
-                "</TD><TD>" + getDefaultValue() + "</TD><TD>";
+        StringBuilder result = new StringBuilder();
+        result.append("<TR><TD>").append(HtmlEncoder.sEncode(name.get()))
+                .append("</TD><TD>").append(getType())
+                .append("</TD><TD>").append(getNumBits())
+                .append("</TD><TD>").append(getRelativity())
+                .append("</TD><TD>").append(isSigned())
+                // .append("</TD><TD>").append(offset)  //offset is not yet used
+                .append("</TD><TD>").append(getDefaultValue()).append("</TD><TD>");
         if (values.size() == 0) {
-            result += HtmlEncoder.sEncode("<any>");
+            result.append(HtmlEncoder.sEncode("<any>"));
         }
         for (FieldValue fieldValue : values) {
-            result += HtmlEncoder.sEncode(fieldValue.getName() + "=") + fieldValue
-                    .getValue() + "<BR>";
+            result.append(HtmlEncoder.sEncode(fieldValue.getName() + "="))
+                    .append(fieldValue.getValue()).append("<BR>");
         }
-        return result + "</TD></TR>";
+        return result.append("</TD></TR>").toString();
     }
 }
\ No newline at end of file
@@ -12,6 +12,7 @@
  */
 package cpusim.model;
 
+import cpusim.BreakException;
 import cpusim.ExecutionException;
 import cpusim.iochannel.FileChannel;
 import cpusim.iochannel.IOChannel;
@@ -20,6 +21,8 @@ import cpusim.assembler.PunctChar;
 import cpusim.model.microinstruction.*;
 import cpusim.model.module.*;
 import cpusim.util.CPUSimConstants;
+import cpusim.util.ExecutionMetrics;
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
@@ -129,6 +132,46 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
     // true if the machine just halted due to a breakpoint.  It is used to turn off the
     // break point temporarily to allow continuing past the breakpoint.
     private boolean justBroke;
+    // counts the instructions, micros and addresses executed, or null if
+    // execution is not being profiled
+    private ExecutionProfiler profiler;
+    // publishes the throughput and state of the execution, or null
+    private ExecutionMetrics metrics;
+    // observes the micros executed, such as to record the changes made in
+    // each machine cycle, or null if execution is not being traced
+    private TraceListener tracer;
+    // the limits on each execution, or null if there are none.  They are
+    // checked only in command line mode, since only Main sets them.
+    private ExecutionLimits limits;
+    // true if the watchpoints of the RAMs and registers are to stop the
+    // execution, as they are in debug mode, like the break points
+    private boolean haltAtWatches;
+    // the usage index, built when first needed:  key = module, value = the
+    // micros that use it, and key = micro, value = the machine instructions
+    // (including the fetch sequence) that use it, in the order of the
+    // instructions.  It is updated as the machine deletes modules and micros
+    // itself, and discarded when the lists of micros change in other ways.
+    private transient IdentityHashMap<Module, Set<Microinstruction>> microsThatUseModule;
+    private transient IdentityHashMap<Microinstruction, Set<MachineInstruction>>
+            instructionsThatUseMicro;
+    // the list of instructions and its size when the index was built, since
+    // changes to the list itself cannot be observed
+    private transient List<MachineInstruction> indexedInstructions;
+    private transient int numIndexedInstructions;
+    // the lists of micros observed for changes while the index exists
+    private transient List<ObservableList<Microinstruction>> observedMicroLists;
+    private transient InvalidationListener usageIndexInvalidator;
+    // true while the machine is updating the index itself
+    private transient boolean updatingUsageIndex;
+    // all the registers, with the registers of the register arrays at the
+    // end, and the same registers keyed by ID.  They are built when first
+    // needed and rebuilt whenever the registers or register arrays change.
+    private transient ObservableList<Register> allRegisters;
+    private transient ObservableList<Register> allRegistersView;
+    private transient HashMap<String, Register> registersByID;
+    private transient InvalidationListener allRegistersUpdater;
+    // the lists of registers of the arrays observed for changes
+    private transient List<ObservableList<Register>> observedArrayRegisters;
 
     /**
      * Creates a new machine.
@@ -383,6 +426,81 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
         fields = f;
     }
 
+    /**
+     * returns a copy of the parts of this machine that the assembler reads:
+     * the machine instructions with their fields, the fields, the global
+     * EQUs, the punctuation characters and the cell size of the code store.
+     * The copy shares nothing that can be edited with this machine, so a
+     * program can be assembled for the copy on another thread while this
+     * machine is being edited.  The instructions of the copy have no micros.
+     *
+     * @return the copy of the instruction set of this machine
+     */
+    public Machine getAssemblySnapshot() {
+        Machine copy = new Machine(getName(), !indexFromRight.get());
+        Map<Field, Field> fieldCopies = new IdentityHashMap<>();
+        List<Field> copiedFields = new ArrayList<>();
+        for (Field field : fields) {
+            copiedFields.add(copyOfField(field, fieldCopies));
+        }
+        copy.setFields(copiedFields);
+
+        List<MachineInstruction> copiedInstructions = new ArrayList<>();
+        for (MachineInstruction instruction : instructions) {
+            ArrayList<Field> instructionFields = new ArrayList<>();
+            for (Field field : instruction.getInstructionFields()) {
+                instructionFields.add(copyOfField(field, fieldCopies));
+            }
+            ArrayList<Field> assemblyFields = new ArrayList<>();
+            for (Field field : instruction.getAssemblyFields()) {
+                assemblyFields.add(copyOfField(field, fieldCopies));
+            }
+            copiedInstructions.add(new MachineInstruction(instruction.getName(),
+                    instruction.getOpcode(), instructionFields, assemblyFields,
+                    new ArrayList<>(instruction.getInstructionColors()),
+                    new ArrayList<>(instruction.getAssemblyColors()), copy));
+        }
+        copy.setInstructions(copiedInstructions);
+
+        ObservableList<EQU> copiedEQUs = FXCollections.observableArrayList();
+        for (EQU equ : EQUs) {
+            copiedEQUs.add((EQU) equ.clone());
+        }
+        copy.setEQUs(copiedEQUs);
+
+        PunctChar[] copiedPunctChars = new PunctChar[punctChars.length];
+        for (int i = 0; i < punctChars.length; i++) {
+            copiedPunctChars[i] = new PunctChar(punctChars[i].getChar(),
+                    punctChars[i].getUse());
+        }
+        copy.setPunctChars(copiedPunctChars);
+
+        RAM store = getCodeStore();
+        if (store != null) {
+            // the assembler needs only the cell size of the code store
+            copy.setCodeStore(new RAM(store.getName(), 0, store.getCellSize()));
+        }
+        copy.setStartingAddressForLoading(startingAddressForLoading);
+        return copy;
+    }
+
+    //--------------------------------
+    // returns the copy of the given field made for a snapshot, copying it
+    // and its values the first time it is seen
+    private static Field copyOfField(Field field, Map<Field, Field> fieldCopies) {
+        Field copy = fieldCopies.get(field);
+        if (copy == null) {
+            copy = (Field) field.clone();
+            ObservableList<FieldValue> values = FXCollections.observableArrayList();
+            for (FieldValue value : field.getValues()) {
+                values.add(new FieldValue(value.getName(), value.getValue()));
+            }
+            copy.setValues(values);
+            fieldCopies.put(field, copy);
+        }
+        return copy;
+    }
+
     /**
      * A getter method for all module objects
      *
@@ -512,25 +630,57 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
     }*/
 
     //-----------------------------------
-    // returns a new Vector containing all the registers of the machine
-    // with the registers coming from register arrays at the end of the vector.
+    // returns an unmodifiable list containing all the registers of the machine
+    // with the registers coming from register arrays at the end of the list.
+    // The list is shared by all callers and kept up to date as the registers
+    // and register arrays change, so callers must copy it to modify it.
     public ObservableList<Register> getAllRegisters() {
-        ObservableList<Register> allRegisters = FXCollections.observableArrayList();
+        if (allRegisters == null) {
+            allRegisters = FXCollections.observableArrayList();
+            allRegistersView = FXCollections.unmodifiableObservableList(allRegisters);
+            registersByID = new HashMap<>();
+            allRegistersUpdater = observable -> updateAllRegisters();
+            observedArrayRegisters = new ArrayList<>();
+            registers.addListener(allRegistersUpdater);
+            registerArrays.addListener(allRegistersUpdater);
+            updateAllRegisters();
+        }
+        return allRegistersView;
+    }
+
+    //-----------------------------------
+    // returns the register of the machine, possibly in a register array,
+    // with the given ID, or null if there is none
+    public Register getRegisterWithID(String id) {
+        getAllRegisters();
+        return registersByID.get(id);
+    }
 
-        //clones the registers into a different observable list
-        //this may cause an error when run (I'm not sure if it should be
-        //size() or size()-1
-        for (Register register1 : registers) {
-            allRegisters.add(register1);
+    //-----------------------------------
+    // refills the list and the map of all registers from the current
+    // registers and register arrays.  The lists of registers of the arrays
+    // are observed too, since an array can grow without the list of arrays
+    // changing.  An array whose list is replaced when its length is edited
+    // is always put in the list of arrays again by setRegisterArrays.
+    private void updateAllRegisters() {
+        for (ObservableList<Register> arrayRegisters : observedArrayRegisters) {
+            arrayRegisters.removeListener(allRegistersUpdater);
         }
+        observedArrayRegisters.clear();
 
+        List<Register> newRegisters = new ArrayList<>(registers);
         for (RegisterArray registerArray : registerArrays) {
-            ObservableList<Register> registers = registerArray.registers();
-            for (Register register : registers) {
-                allRegisters.add(register);
-            }
+            ObservableList<Register> arrayRegisters = registerArray.registers();
+            arrayRegisters.addListener(allRegistersUpdater);
+            observedArrayRegisters.add(arrayRegisters);
+            newRegisters.addAll(arrayRegisters);
+        }
+        allRegisters.setAll(newRegisters);
+
+        registersByID.clear();
+        for (Register register : newRegisters) {
+            registersByID.put(register.getID(), register);
         }
-        return allRegisters;
     }
 
     //-----------------------------------
@@ -544,6 +694,7 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
     // updates machine instructions
     public void setInstructions(List<MachineInstruction> newInstructions) {
         instructions = newInstructions;
+        discardUsageIndex();
     }
 
     //-------------------------------
@@ -555,18 +706,10 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
     //-------------------------------
     // updates the registers
     public void setRegisters(Vector<Register> newRegisters) {
+        Set<Register> keptRegisters = newIdentitySet(newRegisters);
         for (Register oldRegister : registers) {
-            if (!newRegisters.contains(oldRegister)) {
-                HashMap microsThatUseIt = getMicrosThatUse(oldRegister);
-                Set e = microsThatUseIt.keySet();
-                for (Object anE : e) {
-                    //get next micro
-                    Microinstruction micro = (Microinstruction) anE;
-                    //remove it from all machine instructions
-                    removeAllOccurencesOf(micro);
-                    //also remove the microinstruction from its list.
-                    ((ObservableList) microsThatUseIt.get(micro)).remove(micro);
-                }
+            if (!keptRegisters.contains(oldRegister)) {
+                removeMicrosThatUse(oldRegister);
             }
         }
 
@@ -578,28 +721,18 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
 
         // test whether the program counter was deleted and, if so,
         // set the program counter to the place holder register
-        if(! newRegisters.contains(programCounter))
+        if(! keptRegisters.contains(programCounter))
             setProgramCounter(Machine.PLACE_HOLDER_REGISTER);
     }
 
     //-------------------------------
     // updates the register arrays
     public void setRegisterArrays(Vector<RegisterArray> newRegisterArrays) {
+        Set<RegisterArray> keptArrays = newIdentitySet(newRegisterArrays);
         for (RegisterArray oldArray : registerArrays) {
-            if (!newRegisterArrays.contains(oldArray)) {
-                HashMap<Microinstruction, ObservableList<Microinstruction>>
-                        microsThatUseIt
-                        = getMicrosThatUse(oldArray);
-                Set e = microsThatUseIt.keySet();
-                for (Object anE : e) {
-                    //get next micro; should be transferRtoA or transferAtoR
-                    Microinstruction micro =
-                            (Microinstruction) anE;
-                    //remove it from all machine instructions
-                    removeAllOccurencesOf(micro);
-                    //also remove the micro from the list of micros of that type.
-                    microsThatUseIt.get(micro).remove(micro);
-                }
+            if (!keptArrays.contains(oldArray)) {
+                //the micros should be transferRtoAs or transferAtoRs
+                removeMicrosThatUse(oldArray);
             }
         }
 
@@ -625,13 +758,10 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
         HashMap<Microinstruction, ObservableList<Microinstruction>> result =
                 new HashMap<>();
 
-        for (String aMicroClass : MICRO_CLASSES) {
-            ObservableList<Microinstruction> v = microMap.get(aMicroClass);
-            for (int i = v.size() - 1; i >= 0; i--) {
-                Microinstruction micro = v.get(i);
-                if (micro.uses(m)) {
-                    result.put(micro, v);
-                }
+        Set<Microinstruction> micros = getUsageIndexOfModules().get(m);
+        if (micros != null) {
+            for (Microinstruction micro : micros) {
+                result.put(micro, microMap.get(micro.getMicroClass()));
             }
         }
 
@@ -652,29 +782,10 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
         //first delete arithmetics, setCondBits, and increments that use
         //any deleted ConditionBits, including removing
         //these micros from all machine instructions that use them.
-        for (int i = getMicros("arithmetic").size() - 1; i >= 0; i--) {
-            Arithmetic micro = (Arithmetic) getMicros("arithmetic").get(i);
-            if (((!newConditionBits.contains(micro.getOverflowBit())) &&
-                    (micro.getOverflowBit() != NO_CONDITIONBIT)) ||
-                    ((!newConditionBits.contains(micro.getCarryBit())) &&
-                            (micro.getCarryBit() != NO_CONDITIONBIT))) {
-                removeAllOccurencesOf(micro);
-                getMicros("arithmetic").remove(micro);
-            }
-        }
-        for (int i = getMicros("setCondBit").size() - 1; i >= 0; i--) {
-            SetCondBit micro = (SetCondBit) getMicros("setCondBit").get(i);
-            if (!newConditionBits.contains(micro.getBit())) {
-                removeAllOccurencesOf(micro);
-                getMicros("setCondBit").remove(micro);
-            }
-        }
-        for (int i = getMicros("increment").size() - 1; i >= 0; i--) {
-            Increment micro = (Increment) getMicros("increment").get(i);
-            if ((!newConditionBits.contains(micro.getOverflowBit())) &&
-                    (micro.getOverflowBit() != NO_CONDITIONBIT)) {
-                removeAllOccurencesOf(micro);
-                getMicros("increment").remove(micro);
+        Set<ConditionBit> keptBits = newIdentitySet(newConditionBits);
+        for (ConditionBit oldBit : conditionBits) {
+            if (!keptBits.contains(oldBit)) {
+                removeMicrosThatUse(oldBit);
             }
         }
         conditionBits.clear();
@@ -686,12 +797,10 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
     public void setRAMs(Vector<RAM> newRams) {
         //first delete all MemoryAccess micros that reference any deleted rams
         //    and remove the micros from all machine instructions that use them.
-        for (int i = getMicros("memoryAccess").size() - 1; i >= 0; i--) {
-            MemoryAccess access = (MemoryAccess) getMicros(
-                    "memoryAccess").get(i);
-            if (!newRams.contains(access.getMemory())) {
-                removeAllOccurencesOf(access);
-                getMicros("memoryAccess").remove(access);
+        Set<RAM> keptRams = newIdentitySet(newRams);
+        for (RAM oldRam : rams) {
+            if (!keptRams.contains(oldRam)) {
+                removeMicrosThatUse(oldRam);
             }
         }
         rams.clear();
@@ -705,12 +814,49 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
         //first delete all references in machine instructions
         // to any old micros not in the new list
         ObservableList<Microinstruction> oldMicros = microMap.get(microClass);
+        Set<Microinstruction> keptMicros = newIdentitySet(newMicros);
         for (Microinstruction oldMicro : oldMicros) {
-            if (!newMicros.contains(oldMicro)) {
+            if (!keptMicros.contains(oldMicro)) {
                 removeAllOccurencesOf(oldMicro);
             }
         }
         microMap.put(microClass, newMicros);
+        //the kept micros may have been edited
+        discardUsageIndex();
+    }
+
+    //-------------------------------
+    // deletes every micro that uses the given module, removing it from
+    // its list of micros and from all machine instructions that use it
+    private void removeMicrosThatUse(Module module) {
+        Set<Microinstruction> micros = getUsageIndexOfModules().remove(module);
+        if (micros == null) {
+            return;
+        }
+        updatingUsageIndex = true;
+        try {
+            for (Microinstruction micro : micros) {
+                removeFromInstructions(micro);
+                microMap.get(micro.getMicroClass()).remove(micro);
+                for (Module other : micro.getModulesUsed()) {
+                    Set<Microinstruction> others = microsThatUseModule.get(other);
+                    if (others != null) {
+                        others.remove(micro);
+                    }
+                }
+            }
+        } finally {
+            updatingUsageIndex = false;
+        }
+    }
+
+    //-------------------------------
+    // returns a new set of the given elements compared by identity, which is
+    // how the lists of modules and micros find them
+    private static <T> Set<T> newIdentitySet(Collection<? extends T> elements) {
+        Set<T> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        result.addAll(elements);
+        return result;
     }
 
     // other utility methods
@@ -767,14 +913,10 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
     // returns a Vector of all machine instructions that use m
     public Vector getInstructionsThatUse(Microinstruction m) {
         Vector<MachineInstruction> result = new Vector<MachineInstruction>();
-        for (MachineInstruction instr : instructions) {
-            if (instr.usesMicro(m)) {
-                result.addElement(instr);
-            }
-        }
-        //don't forget the fetchSequence too.
-        if (fetchSequence.usesMicro(m)) {
-            result.addElement(fetchSequence);
+        //the fetchSequence comes last in the index too.
+        Set<MachineInstruction> instrs = getUsageIndexOfMicros().get(m);
+        if (instrs != null) {
+            result.addAll(instrs);
         }
 
         return result;
@@ -795,10 +937,109 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
     //--------------------------------
     // deletes from all machine instructions every use of m
     public void removeAllOccurencesOf(Microinstruction m) {
-        for (MachineInstruction instr : instructions) {
-            instr.removeMicro(m);
+        getUsageIndexOfMicros();
+        updatingUsageIndex = true;
+        try {
+            removeFromInstructions(m);
+        } finally {
+            updatingUsageIndex = false;
+        }
+    }
+
+    //--------------------------------
+    // deletes m from the machine instructions the index says use it.
+    // The index must exist and updatingUsageIndex must be true.
+    private void removeFromInstructions(Microinstruction m) {
+        Set<MachineInstruction> instrs = instructionsThatUseMicro.remove(m);
+        if (instrs != null) {
+            for (MachineInstruction instr : instrs) {
+                instr.removeMicro(m);
+            }
+        }
+    }
+
+    //--------------------------------
+    // returns the part of the usage index mapping modules to micros,
+    // building the index first if necessary
+    private IdentityHashMap<Module, Set<Microinstruction>> getUsageIndexOfModules() {
+        buildUsageIndexIfNeeded();
+        return microsThatUseModule;
+    }
+
+    //--------------------------------
+    // returns the part of the usage index mapping micros to machine
+    // instructions, building the index first if necessary
+    private IdentityHashMap<Microinstruction, Set<MachineInstruction>>
+    getUsageIndexOfMicros() {
+        buildUsageIndexIfNeeded();
+        return instructionsThatUseMicro;
+    }
+
+    //--------------------------------
+    // builds the usage index from the micros and machine instructions unless
+    // it exists and the list of instructions has not changed since
+    private void buildUsageIndexIfNeeded() {
+        if (microsThatUseModule != null && indexedInstructions == instructions
+                && numIndexedInstructions == instructions.size()) {
+            return;
+        }
+        discardUsageIndex();
+        if (usageIndexInvalidator == null) {
+            usageIndexInvalidator = observable -> {
+                if (!updatingUsageIndex) {
+                    discardUsageIndex();
+                }
+            };
+        }
+        observedMicroLists = new ArrayList<>();
+
+        microsThatUseModule = new IdentityHashMap<>();
+        for (String microClass : MICRO_CLASSES) {
+            ObservableList<Microinstruction> micros = microMap.get(microClass);
+            observe(micros);
+            for (Microinstruction micro : micros) {
+                for (Module module : micro.getModulesUsed()) {
+                    microsThatUseModule.computeIfAbsent(module,
+                            k -> new LinkedHashSet<>()).add(micro);
+                }
+            }
+        }
+
+        instructionsThatUseMicro = new IdentityHashMap<>();
+        List<MachineInstruction> instrs = new ArrayList<>(instructions);
+        instrs.add(fetchSequence);
+        for (MachineInstruction instr : instrs) {
+            observe(instr.getMicros());
+            for (Microinstruction micro : instr.getMicros()) {
+                instructionsThatUseMicro.computeIfAbsent(micro,
+                        k -> new LinkedHashSet<>()).add(instr);
+            }
+        }
+        indexedInstructions = instructions;
+        numIndexedInstructions = instructions.size();
+    }
+
+    //--------------------------------
+    // listens to the given list of micros so that the usage index is
+    // discarded when the list changes
+    private void observe(ObservableList<Microinstruction> micros) {
+        micros.addListener(usageIndexInvalidator);
+        observedMicroLists.add(micros);
+    }
+
+    //--------------------------------
+    // discards the usage index, so that it is built again when next needed.
+    // MachineInstructions call it when their lists of micros are replaced.
+    void discardUsageIndex() {
+        if (observedMicroLists != null) {
+            for (ObservableList<Microinstruction> micros : observedMicroLists) {
+                micros.removeListener(usageIndexInvalidator);
+            }
         }
-        fetchSequence.removeMicro(m);
+        observedMicroLists = null;
+        microsThatUseModule = null;
+        instructionsThatUseMicro = null;
+        indexedInstructions = null;
     }
 
     //--------------------------------
@@ -818,8 +1059,68 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
 
     public void setFetchSequence(MachineInstruction f) {
         fetchSequence = f;
+        discardUsageIndex();
+    }
+
+
+    //--------------------------------
+    // get & set the profiler, which may be null
+
+    public ExecutionProfiler getProfiler() {
+        return profiler;
+    }
+
+    public void setProfiler(ExecutionProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    //--------------------------------
+    // get & set the metrics, which may be null
+
+    public ExecutionMetrics getMetrics() {
+        return metrics;
     }
 
+    public void setMetrics(ExecutionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    //--------------------------------
+    // get & set the trace listener, which may be null
+
+    public TraceListener getTracer() {
+        return tracer;
+    }
+
+    public void setTracer(TraceListener tracer) {
+        this.tracer = tracer;
+    }
+
+    //--------------------------------
+    // get & set the execution limits, which may be null
+
+    public ExecutionLimits getLimits() {
+        return limits;
+    }
+
+    public void setLimits(ExecutionLimits limits) {
+        this.limits = limits;
+    }
+
+    //--------------------------------
+    // get & set whether the watchpoints stop the execution.  Setting it
+    // also sets it in all the RAMs, which check their own watchpoints.
+
+    public boolean getHaltAtWatches() {
+        return haltAtWatches;
+    }
+
+    public void setHaltAtWatches(boolean haltAtWatches) {
+        this.haltAtWatches = haltAtWatches;
+        for (RAM ram : getAllRAMs()) {
+            ram.setHaltAtWatches(haltAtWatches);
+        }
+    }
 
     //--------------------------------
     // called by user when they want to halt execution
@@ -835,6 +1136,104 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
     }
 
 
+    //--------------------------------
+    // returns the registers that have watchpoints, or none if the machine
+    // is not halting at watchpoints, forgetting the hits of any writes to
+    // them made while the machine was not executing
+    private Register[] getWatchedRegisters() {
+        if (!haltAtWatches) {
+            return new Register[0];
+        }
+        List<Register> watched = new ArrayList<>();
+        for (Register register : getAllRegisters()) {
+            if (register.hasWatches()) {
+                register.takeWatchHit();
+                watched.add(register);
+            }
+        }
+        return watched.toArray(new Register[watched.size()]);
+    }
+
+    //--------------------------------
+    // throws a BreakException if the last micro made a write that hit a
+    // watchpoint of one of the given registers
+    private void checkRegisterWatches(Register[] watchedRegisters) {
+        Register hit = null;
+        for (Register register : watchedRegisters) {
+            if (register.takeWatchHit() && hit == null) {
+                hit = register;
+            }
+        }
+        if (hit != null) {
+            throw new BreakException("Break in register " + hit.getName() +
+                    " write, with value " + hit.getValue(), hit);
+        }
+    }
+
+    //--------------------------------
+    // executes the machine in command line mode when nothing needs to look
+    // at it between micros.  It executes a whole straight-line run of
+    // micros (see BasicBlocks) at a time, checking the halt bits only at the
+    // end of each run, which gives the same result as executing the micros
+    // one at a time.  The micro index is still kept up to date before each
+    // micro, so that it is right if a micro throws an exception.
+    private void executeRuns() {
+        List<ConditionBit> haltBits = new ArrayList<>();
+        for (ConditionBit bit : conditionBits) {
+            if (bit.getHalt()) {
+                haltBits.add(bit);
+            }
+        }
+        ConditionBit[] haltBitArray = haltBits.toArray(new ConditionBit[haltBits.size()]);
+        Set<Module> haltModules = BasicBlocks.haltModules(haltBits, registerArrays);
+        Map<MachineInstruction, BasicBlocks> blocksOfInstruction = new IdentityHashMap<>();
+        MachineInstruction currentInstruction = null;
+        BasicBlocks blocks = null;
+
+        while (runMode != RunModes.STOP && runMode != RunModes.ABORT &&
+                !anyIsSet(haltBitArray)) {
+            if (controlUnit.getCurrentInstruction() != currentInstruction) {
+                currentInstruction = controlUnit.getCurrentInstruction();
+                blocks = blocksOfInstruction.computeIfAbsent(currentInstruction,
+                        instruction -> new BasicBlocks(instruction, haltModules));
+            }
+            int currentIndex = controlUnit.getMicroIndex();
+
+            if (currentIndex < 0 || currentIndex >= blocks.micros.length) {
+                System.out.println("Error: The step is out of range\n" +
+                        "at step " + currentIndex + " of " +
+                        currentInstruction + ".\n");
+                break;
+            }
+            Microinstruction[] micros = blocks.micros;
+            int end = blocks.runEnd[currentIndex];
+            try {
+                for (int i = currentIndex; i < end; i++) {
+                    controlUnit.setMicroIndex(i + 1);
+                    micros[i].execute();
+                }
+            } catch (BreakException e) {
+                System.out.println(e.getMessage());
+                break;
+            } catch (ExecutionException e) {
+                System.out.println("Exception thrown: " + e.getMessage());
+                return;
+            }
+        }
+        System.out.println("Execution halted.");
+    }
+
+    //--------------------------------
+    // returns true if any of the given condition bits is set
+    private static boolean anyIsSet(ConditionBit[] bits) {
+        for (ConditionBit bit : bits) {
+            if (bit.isSet()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * executes the machine using the given mode of execution.
      * The mode can be any of the following values in CPUSimConstants:
@@ -855,6 +1254,19 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
             // There is no stepping or backing up.  It executes in the
             // main (and only) thread until it finishes or the user
             // quits it from the command line (like with Ctrl-C).
+            if (metrics != null) {
+                metrics.executionStarted();
+            }
+            if (limits != null) {
+                limits.executionStarted();
+            }
+            Register[] watchedRegisters = getWatchedRegisters();
+            if (profiler == null && metrics == null && tracer == null &&
+                    limits == null && watchedRegisters.length == 0) {
+                // nothing needs to look at the machine between micros
+                executeRuns();
+                return;
+            }
             while (runMode != RunModes.STOP &&
                     runMode != RunModes.ABORT &&
                     haltBitsThatAreSet().size() == 0) {
@@ -871,16 +1283,47 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
                             controlUnit.getCurrentInstruction() + ".\n");
                     break;
                 }
+                if (limits != null) {
+                    ExecutionLimits.Limit limit = limits.check(currentIndex == 0 &&
+                            currentInstruction == fetchSequence);
+                    if (limit != null) {
+                        System.out.println("Execution stopped because " + limit + ".");
+                        break;
+                    }
+                }
                 Microinstruction currentMicro = microInstructions.get(currentIndex);
+                if (profiler != null) {
+                    profiler.count(currentInstruction, currentIndex,
+                            fetchSequence, programCounter, getCodeStore());
+                }
+                if (metrics != null) {
+                    metrics.countMicro(currentIndex == 0 &&
+                            currentInstruction == fetchSequence);
+                }
+                if (tracer != null) {
+                    tracer.beforeMicro(currentInstruction, currentIndex);
+                }
                 controlUnit.incrementMicroIndex(1);
 
                 try {
                     currentMicro.execute();
+                    if (watchedRegisters.length > 0) {
+                        checkRegisterWatches(watchedRegisters);
+                    }
+                } catch (BreakException e) {
+                    System.out.println(e.getMessage());
+                    break;
                 } catch (ExecutionException e) {
                     System.out.println("Exception thrown: " + e.getMessage());
+                    if (tracer != null) {
+                        tracer.executionStopped();
+                    }
                     return;
                 }
             }
+            if (tracer != null) {
+                tracer.executionStopped();
+            }
             System.out.println("Execution halted.");
         }
         else {  // use the GUI
@@ -888,6 +1331,10 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
             Task<Void> executionTask = new Task<Void>() {
                 @Override
                 protected Void call() throws Exception {
+                    if (metrics != null) {
+                        metrics.executionStarted();
+                    }
+                    Register[] watchedRegisters = getWatchedRegisters();
                     while (runMode != RunModes.STOP &&
                             runMode != RunModes.ABORT &&
                             !isCancelled() &&
@@ -935,14 +1382,39 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
                             setState(Machine.State.START_OF_MICROINSTRUCTION,
                                     controlUnit.getCurrentState());
                         }
+                        if (profiler != null) {
+                            profiler.count(currentInstruction, currentIndex,
+                                    fetchSequence, programCounter, getCodeStore());
+                        }
+                        if (metrics != null) {
+                            metrics.countMicro(currentIndex == 0 &&
+                                    currentInstruction == fetchSequence);
+                        }
+                        if (tracer != null) {
+                            tracer.beforeMicro(currentInstruction, currentIndex);
+                        }
                         controlUnit.incrementMicroIndex(1);
 
                         try {
                             currentMicro.execute();
+                            if (watchedRegisters.length > 0) {
+                                checkRegisterWatches(watchedRegisters);
+                            }
+                        } catch (BreakException e) {
+                            // the micro was completed, so execution can
+                            // continue with the next one
+                            setState(Machine.State.BREAK, e.breakRAM != null ?
+                                    e.breakRAM.data().get(e.breakAddress) :
+                                    e.breakRegister);
+                            runMode = RunModes.STOP;
+                            break;
                         } catch (ExecutionException e) {
                             //fire property change indicating an exception and quit
                             setState(Machine.State.EXCEPTION_THROWN, e.getMessage());
                             controlUnit.setMicroIndex(currentIndex);
+                            if (tracer != null) {
+                                tracer.executionStopped();
+                            }
                             return null;
                         }
 
@@ -954,6 +1426,9 @@ public class Machine extends Module implements Serializable, CPUSimConstants {
                             runMode = RunModes.STOP;
                         }
                     }
+                    if (tracer != null) {
+                        tracer.executionStopped();
+                    }
 
                     // fire a property change that execution halted or aborted
                     if(runMode == RunModes.ABORT)
@@ -262,6 +262,9 @@ public class MachineInstruction implements Cloneable, NamedObject
 
     public void setMicros(ObservableList<Microinstruction> v) {
         micros = v;
+        if (machine != null) {
+            machine.discardUsageIndex();
+        }
     }
 
     public long getOpcode() {
@@ -314,10 +317,7 @@ public class MachineInstruction implements Cloneable, NamedObject
     //-----------------------------------
     // deletes every occurrence of m in the micros list
     public void removeMicro(Microinstruction m) {
-        boolean didRemoval = micros.remove(m);
-        if (didRemoval) {
-            removeMicro(m); //recursively call to remove more occurences of m
-        }
+        micros.removeIf(micro -> micro == m);
     }
 
     //-----------------------------------
@@ -330,61 +330,73 @@ public class MachineInstruction implements Cloneable, NamedObject
     //-----------------------------------
     public String getXMLDescription(String indent) {
         String nl = System.getProperty("line.separator");
-        String result = indent + "<MachineInstruction name=\"" + HtmlEncoder.sEncode
-                (getName()) + "\" opcode=\"" + Long.toHexString(getOpcode()) + "\" " +
-                "instructionFormat=\"" + Convert.fieldsToFormatString
-                (instructionFields) + "\" assemblyFormat=\"" + Convert
-                .fieldsToFormatString(assemblyFields) + "\" instructionColors=\"" +
-                Convert.colorsListToXML(instructionColors) + "\" assemblyColors=\"" +
-                Convert.colorsListToXML(assemblyColors) + "\" >" + nl;
+        StringBuilder result = new StringBuilder();
+        result.append(indent).append("<MachineInstruction name=\"")
+                .append(HtmlEncoder.sEncode(getName()))
+                .append("\" opcode=\"").append(Long.toHexString(getOpcode()))
+                .append("\" instructionFormat=\"")
+                .append(Convert.fieldsToFormatString(instructionFields))
+                .append("\" assemblyFormat=\"")
+                .append(Convert.fieldsToFormatString(assemblyFields))
+                .append("\" instructionColors=\"")
+                .append(Convert.colorsListToXML(instructionColors))
+                .append("\" assemblyColors=\"")
+                .append(Convert.colorsListToXML(assemblyColors)).append("\" >").append(nl);
         for (Microinstruction micro : micros) {
-            result += indent + "\t<Microinstruction microRef=\"" + micro.getID() + "\" " +
-                    "/>" + nl;
+            result.append(indent).append("\t<Microinstruction microRef=\"")
+                    .append(micro.getID()).append("\" />").append(nl);
         }
-        result += indent + "</MachineInstruction>";
-        return result;
+        result.append(indent).append("</MachineInstruction>");
+        return result.toString();
     }
 
     //--------------------------------------
     public String getHTMLDescription() {
-        String instrFormat = "<table width=\"100%\"><tr>";
-        String assembFormat = "<table width=\"100%\"><tr>";
+        StringBuilder result = new StringBuilder();
 
         double length = 0.0;
         for (Field field : instructionFields) {
             length += (double) field.getNumBits();
         }
 
+        result.append("<TR><TD>").append(HtmlEncoder.sEncode(getName()))
+                .append("</TD><TD>")
+                .append(Convert.fromLongToHexadecimalString(getOpcode(),
+                        getInstructionFields().get(0).getNumBits()))
+                .append("</TD><TD>");
+
+        result.append("<table width=\"100%\"><tr>");
         for (int i = 0; i < instructionFields.size(); i++) {
-            instrFormat += "<td align=\"center\" width=\"" + Math.rint((((double)
-                    instructionFields.get(i).getNumBits()) / length) * 100) + "%\" " +
-                    "bgcolor=\"" + instructionColors.get(i) + "\">" + instructionFields
-                    .get(i).getName() + "</td>";
+            result.append("<td align=\"center\" width=\"")
+                    .append(Math.rint((((double) instructionFields.get(i).getNumBits())
+                            / length) * 100))
+                    .append("%\" bgcolor=\"").append(instructionColors.get(i))
+                    .append("\">").append(instructionFields.get(i).getName())
+                    .append("</td>");
         }
+        result.append("</tr></table>");
 
-        instrFormat += "</tr></table>";
+        result.append("</TD><TD>");
 
+        result.append("<table width=\"100%\"><tr>");
         for (int i = 0; i < assemblyFields.size(); i++) {
-            assembFormat += "<td align=\"center\" width=\"" + Math.rint((1.0 / (double)
-                    assemblyFields.size()) * 100) + "%\" bgcolor=\"" + assemblyColors
-                    .get(i) + "\">" + assemblyFields.get(i).getName() + "</td>";
+            result.append("<td align=\"center\" width=\"")
+                    .append(Math.rint((1.0 / (double) assemblyFields.size()) * 100))
+                    .append("%\" bgcolor=\"").append(assemblyColors.get(i))
+                    .append("\">").append(assemblyFields.get(i).getName())
+                    .append("</td>");
         }
+        result.append("</tr></table>");
 
-        assembFormat += "</tr></table>";
-
-        String result = "<TR><TD>" + HtmlEncoder.sEncode(getName()) + "</TD><TD>" +
-                Convert.fromLongToHexadecimalString(getOpcode(), getInstructionFields()
-                        .get(0).getNumBits()) + "</TD><TD>" + instrFormat + "</TD><TD>"
-                + assembFormat;
-        result += "</TD><TD>";
+        result.append("</TD><TD>");
         for (int i = 0; i < getMicros().size(); i++) {
             Microinstruction micro = getMicros().get(i);
             String htmlName = micro.getHTMLName();
             if (micro instanceof Comment) {
                 htmlName = "<em><font color=gray>" + htmlName + "</em></font>";
             }
-            result += htmlName + "<BR>";
+            result.append(htmlName).append("<BR>");
         }
-        return result + "</TD></TR>";
+        return result.append("</TD></TR>").toString();
     }
 } // end class MachineInstruction
@@ -33,6 +33,7 @@ import cpusim.xml.*;   //for HtmlEncoder
 import javafx.beans.property.SimpleStringProperty;
 
 import java.io.*;
+import java.util.List;
 
 //for Serializable
 
@@ -135,5 +136,10 @@ public abstract class Microinstruction
     // (so if m is modified, this micro may need to be modified.
     public abstract boolean uses(Module m);
 
+    //------------------------------
+    // returns the modules this microinstruction uses, that is, every
+    // module m for which uses(m) returns true
+    public abstract List<Module> getModulesUsed();
+
 
 }  // end of class Microinstruction
@@ -0,0 +1,27 @@
+/**
+ * File: TraceListener
+ * Project: CPU Sim
+ */
+package cpusim.model;
+
+/**
+ * An observer of the micros a machine executes, such as a recorder of the
+ * execution in a trace file.  The machine calls beforeMicro before
+ * executing each micro and executionStopped whenever it stops executing.
+ */
+public interface TraceListener {
+
+    /**
+     * notes the micro about to be executed
+     *
+     * @param instruction the machine instruction being executed
+     * @param microIndex the position of the micro in the instruction
+     */
+    void beforeMicro(MachineInstruction instruction, int microIndex);
+
+    /**
+     * notes that the machine stopped executing, possibly in the middle of
+     * a machine cycle
+     */
+    void executionStopped();
+}
@@ -16,6 +16,8 @@ import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The arithmetic microinstruction use three registers and optionally two condition
@@ -275,4 +277,14 @@ public class Arithmetic extends Microinstruction {
         return (m == getSource1() || m == getSource2() || m == getDestination()
                 || m == getCarryBit() || m == getOverflowBit());
     }
+
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(getSource1(), getSource2(), getDestination(),
+                getCarryBit(), getOverflowBit());
+    }
 }
@@ -10,6 +10,8 @@ import cpusim.model.Microinstruction;
 import cpusim.model.Module;
 import cpusim.model.module.ControlUnit;
 import javafx.beans.property.SimpleIntegerProperty;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * The branch microinstruction is identical to the Test microinstruction except
@@ -129,4 +131,14 @@ public class Branch extends Microinstruction
     {
         return false;
     }
+
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed()
+    {
+        return Collections.emptyList();
+    }
 }
@@ -11,6 +11,8 @@ package cpusim.model.microinstruction;
 import cpusim.model.Microinstruction;
 import cpusim.model.Module;
 import cpusim.xml.HtmlEncoder;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Comment microinstructions do nothing.  They are included just so that their
@@ -71,6 +73,16 @@ public class Comment extends Microinstruction
         return false;
     }
 
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed()
+    {
+        return Collections.emptyList();
+    }
+
 
     public void execute()
     {
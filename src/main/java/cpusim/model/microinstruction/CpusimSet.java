@@ -12,6 +12,8 @@ import cpusim.model.module.Register;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The Set microinstruction allows the computer to set the contents
@@ -222,4 +224,13 @@ public class CpusimSet extends Microinstruction{
         return (m == register.get());
     }
 
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(register.get());
+    }
+
 }
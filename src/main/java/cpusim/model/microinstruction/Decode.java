@@ -13,6 +13,7 @@ import cpusim.model.Module;
 import cpusim.model.module.Register;
 import javafx.beans.property.SimpleObjectProperty;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -151,4 +152,13 @@ public class Decode extends Microinstruction
     public boolean uses(Module m){
         return (m == ir.get());
     }
+
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(ir.get());
+    }
 }
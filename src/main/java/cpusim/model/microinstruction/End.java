@@ -17,6 +17,8 @@ package cpusim.model.microinstruction;
 import cpusim.model.Machine;
 import cpusim.model.Microinstruction;
 import cpusim.model.Module;
+import java.util.Collections;
+import java.util.List;
 
 //import cpusim.model.module.*;
 
@@ -74,6 +76,16 @@ public class End extends Microinstruction
         return false;
     }
 
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed()
+    {
+        return Collections.emptyList();
+    }
+
 
     /**
      * execute the micro instruction from machine
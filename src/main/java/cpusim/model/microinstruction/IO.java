@@ -17,6 +17,8 @@ import cpusim.util.CPUSimConstants;
 import cpusim.xml.HtmlEncoder;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The logical microinstructions perform the bit operations of AND, OR, NOT, NAND,
@@ -203,6 +205,16 @@ public class IO
         //I am not sure that this is the correct thing to do...
         connection.flushOutput();
 
+        if (machine != null &&
+                (machine.getMetrics() != null || machine.getLimits() != null)) {
+            int numBytes = type.get().equals("integer") ? (numBits + 7) / 8 :
+                           type.get().equals("ascii") ? 1 : 2;
+            if (machine.getMetrics() != null)
+                machine.getMetrics().countIOBytes(connection, numBytes);
+            if (machine.getLimits() != null && direction.get().equals("output"))
+                machine.getLimits().countOutputBytes(numBytes);
+        }
+
     }
 
     /**
@@ -265,4 +277,13 @@ public class IO
     public boolean uses(Module m){
         return (m == buffer.get());
     }
+
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(buffer.get());
+    }
 }
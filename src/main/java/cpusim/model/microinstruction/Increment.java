@@ -15,6 +15,8 @@ import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The increment microinstrucion adds an integer constant to the contents of a register.
@@ -213,4 +215,13 @@ public class Increment extends Microinstruction{
                 m == overflowBit.get() ||
                 m == carryBit.get());
     }
+
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(register.get(), overflowBit.get(), carryBit.get());
+    }
 }
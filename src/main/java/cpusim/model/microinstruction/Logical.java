@@ -6,6 +6,8 @@ import cpusim.model.Module;
 import cpusim.model.module.Register;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The logical microinstructions perform the bit operations of AND, OR, NOT, NAND,
@@ -195,4 +197,13 @@ public class Logical extends Microinstruction {
         return (m == source1.get() || m == source2.get() || m == destination.get());
     }
 
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(source1.get(), source2.get(), destination.get());
+    }
+
 }
\ No newline at end of file
@@ -1,12 +1,16 @@
 package cpusim.model.microinstruction;
 
+import cpusim.BreakException;
 import cpusim.model.Machine;
 import cpusim.model.Microinstruction;
 import cpusim.model.Module;
 import cpusim.model.module.RAM;
 import cpusim.model.module.Register;
+import cpusim.model.module.WatchType;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The logical microinstructions perform the bit operations of AND, OR, NOT, NAND,
@@ -140,7 +144,9 @@ public class MemoryAccess extends Microinstruction {
     }
 
     /**
-     * execute the micro instruction from machine
+     * execute the micro instruction from machine.
+     * If the access touches a cell watched for it, the access is completed
+     * and then a BreakException is thrown with the first such cell.
      */
     public void execute()
     {
@@ -157,28 +163,43 @@ public class MemoryAccess extends Microinstruction {
             }
         }
         int numBits = data.get().getWidth();
+        RAM ram = memory.get();
+        int numCells = (numBits + ram.getCellSize() - 1) / ram.getCellSize();
         if (direction.get().equals("read")) {
-            long value = memory.get().getData(addressValue, numBits);
+            long value = ram.getData(addressValue, numBits);
             data.get().setValue(value);
-//            if( memory.get().breakAtAddress(addressValue))
-//                throw new BreakException("Break in " + memory.get().getName() +
-//                        " read at address " + addressValue,
-//                        addressValue, memory.get());
+            int watched = ram.watchedAddress(WatchType.READ, addressValue, numCells);
+            if (watched != -1)
+                throw new BreakException("Break in " + ram.getName() +
+                        " read at address " + watched, watched, ram);
         }
         else {
             assert direction.get().equals("write") : "Illegal direction " +
                     direction.get() + " in MemoryAccess micro " + getName();
             long value = data.get().getValue();
-            memory.get().setData(addressValue, value, numBits);
-            //it would seem like the next statement should be added to the
-            //end of RAM.setData, but that method is called when the user
-            //manually edits the data in the RAM and we don't want a break
-            //to be called in that case(?).  But there should be a better way
-            //to do this.
-//            if (memory.get().breakAtAddress(addressValue))
-//                throw new BreakException("Break in " + memory.get().getName() +
-//                        " write at address " + addressValue,
-//                        addressValue, memory.get());
+            // save the old values only if a change may need to be detected
+            long[] oldValues = null;
+            if (ram.watchedAddress(WatchType.CHANGE, addressValue, numCells) != -1) {
+                oldValues = new long[numCells];
+                for (int i = 0; i < numCells; i++)
+                    oldValues[i] = ram.data().get(addressValue + i).getValue();
+            }
+            ram.setData(addressValue, value, numBits);
+            //the breaks are checked here rather than in RAM.setData because
+            //that method is also called when the user edits the RAM, where
+            //no break should happen.
+            int watched = ram.watchedAddress(WatchType.WRITE, addressValue, numCells);
+            if (watched != -1)
+                throw new BreakException("Break in " + ram.getName() +
+                        " write at address " + watched, watched, ram);
+            if (oldValues != null)
+                for (int i = 0; i < numCells; i++) {
+                    int addr = addressValue + i;
+                    if (oldValues[i] != ram.data().get(addr).getValue() &&
+                            ram.watchedAddress(WatchType.CHANGE, addr, 1) != -1)
+                        throw new BreakException("Break in " + ram.getName() +
+                                " change at address " + addr, addr, ram);
+                }
         }
     }
 
@@ -217,4 +238,13 @@ public class MemoryAccess extends Microinstruction {
     public boolean uses(Module m){
         return (m == memory.get() || m == data.get() || m == address.get());
     }
+
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(memory.get(), data.get(), address.get());
+    }
 }
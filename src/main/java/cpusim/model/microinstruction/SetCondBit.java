@@ -11,6 +11,8 @@ import cpusim.model.Module;
 import cpusim.model.module.ConditionBit;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The branch microinstruction is identical to the Test microinstruction except
@@ -141,4 +143,13 @@ public class SetCondBit extends Microinstruction {
     public boolean uses(Module m){
         return (m == bit.get());
     }
+
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(bit.get());
+    }
 }
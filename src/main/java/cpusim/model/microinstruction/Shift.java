@@ -19,6 +19,8 @@ import cpusim.model.module.Register;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The shift microinstruction performs a bit-wise shift of the contents of the
@@ -251,4 +253,13 @@ public class Shift extends Microinstruction{
     public boolean uses(Module m){
         return (m == source.get() || m == destination.get());
     }
+
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(source.get(), destination.get());
+    }
 }
@@ -13,6 +13,8 @@ import cpusim.model.module.Register;
 import cpusim.model.module.RegisterArray;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The TransferRtoA microinstruction transfers data from a register to a register array.
@@ -366,4 +368,13 @@ public class TransferAtoR extends Microinstruction {
         return (m == source.get() || m == dest.get() || m == index.get());
     }
 
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(source.get(), dest.get(), index.get());
+    }
+
 }
@@ -11,6 +11,8 @@ import cpusim.model.Module;
 import cpusim.model.module.Register;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The TransferRtoR microinstruction transfers data from a register to a register.
@@ -266,6 +268,15 @@ public class TransferRtoR extends Microinstruction {
         return (m == source.get() || m == dest.get());
     }
 
+    /**
+     * returns the modules this microinstruction uses, that is, every
+     * module m for which uses(m) returns true.
+     * @return a list of the modules used by this micro
+     */
+    public List<Module> getModulesUsed(){
+        return Arrays.<Module>asList(source.get(), dest.get());
+    }
+
     public static void main(String[] args) {
         Register src = new Register("SRC", 10);
         src.setValue(21);
@@ -20,15 +20,20 @@
 package cpusim.model.module;
 
 import cpusim.ExecutionException;
+import cpusim.model.BreakCondition;
 import cpusim.model.Module;
 import cpusim.assembler.AssembledInstructionCall;
 import cpusim.util.LoadException;
 import cpusim.util.SourceLine;
+import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleListProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -49,8 +54,46 @@ public class RAM extends Module
     private SimpleIntegerProperty length;
     /** set to true when CPU Sim is running in debug mode */
     private boolean haltAtBreaks;
+    /** set to true when the watchpoints are to stop the machine, that is,
+     * in debug mode or when they are set from the command line */
+    private boolean haltAtWatches;
     /** all 0s except the rightmost cellSize bits, which are 1s. */
     private long cellMask;
+    /** the range of addresses replaced by the most recent bulk load */
+    private SimpleObjectProperty<AddressRange> loadedRange;
+    /** the addresses watched for each WatchType, indexed by its ordinal.
+     * An entry is null until an address is watched for that type, so that
+     * checking an unwatched RAM costs a single null test. */
+    private BitSet[] watches;
+
+    /**
+     * AddressRange holds the first and last addresses of a range of cells.
+     * Like Machine.StateWrapper, it does not override equals so that
+     * listeners are notified even when the same range is loaded again.
+     */
+    public static class AddressRange {
+        private final int first;
+        private final int last;
+
+        public AddressRange(int first, int last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        /** @return the first address in the range */
+        public int getFirst() {
+            return first;
+        }
+
+        /** @return the last address in the range */
+        public int getLast() {
+            return last;
+        }
+
+        public String toString() {
+            return "[" + first + ".." + last + "]";
+        }
+    }
 
     /**
      * Constructor
@@ -76,10 +119,13 @@ public class RAM extends Module
         this.length = new SimpleIntegerProperty(length);
         this.data = FXCollections.observableArrayList();
         this.changedData = new SimpleListProperty<>(this,"RAM data",null);
+        this.loadedRange = new SimpleObjectProperty<>(this, "loaded range", null);
         for (int i=0; i<length; i++){
             this.data.add(new RAMLocation(i, 0, this, false, "", null));
         }
         this.haltAtBreaks = false; //can only fromRootController RAM when not in debug mode
+        this.haltAtWatches = false;
+        this.watches = new BitSet[WatchType.values().length];
         cellMask = 0;
         for (int i = 0; i < cellSize; i++)
             cellMask = (cellMask << 1) + 1;
@@ -205,11 +251,48 @@ public class RAM extends Module
         data.get(addr).setValue(value & cellMask);
     }
 
+    /**
+     * copies the given image into consecutive cells starting at the given
+     * address, replacing their values, comments and source lines.
+     * Each cell is written once, so only the cells whose values actually
+     * change notify their listeners, and then the whole range is signaled
+     * once through the loadedRange property.
+     * @param address address of the first cell to be loaded
+     * @param values the cell values, one per cell
+     * @param comments the comments of the cells, or null entries for no comment
+     * @param sourceLines the source lines of the cells, possibly null entries
+     */
+    public void loadImage(int address, long[] values, String[] comments,
+                          SourceLine[] sourceLines) {
+        if (address < 0 || address + values.length > data.size())
+            throw new ExecutionException("Attempted to load RAM " +
+                    getName() + " at addresses " + address + " to " +
+                    (address + values.length - 1) + " which are out of range");
+        for (int i = 0; i < values.length; i++) {
+            RAMLocation loc = data.get(address + i);
+            loc.setValue(values[i] & cellMask);
+            loc.setComment(comments[i] == null ? "" : comments[i].replace('\t', ' '));
+            loc.setSourceLine(sourceLines[i]);
+        }
+        if (values.length > 0)
+            loadedRange.set(new AddressRange(address, address + values.length - 1));
+    }
+
+    /**
+     * getter for the property holding the range of addresses most recently
+     * replaced by loadImage or loadAssembledInstructions.  Views of the RAM
+     * can listen to it to refresh the range once after a bulk load.
+     * @return the loaded range property
+     */
+    public ReadOnlyObjectProperty<AddressRange> loadedRangeProperty() {
+        return loadedRange;
+    }
+
     /**
      * getter for the data simple list property object
      * @return the data simple list property object
      */
-    public SimpleListProperty dataProperty(){
+    public SimpleListProperty<RAMLocation> dataProperty(){
         return changedData;
     }
 
@@ -265,12 +348,19 @@ public class RAM extends Module
     }
 
     /**
-     * break the ram at the given address
+     * break the ram at the given address.  The condition of the break, if
+     * any, is evaluated only here, so it costs nothing at other addresses.
      * @param addr address of the line to break
      * @return boolean value telling if it's break
      */
     public boolean breakAtAddress(int addr) {
-        return haltAtBreaks && addr >= 0 && addr < data.size() && data.get(addr).getBreak();
+        if (!haltAtBreaks || addr < 0 || addr >= data.size())
+            return false;
+        RAMLocation location = data.get(addr);
+        if (!location.getBreak())
+            return false;
+        BreakCondition condition = location.getBreakCondition();
+        return condition == null || condition.holds();
     }
 
     /**
@@ -282,6 +372,89 @@ public class RAM extends Module
         data.get(i).setBreak(value);
     }
 
+    /**
+     * set the break at the given index with the given condition
+     * @param i index in the RAM
+     * @param condition the condition under which to break, or null to
+     *                  break always
+     */
+    public void setBreak(int i, BreakCondition condition) {
+        // set the condition first so the break never holds with an old one
+        data.get(i).setBreakCondition(condition);
+        data.get(i).setBreak(true);
+    }
+
+    /**
+     * sets or clears a watchpoint on the cells from first to last, inclusive
+     * @param type the kind of access to be watched
+     * @param first the first address of the range
+     * @param last the last address of the range
+     * @param on true to set the watchpoint, false to clear it
+     */
+    public void setWatch(WatchType type, int first, int last, boolean on) {
+        if (first < 0 || last >= data.size() || first > last)
+            throw new ExecutionException("Attempted to watch RAM " + getName() +
+                    " at addresses " + first + " to " + last +
+                    " which are out of range");
+        BitSet bits = watches[type.ordinal()];
+        if (on) {
+            if (bits == null)
+                bits = watches[type.ordinal()] = new BitSet(data.size());
+            bits.set(first, last + 1);
+        }
+        else if (bits != null) {
+            bits.clear(first, last + 1);
+            if (bits.isEmpty())
+                watches[type.ordinal()] = null;
+        }
+    }
+
+    /**
+     * returns the first address in the given range of cells that is watched
+     * for the given kind of access.  Like breakAtAddress, it finds nothing
+     * unless this RAM is halting at its watchpoints.
+     * @param type the kind of access
+     * @param addr the first address of the range
+     * @param numCells the number of cells in the range
+     * @return the first watched address, or -1 if there is none
+     */
+    public int watchedAddress(WatchType type, int addr, int numCells) {
+        BitSet bits = watches[type.ordinal()];
+        if (bits == null || !haltAtWatches)
+            return -1;
+        int watched = bits.nextSetBit(addr);
+        return watched != -1 && watched < addr + numCells ? watched : -1;
+    }
+
+    /**
+     * returns true if the cell at the given address is watched for the given
+     * kind of access, whether or not this RAM is halting at its watchpoints
+     * @param type the kind of access
+     * @param addr the address of the cell
+     * @return true if the cell has a watchpoint of that type
+     */
+    public boolean isWatched(WatchType type, int addr) {
+        BitSet bits = watches[type.ordinal()];
+        return bits != null && bits.get(addr);
+    }
+
+    /**
+     * returns true if any cell of this RAM is watched for the given kind of
+     * access
+     * @param type the kind of access
+     * @return true if there is a watchpoint of that type
+     */
+    public boolean hasWatches(WatchType type) {
+        return watches[type.ordinal()] != null;
+    }
+
+    /**
+     * clears all the watchpoints on the cells of this RAM
+     */
+    public void clearAllWatches() {
+        Arrays.fill(watches, null);
+    }
+
     /**
      * getter for the cell size
      * @return the cell size
@@ -335,21 +508,41 @@ public class RAM extends Module
     /**
      * loads the given vector of assembled instructions into the
      * given RAM starting at the given starting address.
-     * returns true if the loading was successful.
      * It concatenates the bits in all the instrs to form one long list
-     * of bits and then inserts them in the RAM starting at the given
-     * address.
-     * If the memory is too small, it displays an error message.
+     * of bits, packs them into an image of the cells, and then copies the
+     * image into the RAM starting at the given address with loadImage, so
+     * that each cell is written only once and a single change of the
+     * loaded range is signaled.
+     * If the memory is too small, it throws a LoadException and the RAM
+     * is left unchanged.
      * @param instrs lists of the assembled instruction
      * @param address address to be loaded to
      */
     public void loadAssembledInstructions(
             List<AssembledInstructionCall> instrs, int address) {
-        int totalNumBits = 0;
-        int nextAddr = address;
+        int cellSize = this.cellSize.get();
+        long totalNumBits = 0;
+        for (AssembledInstructionCall nextInstr : instrs)
+            totalNumBits += nextInstr.length();
+        int numCells = (int) ((totalNumBits + cellSize - 1) / cellSize);
+        if (address + numCells > getLength()) {
+            throw new LoadException("There is not enough " +
+                    "room in RAM " + getName() + " to load the instructions " +
+                    "starting at address " + address, this, instrs);
+        }
+
+        // start with the current comments & SourceLines of the cells
+        long[] values = new long[numCells];
+        String[] comments = new String[numCells];
+        SourceLine[] sourceLines = new SourceLine[numCells];
+        for (int i = 0; i < numCells; i++) {
+            comments[i] = getComment(address + i);
+            sourceLines[i] = getSourceLine(address + i);
+        }
+
+        int nextAddr = 0;  // relative to address
         int cellIndex = 0;
         long cellValue = 0;
-
         for (AssembledInstructionCall nextInstr : instrs) {
             int instrIndex = 0;
             int instrLength = nextInstr.length();
@@ -357,31 +550,24 @@ public class RAM extends Module
             //remove any sign bits
             instrValue = (instrValue << (64 - instrLength)) >>> (64 - instrLength);
 
-            totalNumBits += instrLength;
-            if ((totalNumBits + cellSize.get() - 1) / cellSize.get() + address
-                    > getLength()) {
-                throw new LoadException("There is not enough " +
-                        "room in RAM " + getName() + " to load the instructions " +
-                        "starting at address " + address, this, instrs);
-            }
-
             //save comments & SourceLines
-            String c = getComment(nextAddr); //get current comment on that line
-            setComment(nextAddr, (c.length() == 0 ? "" : c + " | ") +
-                    nextInstr.getComment().trim());
-            if (getSourceLine(nextAddr) == null)
-                // if the line doesn't already have a SourceLine, add one
-                setSourceLine(nextAddr, nextInstr.getSourceLine());
+            if (nextAddr < numCells) {
+                String c = comments[nextAddr];
+                comments[nextAddr] = (c.length() == 0 ? "" : c + " | ") +
+                        nextInstr.getComment().trim();
+                if (sourceLines[nextAddr] == null)
+                    // if the line doesn't already have a SourceLine, add one
+                    sourceLines[nextAddr] = nextInstr.getSourceLine();
+            }
 
             // fill up as many cells as you can
-            while (instrLength - instrIndex >= cellSize.get() - cellIndex) {
+            while (instrLength - instrIndex >= cellSize - cellIndex) {
                 // add instr bits to successive cells
                 long value = instrValue << instrIndex;
-                value >>>= instrLength - (cellSize.get() - cellIndex);
+                value >>>= instrLength - (cellSize - cellIndex);
                 cellValue |= (value & cellMask);
-                setData(nextAddr, ~cellValue); // to invoke an ChangeListener
-                setData(nextAddr, cellValue);
-                instrIndex += cellSize.get() - cellIndex;
+                values[nextAddr] = cellValue;
+                instrIndex += cellSize - cellIndex;
                 nextAddr++;
                 cellIndex = 0;
                 cellValue = 0;
@@ -391,14 +577,17 @@ public class RAM extends Module
                 // those bits fit in the current cell
                 long value = instrValue << (64 - (instrLength - instrIndex));
                 value >>>= (64 - (instrLength - instrIndex));
-                value <<= (cellSize.get() - cellIndex) - (instrLength - instrIndex);
+                value <<= (cellSize - cellIndex) - (instrLength - instrIndex);
                 cellValue |= (value & cellMask);
                 cellIndex += instrLength - instrIndex;
             }
         }
-    }
-
+        if (cellIndex > 0)
+            // the last cell is only partially filled
+            values[nextAddr] = cellValue;
 
+        loadImage(address, values, comments, sourceLines);
+    }
 
     /**
      * clone the whole object
@@ -459,6 +648,14 @@ public class RAM extends Module
         haltAtBreaks = b;
     }
 
+    /**
+     * setter for the halt at watchpoints
+     * @param b if true then halt at watchpoints
+     */
+    public void setHaltAtWatches(boolean b) {
+        haltAtWatches = b;
+    }
+
     /**
      * getter for the length of address bits
      * @return the length of address bits
@@ -9,6 +9,7 @@
 
 package cpusim.model.module;
 
+import cpusim.model.BreakCondition;
 import cpusim.util.SourceLine;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleLongProperty;
@@ -22,6 +23,7 @@ public class RAMLocation{
     private SimpleLongProperty value;
     private RAM ram;
     private SimpleBooleanProperty breakPoint;
+    private BreakCondition breakCondition;  // null if the break is unconditional
     private SimpleStringProperty comment;
     private SourceLine sourceLine;
 
@@ -94,11 +96,30 @@ public class RAMLocation{
     }
 
     /**
-     * set the breakPoint property
+     * set the breakPoint property.  Clearing the breakPoint also clears
+     * its condition.
      * @param breakPoint the new value of breakPoint
      */
     public void setBreak(boolean breakPoint){
         this.breakPoint.set(breakPoint);
+        if (!breakPoint)
+            this.breakCondition = null;
+    }
+
+    /**
+     * getter of the condition of the breakPoint
+     * @return the condition, or null if the breakPoint is unconditional
+     */
+    public BreakCondition getBreakCondition(){
+        return breakCondition;
+    }
+
+    /**
+     * set the condition under which the breakPoint stops execution
+     * @param breakCondition the new condition, or null to stop always
+     */
+    public void setBreakCondition(BreakCondition breakCondition){
+        this.breakCondition = breakCondition;
     }
 
     /**
@@ -54,6 +54,10 @@ public class Register extends Module
     private boolean programCounter; // if true, program breaks when this register's value
                                     // matches the address of an instruction where a break
                                     // point has been set
+    private int watches;    // bit i is set if the register is watched for the
+                            // WatchType with ordinal i
+    private boolean watchHit; // true if a watched write happened since the
+                              // last call of takeWatchHit()
 
     /**
      * Constructor
@@ -161,6 +165,11 @@ public class Register extends Module
                 " to value " + newValue + " which is out of range.";
         final long oldValue = value.get();
         value.set(newValue);
+        if (watches != 0 && ((watches & (1 << WatchType.WRITE.ordinal())) != 0 ||
+                (watches & (1 << WatchType.CHANGE.ordinal())) != 0 &&
+                        oldValue != newValue)) {
+            watchHit = true;
+        }
     }
 
     /**
@@ -254,6 +263,56 @@ public class Register extends Module
         newRegister.setNameDirty(nameDirty);
     }
 
+    //------------------------
+    // watchpoints
+
+    /**
+     * sets or clears a watchpoint on this register.  Unlike a RAM, a register
+     * cannot be watched for reads.
+     * @param type the kind of access to be watched, WRITE or CHANGE
+     * @param on true to set the watchpoint, false to clear it
+     */
+    public void setWatch(WatchType type, boolean on)
+    {
+        assert type != WatchType.READ : "Registers cannot be watched for reads";
+        if (on)
+            watches |= 1 << type.ordinal();
+        else
+            watches &= ~(1 << type.ordinal());
+    }
+
+    /**
+     * returns true if this register is watched for the given kind of access
+     * @param type the kind of access
+     * @return true if there is a watchpoint of that type
+     */
+    public boolean isWatched(WatchType type)
+    {
+        return (watches & (1 << type.ordinal())) != 0;
+    }
+
+    /**
+     * returns true if this register has any watchpoints
+     * @return true if it is watched for some kind of access
+     */
+    public boolean hasWatches()
+    {
+        return watches != 0;
+    }
+
+    /**
+     * returns true if a write matching one of the watchpoints of this
+     * register happened since the last call, and forgets it.  The machine
+     * calls it after each micro it executes.
+     * @return true if a watchpoint was hit
+     */
+    public boolean takeWatchHit()
+    {
+        boolean hit = watchHit;
+        watchHit = false;
+        return hit;
+    }
+
     /**
      * sets the name dirty value
      * @param dirty new boolean value
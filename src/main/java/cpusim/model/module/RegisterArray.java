@@ -212,18 +212,20 @@ public class RegisterArray extends Module
      */
     public String getHTMLDescription()
     {
-        String registerTableString = "<TABLE bgcolor=\"#FFC0A0\" BORDER=\"1\"" +
+        StringBuilder result = new StringBuilder();
+        result.append("<TR><TD>").append(getHTMLName()).append("</TD><TD>")
+                .append(getLength()).append("</TD><TD>").append(getWidth())
+                .append("</TD><TD>");
+        result.append("<TABLE bgcolor=\"#FFC0A0\" BORDER=\"1\"" +
                     "CELLPADDING=\"0\" CELLSPACING=\"3\" WIDTH=\"100%\">" + 
                 "<TR><TD><B>Name</B></TD><TD><B>" +
                 "Width</B></TD><TD><B>Initial Value</B></TD>"+
-                "<TD><B>Read Only</B></TD><B>";
+                "<TD><B>Read Only</B></TD><B>");
         for (Register register : registers){
-            registerTableString += register.getHTMLDescription();
+            result.append(register.getHTMLDescription());
         }
-        registerTableString += "</TABLE><P></P>";
-        return "<TR><TD>" + getHTMLName() + "</TD><TD>" + getLength() +
-                "</TD><TD>" + getWidth() + "</TD><TD>" + registerTableString +
-                "</TD></TR>";
+        result.append("</TABLE><P></P>");
+        return result.append("</TD></TR>").toString();
     }
 
     /**
@@ -233,14 +235,17 @@ public class RegisterArray extends Module
     public String getXMLDescription()
     {
         String nl = System.getProperty("line.separator");
-        String result = "<RegisterArray name=\"" + getHTMLName() + "\" length=\""
-                + getLength() + "\" width=\"" + getWidth() + "\" id=\""
-                + getID() + "\" >" + nl;
+        StringBuilder result = new StringBuilder();
+        result.append("<RegisterArray name=\"").append(getHTMLName())
+                .append("\" length=\"").append(getLength())
+                .append("\" width=\"").append(getWidth())
+                .append("\" id=\"").append(getID()).append("\" >").append(nl);
         //write the descriptions of all the registers in the array
         for(int i = 0; i < length.get(); i++)
-            result += "\t\t" + registers.get(i).getXMLDescription() + nl;
-        result += "\t</RegisterArray>";
-        return result;
+            result.append("\t\t").append(registers.get(i).getXMLDescription())
+                    .append(nl);
+        result.append("\t</RegisterArray>");
+        return result.toString();
     }
 
     /**
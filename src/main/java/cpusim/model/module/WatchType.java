@@ -0,0 +1,30 @@
+/**
+ * File: WatchType
+ * Project: CPU Sim
+ */
+package cpusim.model.module;
+
+/**
+ * The kinds of access that a watchpoint on RAM cells or on a register can
+ * stop execution at.  A READ or WRITE watchpoint stops at every read or
+ * write, and a CHANGE watchpoint only at writes that change the value.
+ * Registers can only be watched for WRITE and CHANGE, since their values
+ * are read everywhere, including by the displays.
+ */
+public enum WatchType {
+    READ("Read"), WRITE("Write"), CHANGE("Change");
+
+    private final String displayName;
+
+    WatchType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * returns the name of this kind of access as shown in menus
+     * @return the name with only its first letter capitalized
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
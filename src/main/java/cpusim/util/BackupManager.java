@@ -244,6 +244,15 @@ public class BackupManager
 	{
 		return (!machineInstructionStack.empty());
 	}
+	/**
+	 * Returns the number of machine instruction states currently saved.
+	 * It may be called from any thread.
+	 * @return the number of states that can be backed up
+	 */
+	public int getNumBackupStates()
+	{
+		return machineInstructionStack.size();
+	}
 	/**
 	 * Returns true if there are backup microinstruction states currently saved
 	 * @return boolean value
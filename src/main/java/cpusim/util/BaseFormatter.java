@@ -0,0 +1,366 @@
+/**
+ * File: BaseFormatter
+ * Project: CPU Sim
+ */
+package cpusim.util;
+
+/**
+ * Formats the values of registers and RAM cells in binary, hexadecimal,
+ * decimal, unsigned decimal, ASCII or Unicode using a given number of bits,
+ * as the fromLongTo...String methods of Convert do.
+ * <p>
+ * A formatter writes the digits straight into a char array, using lookup
+ * tables for the digits of nibbles and bytes, so formatting a value into a
+ * caller's array creates no objects at all and formatting it into a String
+ * creates only the String.  The formatters are immutable and one is cached
+ * for each style, number of bits up to 64 and grouping, so the displays and
+ * exporters can get the one they need for each value.
+ */
+public class BaseFormatter {
+
+    /**
+     * The ways a value can be formatted
+     */
+    public enum Style {
+        /** two's complement binary, with at least numBits digits */
+        BINARY,
+        /** two's complement hexadecimal, with at least numBits / 4 digits,
+         * rounded up */
+        HEX,
+        /** signed decimal, whatever the number of bits */
+        DECIMAL,
+        /** unsigned decimal of the low numBits bits */
+        UNSIGNED_DECIMAL,
+        /** one char for each byte, with a box for the control chars */
+        ASCII,
+        /** one char for each 16 bits */
+        UNICODE
+    }
+
+    /** the largest number of bits for which the formatters are cached */
+    private static final int MAX_CACHED_BITS = 64;
+    /** the char shown in ASCII for the control chars 0 to 31 */
+    private static final char UNPRINTABLE = '☐';
+
+    /** the cached formatters, indexed by style, grouping and number of bits */
+    private static final BaseFormatter[][][] formatters =
+            new BaseFormatter[Style.values().length][2][MAX_CACHED_BITS + 1];
+
+    /** the two hexadecimal digits of each byte */
+    private static final char[] BYTE_HEX = new char[512];
+    /** the four binary digits of each nibble */
+    private static final char[] NIBBLE_BITS = new char[64];
+    /** the two decimal digits of each number from 0 to 99 */
+    private static final char[] DIGIT_PAIRS = new char[200];
+    /** the char shown in ASCII for each byte */
+    private static final char[] BYTE_ASCII = new char[256];
+
+    static {
+        char[] hexDigits = "0123456789ABCDEF".toCharArray();
+        for (int i = 0; i < 256; i++) {
+            BYTE_HEX[2 * i] = hexDigits[i >>> 4];
+            BYTE_HEX[2 * i + 1] = hexDigits[i & 15];
+            BYTE_ASCII[i] = i < 32 ? UNPRINTABLE : (char) i;
+        }
+        for (int i = 0; i < 16; i++) {
+            for (int bit = 0; bit < 4; bit++) {
+                NIBBLE_BITS[4 * i + bit] = (i >>> (3 - bit) & 1) == 0 ? '0' : '1';
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (char) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (char) ('0' + i % 10);
+        }
+    }
+
+    /** the array each thread formats Strings in, grown as needed */
+    private static final ThreadLocal<char[]> buffers =
+            ThreadLocal.withInitial(() -> new char[128]);
+
+    private final Style style;
+    private final int numBits;
+    private final boolean grouped;
+    /** the low numBits bits */
+    private final long mask;
+    /** the smallest number of digits or chars written */
+    private final int minDigits;
+
+    private BaseFormatter(Style style, int numBits, boolean grouped) {
+        this.style = style;
+        this.numBits = numBits;
+        this.grouped = grouped;
+        this.mask = numBits >= 64 ? -1L : (1L << numBits) - 1;
+        switch (style) {
+            case BINARY:
+                minDigits = Math.max(numBits, 1);
+                break;
+            case HEX:
+                minDigits = Math.max((numBits + 3) / 4, 1);
+                break;
+            case ASCII:
+                minDigits = (numBits + 7) / 8;
+                break;
+            case UNICODE:
+                minDigits = numBits / 16;
+                break;
+            default:
+                minDigits = 1;
+        }
+    }
+
+    /**
+     * returns the formatter for the given style and number of bits
+     *
+     * @param style the style of the digits
+     * @param numBits the number of bits of the values formatted
+     * @param grouped true if the digits are to be put in groups of 4,
+     *                separated by 2 spaces, working from right to left, as
+     *                Convert.insertSpacesInString does
+     * @return the formatter
+     * @throws IllegalArgumentException if numBits is negative
+     */
+    public static BaseFormatter get(Style style, int numBits, boolean grouped) {
+        if (numBits < 0) {
+            throw new IllegalArgumentException("The number of bits " + numBits +
+                    " is negative.");
+        }
+        if (numBits > MAX_CACHED_BITS) {
+            return new BaseFormatter(style, numBits, grouped);
+        }
+        BaseFormatter[] cached = formatters[style.ordinal()][grouped ? 1 : 0];
+        // formatters are immutable, so creating one twice does no harm
+        BaseFormatter formatter = cached[numBits];
+        if (formatter == null) {
+            formatter = new BaseFormatter(style, numBits, grouped);
+            cached[numBits] = formatter;
+        }
+        return formatter;
+    }
+
+    /**
+     * returns the largest number of chars written for any value
+     *
+     * @return the length of the longest formatted value
+     */
+    public int getMaxLength() {
+        int maxDigits;
+        switch (style) {
+            case BINARY:
+                maxDigits = Math.max(numBits, 64);
+                break;
+            case HEX:
+                maxDigits = Math.max(minDigits, 16);
+                break;
+            case DECIMAL:
+            case UNSIGNED_DECIMAL:
+                maxDigits = 20;
+                break;
+            default:
+                maxDigits = minDigits;
+        }
+        return groupedLength(maxDigits);
+    }
+
+    /**
+     * returns the value formatted as a String
+     *
+     * @param value the value to format
+     * @return the formatted value
+     */
+    public String format(long value) {
+        char[] buffer = buffers.get();
+        if (buffer.length < getMaxLength()) {
+            buffer = new char[getMaxLength()];
+            buffers.set(buffer);
+        }
+        return new String(buffer, 0, format(value, buffer, 0));
+    }
+
+    /**
+     * writes the formatted value into the given array
+     *
+     * @param value the value to format
+     * @param dest the array to write into, with room for getMaxLength()
+     *             chars from offset on
+     * @param offset the index of dest at which to write the first char
+     * @return the number of chars written
+     */
+    public int format(long value, char[] dest, int offset) {
+        int numDigits;
+        switch (style) {
+            case BINARY:
+                numDigits = writeBinary(value, dest, offset);
+                break;
+            case HEX:
+                numDigits = writeHex(value < 0 ? value & mask : value, dest, offset);
+                break;
+            case DECIMAL:
+                numDigits = writeDecimal(value, dest, offset);
+                break;
+            case UNSIGNED_DECIMAL:
+                numDigits = writeDecimal(value < 0 && numBits < 64 ? value & mask : value,
+                        dest, offset, true);
+                break;
+            case ASCII:
+                numDigits = writeAscii(value, dest, offset);
+                break;
+            default:
+                numDigits = writeUnicode(value, dest, offset);
+        }
+        if (!grouped) {
+            return numDigits;
+        }
+        // spread the digits out from the right, which is safe in place since
+        // each digit moves right
+        int length = groupedLength(numDigits);
+        for (int k = 0; k < numDigits; k++) {
+            int to = offset + length - 1 - k - 2 * (k / 4);
+            dest[to] = dest[offset + numDigits - 1 - k];
+            if (k % 4 == 3 && k < numDigits - 1) {
+                dest[to - 1] = ' ';
+                dest[to - 2] = ' ';
+            }
+        }
+        return length;
+    }
+
+    /**
+     * returns the number of chars of the given number of digits once they
+     * are grouped
+     */
+    private int groupedLength(int numDigits) {
+        return grouped && numDigits > 0 ? numDigits + 2 * ((numDigits - 1) / 4) : numDigits;
+    }
+
+    /**
+     * writes the low numBits bits of a negative value, or all the bits of
+     * a non-negative value with at least numBits digits
+     */
+    private int writeBinary(long value, char[] dest, int offset) {
+        int numDigits = value < 0 ? numBits :
+                Math.max(minDigits, 64 - Long.numberOfLeadingZeros(value));
+        int end = offset + numDigits;
+        int bit = 0;
+        for (; bit + 4 <= numDigits; bit += 4) {
+            int nibble = bit < 64 ? (int) (value >>> bit) & 15 : value < 0 ? 15 : 0;
+            end -= 4;
+            dest[end] = NIBBLE_BITS[4 * nibble];
+            dest[end + 1] = NIBBLE_BITS[4 * nibble + 1];
+            dest[end + 2] = NIBBLE_BITS[4 * nibble + 2];
+            dest[end + 3] = NIBBLE_BITS[4 * nibble + 3];
+        }
+        for (; bit < numDigits; bit++) {
+            long b = bit < 64 ? value >>> bit & 1 : value < 0 ? 1 : 0;
+            dest[--end] = b == 0 ? '0' : '1';
+        }
+        return numDigits;
+    }
+
+    /**
+     * writes the value, whose bits above numBits are already cleared if it
+     * was negative, in hexadecimal with at least minDigits digits
+     */
+    private int writeHex(long value, char[] dest, int offset) {
+        int numDigits = Math.max(minDigits,
+                (64 - Long.numberOfLeadingZeros(value) + 3) / 4);
+        int end = offset + numDigits;
+        int digit = 0;
+        for (; digit + 2 <= numDigits; digit += 2) {
+            int b = digit < 16 ? (int) (value >>> 4 * digit) & 255 : 0;
+            end -= 2;
+            dest[end] = BYTE_HEX[2 * b];
+            dest[end + 1] = BYTE_HEX[2 * b + 1];
+        }
+        if (digit < numDigits) {
+            int nibble = digit < 16 ? (int) (value >>> 4 * digit) & 15 : 0;
+            dest[--end] = BYTE_HEX[2 * nibble + 1];
+        }
+        return numDigits;
+    }
+
+    /**
+     * writes the value in signed decimal
+     */
+    private static int writeDecimal(long value, char[] dest, int offset) {
+        if (value >= 0) {
+            return writeDecimal(value, dest, offset, false);
+        }
+        dest[offset] = '-';
+        // work with the unsigned magnitude so that Long.MIN_VALUE is right
+        return 1 + writeDecimal(-value, dest, offset + 1, true);
+    }
+
+    /**
+     * writes the value in decimal, treating it as unsigned if asked to
+     */
+    private static int writeDecimal(long value, char[] dest, int offset,
+                                    boolean unsigned) {
+        int numDigits = unsigned && value < 0 ? 20 : numDecimalDigits(value);
+        int end = offset + numDigits;
+        if (unsigned && value < 0) {
+            long quotient = Long.divideUnsigned(value, 10);
+            dest[--end] = (char) ('0' + (value - quotient * 10));
+            value = quotient;
+        }
+        while (value >= 100) {
+            int pair = (int) (value % 100);
+            value /= 100;
+            end -= 2;
+            dest[end] = DIGIT_PAIRS[2 * pair];
+            dest[end + 1] = DIGIT_PAIRS[2 * pair + 1];
+        }
+        if (value >= 10) {
+            end -= 2;
+            dest[end] = DIGIT_PAIRS[2 * (int) value];
+            dest[end + 1] = DIGIT_PAIRS[2 * (int) value + 1];
+        }
+        else {
+            dest[--end] = (char) ('0' + value);
+        }
+        // the unsigned case has one digit fewer than 20 when it is below 10^19
+        if (end > offset) {
+            System.arraycopy(dest, end, dest, offset, numDigits - (end - offset));
+            numDigits -= end - offset;
+        }
+        return numDigits;
+    }
+
+    /**
+     * returns the number of decimal digits of a non-negative value
+     */
+    private static int numDecimalDigits(long value) {
+        int numDigits = 1;
+        for (long limit = 10; numDigits < 19 && value >= limit; limit *= 10) {
+            numDigits++;
+        }
+        return numDigits;
+    }
+
+    /**
+     * writes one char for each byte of the numBits bits, and one for the
+     * left-over bits if numBits is not a multiple of 8
+     */
+    private int writeAscii(long value, char[] dest, int offset) {
+        int end = offset + minDigits;
+        for (int i = 0; i < numBits / 8; i++) {
+            dest[--end] = BYTE_ASCII[(int) value & 255];
+            value >>>= 8;
+        }
+        if (numBits % 8 > 0) {
+            dest[--end] = BYTE_ASCII[(int) value & ((1 << numBits % 8) - 1)];
+        }
+        return minDigits;
+    }
+
+    /**
+     * writes one char for each 16 of the numBits bits
+     */
+    private int writeUnicode(long value, char[] dest, int offset) {
+        int end = offset + minDigits;
+        for (int i = 0; i < minDigits; i++) {
+            dest[--end] = (char) value;
+            value >>>= 16;
+        }
+        return minDigits;
+    }
+}
@@ -191,17 +191,8 @@ public class Convert
 
     public static String fromLongToTwosComplementString(long value, int numBits)
     {
-        String stringValue;
-        if (value < 0)
-            stringValue =
-                    Long.toBinaryString(value).substring(64 - numBits);
-        else {
-            stringValue = Long.toBinaryString(value);
-            int length = stringValue.length();
-            for (int i = 0; i < numBits - length; i++)
-                stringValue = "0" + stringValue;
-        }
-        return stringValue;
+        return BaseFormatter.get(BaseFormatter.Style.BINARY, numBits, false)
+                .format(value);
     }
 
     //----------------------------
@@ -210,20 +201,8 @@ public class Convert
 
     public static String fromLongToHexadecimalString(long value, int numBits)
     {
-        if (value < 0 && numBits == 64) {
-            //return Long.toString(value, 16).toUpperCase();
-            String left = Convert.fromLongToHexadecimalString(value >>> 32, 32);
-            String right = Convert.fromLongToHexadecimalString(
-                                     value & Integer.MAX_VALUE, 32);
-            return left + right;
-        }
-        if (value < 0)
-            value += powerOfTwo(numBits);
-        String stringValue = Long.toString(value, 16);
-        int length = stringValue.length();
-        for (int i = 0; i < numBits - 4 * length; i += 4)
-            stringValue = "0" + stringValue;
-        return stringValue.toUpperCase();
+        return BaseFormatter.get(BaseFormatter.Style.HEX, numBits, false)
+                .format(value);
     }
 
     /**
@@ -235,10 +214,8 @@ public class Convert
      */
     public static String fromLongToUnsignedDecString(long l, int numBits)
     {
-        if (l < 0) {
-            l += powerOfTwo(numBits);
-        }
-        return Long.toString(l, 10);
+        return BaseFormatter.get(BaseFormatter.Style.UNSIGNED_DECIMAL, numBits, false)
+                .format(l);
     }
 
     /**
@@ -250,13 +227,8 @@ public class Convert
      */
     public static String fromLongToUnicodeString(long l, int numBits)
     {
-        String result = "";
-        for (int i = 0; i < numBits / 16; i++) {
-            char c = (char) (l & 65535);
-            l = l >>> 16;
-            result = c + result;
-        }
-        return result;
+        return BaseFormatter.get(BaseFormatter.Style.UNICODE, numBits, false)
+                .format(l);
     }
 
     //------------------------------
@@ -272,33 +244,8 @@ public class Convert
      */
     public static String fromLongToAsciiString(long l, int numBits)
     {
-        String result = "";
-        for( int i = 0; i < numBits/8; i++) {
-            //ASCII chars 0-31 are control characters,
-            //these are unprintable and should show a box instead
-            //The box is the way the DELETE char is displayed
-            if( (l&255)<32){
-                result = "☐" + result;
-            }
-            
-            else /* ascii character is printable */ {
-                char c = (char) (l & 255);
-                result = c + result;
-            }
-            
-            l = l >>> 8;
-        }
-        if( numBits % 8 > 0) { // there are left-over bits
-            int remainingBits = numBits % 8;
-            int mask = (int) powerOfTwo(remainingBits) - 1;
-            if( (l & mask) < 32 )
-                result = "☐" + result;
-            else {
-                char c = (char) (l & mask);
-                result = c + result;
-            }
-        }
-        return result;
+        return BaseFormatter.get(BaseFormatter.Style.ASCII, numBits, false)
+                .format(l);
     }
 
     //----------------------------
@@ -307,10 +254,8 @@ public class Convert
 
     public static long powerOfTwo(int power)
     {
-        long result = 1;
-        for (int i = 1; i <= power; i++)
-            result *= 2;
-        return result;
+        // 2 to the power 64 or more overflows to 0
+        return power < 64 ? 1L << power : 0;
     }
 
     //~~~~~~~~~~~~ String ==> long ~~~~~~~~~~~~~~~~~
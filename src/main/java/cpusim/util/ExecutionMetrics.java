@@ -0,0 +1,254 @@
+/**
+ * File: ExecutionMetrics
+ * Project: CPU Sim
+ */
+package cpusim.util;
+
+import cpusim.iochannel.IOChannel;
+import cpusim.model.Machine;
+import cpusim.model.module.Register;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes the throughput and state of the executing machine as a JMX
+ * MXBean, so that standard JVM tools can watch long runs, such as those
+ * of batch grading, while they go on.  The machine counts each micro and
+ * each machine cycle here, and IO micros count the bytes they transfer,
+ * all in LongAdders so that counting needs no locking.  The rates and the
+ * other values are computed only when a client reads them.
+ */
+public class ExecutionMetrics implements ExecutionMetricsMXBean {
+    /** the name under which the metrics are registered */
+    public static final String OBJECT_NAME = "cpusim:type=ExecutionMetrics";
+
+    /** the shortest interval over which the rates are computed */
+    private static final long SAMPLE_NANOS = 1000000000L;
+
+    private final LongAdder micros;
+    private final LongAdder machineCycles;
+    /** the bytes transferred through each channel */
+    private final ConcurrentHashMap<IOChannel, LongAdder> ioBytes;
+
+    private volatile Machine machine;
+    private volatile BackupManager backupManager;
+    /** the id of the thread executing the machine, or -1 if none yet */
+    private volatile long executionThreadId;
+
+    /** the counts when the rates were last computed, and the rates */
+    private long sampleTime;
+    private long sampleMicros;
+    private long sampleMachineCycles;
+    private double microsPerSecond;
+    private double machineCyclesPerSecond;
+
+    /**
+     * creates the metrics with all counters zero and no machine
+     */
+    public ExecutionMetrics() {
+        micros = new LongAdder();
+        machineCycles = new LongAdder();
+        ioBytes = new ConcurrentHashMap<>();
+        executionThreadId = -1;
+        sampleTime = System.nanoTime();
+    }
+
+    /**
+     * registers these metrics with the platform MBean server
+     *
+     * @throws JMException if they could not be registered, for example
+     *                     because other metrics already are
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * makes the given machine the one whose execution is counted, in place
+     * of the previous one
+     *
+     * @param newMachine the machine to be watched
+     */
+    public void setMachine(Machine newMachine) {
+        Machine oldMachine = machine;
+        if (oldMachine != null && oldMachine.getMetrics() == this) {
+            oldMachine.setMetrics(null);
+        }
+        machine = newMachine;
+        if (newMachine != null) {
+            newMachine.setMetrics(this);
+        }
+    }
+
+    /**
+     * sets the backup manager whose saved states are reported
+     *
+     * @param backupManager the backup manager, or null if there is none
+     */
+    public void setBackupManager(BackupManager backupManager) {
+        this.backupManager = backupManager;
+    }
+
+    /**
+     * records that the current thread is the one executing the machine.
+     * The machine calls it each time it starts executing.
+     */
+    public void executionStarted() {
+        executionThreadId = Thread.currentThread().getId();
+    }
+
+    /**
+     * counts the execution of one micro.  The machine calls it before
+     * executing each micro.
+     *
+     * @param startsMachineCycle true if the micro is the first of the
+     *                           fetch sequence
+     */
+    public void countMicro(boolean startsMachineCycle) {
+        micros.increment();
+        if (startsMachineCycle) {
+            machineCycles.increment();
+        }
+    }
+
+    /**
+     * counts bytes read from or written to a channel by an IO micro
+     *
+     * @param channel the channel used
+     * @param numBytes the number of bytes transferred
+     */
+    public void countIOBytes(IOChannel channel, int numBytes) {
+        ioBytes.computeIfAbsent(channel, k -> new LongAdder()).add(numBytes);
+    }
+
+    @Override
+    public String getMachineName() {
+        Machine m = machine;
+        return m == null ? "" : m.getName();
+    }
+
+    @Override
+    public String getRunMode() {
+        Machine m = machine;
+        return m == null ? "" : m.getRunMode().toString();
+    }
+
+    @Override
+    public long getProgramCounter() {
+        Machine m = machine;
+        Register pc = m == null ? null : m.getProgramCounter();
+        return pc == null || pc == Machine.PLACE_HOLDER_REGISTER ? -1 : pc.getValue();
+    }
+
+    @Override
+    public long getMicrosExecuted() {
+        return micros.sum();
+    }
+
+    @Override
+    public long getMachineCyclesExecuted() {
+        return machineCycles.sum();
+    }
+
+    @Override
+    public double getMicrosPerSecond() {
+        sample();
+        synchronized (this) {
+            return microsPerSecond;
+        }
+    }
+
+    @Override
+    public double getMachineCyclesPerSecond() {
+        sample();
+        synchronized (this) {
+            return machineCyclesPerSecond;
+        }
+    }
+
+    /**
+     * computes the rates again if a second or more has passed since they
+     * were last computed
+     */
+    private synchronized void sample() {
+        long now = System.nanoTime();
+        if (now - sampleTime < SAMPLE_NANOS) {
+            return;
+        }
+        long newMicros = micros.sum();
+        long newMachineCycles = machineCycles.sum();
+        double seconds = (now - sampleTime) / 1e9;
+        // the counters may have been reset since the last sample
+        microsPerSecond = Math.max(newMicros - sampleMicros, 0) / seconds;
+        machineCyclesPerSecond =
+                Math.max(newMachineCycles - sampleMachineCycles, 0) / seconds;
+        sampleTime = now;
+        sampleMicros = newMicros;
+        sampleMachineCycles = newMachineCycles;
+    }
+
+    @Override
+    public int getBackupStates() {
+        BackupManager manager = backupManager;
+        return manager == null ? 0 : manager.getNumBackupStates();
+    }
+
+    @Override
+    public Map<String, Long> getIOBytesPerChannel() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<IOChannel, LongAdder> entry : ioBytes.entrySet()) {
+            result.merge(entry.getKey().toString(), entry.getValue().sum(), Long::sum);
+        }
+        return result;
+    }
+
+    @Override
+    public long getExecutionThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long id = executionThreadId;
+        if (id == -1 || !(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunThreads =
+                (com.sun.management.ThreadMXBean) threads;
+        return sunThreads.isThreadAllocatedMemoryEnabled() ?
+                sunThreads.getThreadAllocatedBytes(id) : -1;
+    }
+
+    @Override
+    public long getGarbageCollections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector :
+                ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(collector.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    @Override
+    public long getGarbageCollectionMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector :
+                ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(collector.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    @Override
+    public void resetCounters() {
+        micros.reset();
+        machineCycles.reset();
+        ioBytes.clear();
+    }
+}
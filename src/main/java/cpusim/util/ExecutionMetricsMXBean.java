@@ -0,0 +1,87 @@
+/**
+ * File: ExecutionMetricsMXBean
+ * Project: CPU Sim
+ */
+package cpusim.util;
+
+import java.util.Map;
+
+/**
+ * The management interface of ExecutionMetrics, through which JMX clients
+ * such as jconsole can watch the progress and speed of the simulator.
+ */
+public interface ExecutionMetricsMXBean {
+
+    /**
+     * @return the name of the machine being executed
+     */
+    String getMachineName();
+
+    /**
+     * @return the run mode of the machine, such as RUN or STOP
+     */
+    String getRunMode();
+
+    /**
+     * @return the value of the program counter, or -1 if the machine has
+     *         no program counter
+     */
+    long getProgramCounter();
+
+    /**
+     * @return the number of microinstructions executed since the counters
+     *         were last reset
+     */
+    long getMicrosExecuted();
+
+    /**
+     * @return the number of machine cycles started since the counters were
+     *         last reset
+     */
+    long getMachineCyclesExecuted();
+
+    /**
+     * @return the number of microinstructions executed per second, over the
+     *         last second or more
+     */
+    double getMicrosPerSecond();
+
+    /**
+     * @return the number of machine cycles started per second, over the last
+     *         second or more
+     */
+    double getMachineCyclesPerSecond();
+
+    /**
+     * @return the number of machine instructions whose changes are saved by
+     *         the backup manager so they can be undone, or 0 if there is none
+     */
+    int getBackupStates();
+
+    /**
+     * @return the number of bytes read or written by IO micros through each
+     *         channel, keyed by the name of the channel
+     */
+    Map<String, Long> getIOBytesPerChannel();
+
+    /**
+     * @return the number of bytes allocated by the thread executing the
+     *         machine, or -1 if the JVM cannot measure it
+     */
+    long getExecutionThreadAllocatedBytes();
+
+    /**
+     * @return the total number of garbage collections in the JVM
+     */
+    long getGarbageCollections();
+
+    /**
+     * @return the total time spent in garbage collections, in milliseconds
+     */
+    long getGarbageCollectionMillis();
+
+    /**
+     * sets the counters of micros, machine cycles and IO bytes back to zero
+     */
+    void resetCounters();
+}
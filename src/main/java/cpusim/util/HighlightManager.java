@@ -17,7 +17,9 @@ package cpusim.util;
 import cpusim.Mediator;
 import cpusim.gui.desktop.DesktopController;
 import cpusim.gui.desktop.RamTableController;
+import cpusim.gui.desktop.editorpane.CodePaneTab;
 import cpusim.gui.desktop.editorpane.LineNumAndBreakpointFactory;
+import cpusim.gui.desktop.editorpane.LineOffsetIndex;
 import cpusim.model.Machine;
 import cpusim.model.module.RAM;
 import cpusim.model.module.RAMLocation;
@@ -26,7 +28,6 @@ import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.scene.control.Tab;
 import org.fxmisc.richtext.InlineStyleTextArea;
 
 import java.io.File;
@@ -44,6 +45,8 @@ public class HighlightManager implements ChangeListener<Machine.StateWrapper>
     private boolean startBreak, endBreak;
     private RAM breakRAM;
     private int breakAddress;
+    // key = name of a source file, value = the tab last found for the file
+    private HashMap<String, CodePaneTab> tabsForFileNames;
 
     /**
      * Constructor
@@ -58,6 +61,7 @@ public class HighlightManager implements ChangeListener<Machine.StateWrapper>
         this.breakAddress = -1;
         this.startBreak = false;
         highlightingPairs = new HashMap<>();
+        tabsForFileNames = new HashMap<>();
         mediator.getMachine().stateProperty().addListener(this);
     }
 
@@ -115,12 +119,12 @@ public class HighlightManager implements ChangeListener<Machine.StateWrapper>
         }
 
         //update pairs for deleted Registers
-        ObservableList allRegisters = mediator.getMachine().getAllRegisters();
+        Machine machine = mediator.getMachine();
         for (Vector<RegisterRAMPair> pairs : highlightingPairs.values()) {
             for (int i = pairs.size() - 1; i >= 0; i--) {
-                RegisterRAMPair pair = pairs.elementAt(i);
-                if (!allRegisters.contains(pair.getRegister())) {
-                    pairs.remove(pair);
+                Register register = pairs.elementAt(i).getRegister();
+                if (machine.getRegisterWithID(register.getID()) != register) {
+                    pairs.remove(i);
                 }
             }
         }
@@ -183,16 +187,13 @@ public class HighlightManager implements ChangeListener<Machine.StateWrapper>
     private void highlightBreakInText(RAM ram, int breakAddress) {
         SourceLine sourceLine = ram.getSourceLine(breakAddress);
         if (sourceLine != null) {
-            File file = new File(sourceLine.getFileName());
-            if (!file.canRead()) {
+            CodePaneTab newTabForFile = getTabForFileName(sourceLine.getFileName());
+            if (newTabForFile == null) {
                 return;
             }
-            Tab newTabForFile = desktop.getTabForFile(file);
             InlineStyleTextArea text = (InlineStyleTextArea) newTabForFile.getContent();
             int line = sourceLine.getLine();
-            int start = getLineStartOffset(text.getText(), line);
-            int end = getLineEndOffset(text.getText(), line);
-            text.selectRange(start, end);
+            selectLine(newTabForFile, line);
 
             // now change the background of the label in left column to orange
             LineNumAndBreakpointFactory lFactory =
@@ -205,11 +206,10 @@ public class HighlightManager implements ChangeListener<Machine.StateWrapper>
     private void unhighlightBreakInText(RAM ram, int breakAddress) {
         SourceLine sourceLine = ram.getSourceLine(breakAddress);
         if (sourceLine != null) {
-            File file = new File(sourceLine.getFileName());
-            if (!file.canRead()) {
+            CodePaneTab tabForFile = getTabForFileName(sourceLine.getFileName());
+            if (tabForFile == null) {
                 return;
             }
-            Tab tabForFile = desktop.getTabForFile(file);
             InlineStyleTextArea text = (InlineStyleTextArea) tabForFile.getContent();
             LineNumAndBreakpointFactory lFactory =
                     (LineNumAndBreakpointFactory) text.getParagraphGraphicFactory();
@@ -232,19 +232,15 @@ public class HighlightManager implements ChangeListener<Machine.StateWrapper>
         for (int address : addresses) {
             SourceLine sourceLine = ram.getSourceLine(address);
             if (sourceLine != null) {
-                File file = new File(sourceLine.getFileName());
-                if (!file.canRead()) {
+                CodePaneTab newTabForFile = getTabForFileName(sourceLine.getFileName());
+                if (newTabForFile == null) {
                     Dialogs.createErrorDialog(desktop.getStage(), "File Not Found",
                             "CPU Sim could not find the file to open and highlight:  " +
-                                    file.getAbsolutePath()).showAndWait();
+                                    new File(sourceLine.getFileName()).getAbsolutePath())
+                            .showAndWait();
                     return;
                 }
-                Tab newTabForFile = desktop.getTabForFile(file);
-                InlineStyleTextArea text = (InlineStyleTextArea) newTabForFile.getContent();
-                int line = sourceLine.getLine();
-                int start = getLineStartOffset(text.getText(), line);
-                int end = getLineEndOffset(text.getText(), line);
-                text.selectRange(start, end);
+                selectLine(newTabForFile, sourceLine.getLine());
 
                 //window.highlightAndScrollToLine(sourceLine.getLine());
 
@@ -253,55 +249,45 @@ public class HighlightManager implements ChangeListener<Machine.StateWrapper>
     }
 
     /**
-     * Determines the offset of the start of the given line.
+     * returns the tab holding the given source file and brings it to front,
+     * opening the file in a new tab if it is not already open.  The tabs found
+     * are cached, so that the tabs and the file system are searched only when
+     * a file is first highlighted or after its tab was closed or given
+     * another file.
      *
-     * @param content the text string that content the line
-     * @param line    line index
-     * @return the offset
+     * @param fileName the name of the source file
+     * @return the tab for the file, or null if the file is not open and
+     * cannot be read
      */
-    private int getLineStartOffset(String content, int line) {
-        if (line == 0) {
-            return 0;
+    private CodePaneTab getTabForFileName(String fileName) {
+        File file = new File(fileName);
+        CodePaneTab tab = tabsForFileNames.get(fileName);
+        if (tab != null && tab.getTabPane() != null && file.equals(tab.getFile())) {
+            tab.getTabPane().getSelectionModel().select(tab);
+            return tab;
         }
-        int count = 0;
-        int lineNum = 0;
-        while (count < content.length()) {
-            if (content.substring(count, count + 1).equals("\n")) {
-                lineNum++;
-                count++;
-            }
-            else {
-                count++;
-            }
-            if (lineNum == line) {
-                return count;
-            }
+        if (!file.canRead()) {
+            tabsForFileNames.remove(fileName);
+            return null;
         }
-        return content.length() - 1;
+        tab = (CodePaneTab) desktop.getTabForFile(file);
+        tabsForFileNames.put(fileName, tab);
+        return tab;
     }
 
     /**
-     * Determines the offset of the end of the given line.
+     * selects the given line, including its newline, in the text of the
+     * given tab.  The offsets of the line are looked up in the tab's line
+     * index, so the time does not depend on the size of the text.
      *
-     * @param content the text string that content the line
-     * @param line    line index
-     * @return the offset
+     * @param tab  the tab holding the text
+     * @param line the index of the line to be selected
      */
-    private int getLineEndOffset(String content, int line) {
-        int count = getLineStartOffset(content, line);
-        while (count < content.length()) {
-            if (content.substring(count, count + 1).equals("\n")) {
-                count++;
-                if (count >= content.length()) {
-                    count = content.length() - 1;
-                }
-                return count;
-            }
-            else {
-                count++;
-            }
-        }
-        return content.length() - 1;
+    private void selectLine(CodePaneTab tab, int line) {
+        InlineStyleTextArea text = (InlineStyleTextArea) tab.getContent();
+        LineOffsetIndex lineOffsets = tab.getLineOffsetIndex();
+        text.selectRange(lineOffsets.getLineStartOffset(line),
+                lineOffsets.getLineEndOffset(line));
     }
 
     //--------------------------------
@@ -360,7 +346,9 @@ public class HighlightManager implements ChangeListener<Machine.StateWrapper>
         }
 
         // update the break state
-        if ( ! this.startBreak && newStateWrapper.getState() == Machine.State.BREAK) {
+        if ( ! this.startBreak && newStateWrapper.getState() == Machine.State.BREAK &&
+                newStateWrapper.getValue() instanceof RAMLocation) {
+            // breaks at watched registers have no cell to highlight
             saveStartOfCycleValues();
             // in the next update of the display, turn on the break highlighting
             this.breakRAM = ((RAMLocation) newStateWrapper.getValue()).getRam();
@@ -0,0 +1,29 @@
+///////////////////////////////////////////////////////////////////////////////
+// File:    	IntelHexReaderException.java
+// Project: 	CPU Sim
+//
+// Description:
+// An extension of RuntimeException to handle any errors while reading
+//    an Intel HEX file into a RAM.
+
+
+///////////////////////////////////////////////////////////////////////////////
+// the package in which our project resides
+
+package cpusim.util;
+
+
+/**
+ * This class represents exceptions thrown when attempting to read an Intel
+ * HEX file (see cpusim.mif.RAMImporter) that is malformed or whose records
+ * do not fit the cells of the RAM it is being loaded into.
+ */
+public class IntelHexReaderException extends RuntimeException
+{
+
+    public IntelHexReaderException(String message)
+    {
+        super(message);
+    }
+
+}
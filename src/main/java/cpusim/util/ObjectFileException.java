@@ -0,0 +1,29 @@
+///////////////////////////////////////////////////////////////////////////////
+// File:    	ObjectFileException.java
+// Project: 	CPU Sim
+//
+// Description:
+// An extension of RuntimeException to handle any errors while reading
+//    a binary object file into a RAM.
+
+
+///////////////////////////////////////////////////////////////////////////////
+// the package in which our project resides
+
+package cpusim.util;
+
+
+/**
+ * This class represents exceptions thrown when attempting to read a binary
+ * object file (see cpusim.mif.ObjectFile) that is malformed or that does not
+ * fit into the RAM it is being loaded into.
+ */
+public class ObjectFileException extends RuntimeException
+{
+
+    public ObjectFileException(String message)
+    {
+        super(message);
+    }
+
+}
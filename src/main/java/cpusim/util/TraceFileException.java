@@ -0,0 +1,29 @@
+///////////////////////////////////////////////////////////////////////////////
+// File:    	TraceFileException.java
+// Project: 	CPU Sim
+//
+// Description:
+// An extension of RuntimeException to handle any errors while reading
+//    an execution trace file or replaying it into a machine.
+
+
+///////////////////////////////////////////////////////////////////////////////
+// the package in which our project resides
+
+package cpusim.util;
+
+
+/**
+ * This class represents exceptions thrown when attempting to read an
+ * execution trace file (see cpusim.mif.TraceReader) that is malformed or
+ * that was recorded from a machine other than the one it is replayed into.
+ */
+public class TraceFileException extends RuntimeException
+{
+
+    public TraceFileException(String message)
+    {
+        super(message);
+    }
+
+}
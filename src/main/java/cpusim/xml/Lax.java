@@ -15,8 +15,11 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.File;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.Vector;
 
 public class Lax extends org.xml.sax.helpers.DefaultHandler
@@ -24,21 +27,30 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
 
     // LAX translates XML content into method calls on this object
     private Vector<Object> _vecHandlers = null;
+    private Vector<Dispatch> _vecDispatches = null; // the Dispatch of each handler
     private Vector<String> _vecTags = null;
-    private static Class[] _caNoArgs = null;
-    private static Class[] _caAttrList = null;
-    private static Class[] _caString = null;
-    private static Class[] _caLocator = null;
     private ErrorHandler errorHandler;
 
-    // Initialize class arrays used for reflection
-    static
+    // The uniform types of the handles in a Dispatch table
+    private static final MethodType _mtStart =
+            MethodType.methodType(void.class, Object.class, Attributes.class);
+    private static final MethodType _mtEnd =
+            MethodType.methodType(void.class, Object.class);
+    private static final MethodType _mtText =
+            MethodType.methodType(void.class, Object.class, String.class);
+    private static final MethodType _mtLocator =
+            MethodType.methodType(void.class, Object.class, Locator.class);
+
+    // The Dispatch table of each handler class, built the first time a
+    // handler of that class is added and shared by all Lax objects
+    private static final ClassValue<Dispatch> _dispatches = new ClassValue<Dispatch>()
     {
-        _caNoArgs = new Class[]{};
-        _caAttrList = new Class[]{org.xml.sax.Attributes.class};
-        _caString = new Class[]{java.lang.String.class};
-        _caLocator = new Class[]{org.xml.sax.Locator.class};
-    }
+        @Override
+        protected Dispatch computeValue(Class<?> classOfHandler)
+        {
+            return new Dispatch(classOfHandler);
+        }
+    };
 
     //--------------------------
     /**
@@ -48,6 +60,7 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
     {
         super();
         _vecHandlers = new Vector<Object>();
+        _vecDispatches = new Vector<Dispatch>();
         _vecTags = new Vector<String>();
         errorHandler = null;
     }
@@ -61,6 +74,7 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
     {
         super();
         _vecHandlers = new Vector<Object>();
+        _vecDispatches = new Vector<Dispatch>();
         _vecTags = new Vector<String>();
         addHandler(handler_);
     }
@@ -73,6 +87,7 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
     public void addHandler(Object objHandler_)
     {
         _vecHandlers.addElement(objHandler_);
+        _vecDispatches.addElement(_dispatches.get(objHandler_.getClass()));
     }
 
     //--------------------------
@@ -86,13 +101,12 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
         // Call every setDocumentLocator method found in the list of handlers.
         for (int i = 0; i < _vecHandlers.size(); i++) {
             Object oThisHandler = _vecHandlers.elementAt(i);
-            Method setDocLocMethod =
-                    mFindMethod(oThisHandler, "setDocumentLocator", _caLocator);
-            if (setDocLocMethod != null) {
+            MethodHandle setDocLocHandle = _vecDispatches.elementAt(i).locator;
+            if (setDocLocHandle != null) {
                 // Call the method
                 try {
-                    setDocLocMethod.invoke(oThisHandler, locator);
-                } catch (Exception mre) {
+                    setDocLocHandle.invokeExact(oThisHandler, locator);
+                } catch (Throwable mre) {
                     //do nothing since the handler blew it and so doesn't get
                     //to set its locator
                 }
@@ -118,6 +132,7 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
     public void reset()
     {
         _vecHandlers.removeAllElements();
+        _vecDispatches.removeAllElements();
         _vecTags.removeAllElements();
     }
 
@@ -132,35 +147,22 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
         String sCurrentTag = sCurrentTag();
 
         if (sCurrentTag != null) {
-            int i;
-            String sTextMethodName = "textOf" + sCurrentTag;
             String sArg = null;
 
             // Call every text method for current tag found in the list
             //of handlers
-            for (i = 0; i < _vecHandlers.size(); i++) {
+            for (int i = 0; i < _vecHandlers.size(); i++) {
                 Object oThisHandler = _vecHandlers.elementAt(i);
-                Method mTextMethod =
-                        mFindMethod(oThisHandler, sTextMethodName, _caString);
-                if (mTextMethod != null) {
+                MethodHandle mTextHandle =
+                        _vecDispatches.elementAt(i).texts.get(sCurrentTag);
+                if (mTextHandle != null) {
                     if (sArg == null) {
                         sArg = new String(caChars, iStart, iEnd);
                     }
                     try {
-                        mTextMethod.invoke(oThisHandler, sArg);
-                    } catch (InvocationTargetException ite) {
-                        //Note:  java.lang.reflect.InvocationTargetException.getMessage()
-                        //just returns the ite's message even if it is null.  So
-                        //in that case, we'll rewrap the target exception
-                        //in a SAXException.
-                        if (ite.getMessage() == null
-                                && ite.getTargetException() != null
-                                && ite.getTargetException() instanceof Exception)
-                            throw new SAXException((Exception) ite.getTargetException());
-                        else
-                            throw new SAXException(ite);
-                    } catch (Exception mre) {
-                        throw new SAXException(mre);
+                        mTextHandle.invokeExact(oThisHandler, sArg);
+                    } catch (Throwable t) {
+                        throw saxExceptionFor(t);
                     }
                 }
             }
@@ -184,31 +186,16 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
     public void endElement(String uri, String localName, String qName)
             throws SAXException
     {
-        int i;
-        String sEndMethodName = "end" + qName;
-
-        // Call every tag start method for this tag found in the list
+        // Call every tag end method for this tag found in the list
         //of handlers.
-        for (i = 0; i < _vecHandlers.size(); i++) {
+        for (int i = 0; i < _vecHandlers.size(); i++) {
             Object oThisHandler = _vecHandlers.elementAt(i);
-            Method mEndMethod =
-                    mFindMethod(oThisHandler, sEndMethodName, _caNoArgs);
-            if (mEndMethod != null) {
+            MethodHandle mEndHandle = _vecDispatches.elementAt(i).ends.get(qName);
+            if (mEndHandle != null) {
                 try {
-                    mEndMethod.invoke(oThisHandler);
-                } catch (InvocationTargetException ite) {
-                    //Note:  java.lang.reflect.InvocationTargetException.getMessage()
-                    //just returns the ite's message even if it is null.  So
-                    //in that case, we'll rewrap the target exception
-                    //in a SAXException.
-                    if (ite.getMessage() == null
-                            && ite.getTargetException() != null
-                            && ite.getTargetException() instanceof Exception)
-                        throw new SAXException((Exception) ite.getTargetException());
-                    else
-                        throw new SAXException(ite);
-                } catch (Exception mre) {
-                    throw new SAXException(mre);
+                    mEndHandle.invokeExact(oThisHandler);
+                } catch (Throwable t) {
+                    throw saxExceptionFor(t);
                 }
             }
         }
@@ -217,26 +204,18 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
 
     //--------------------------
     /**
-     * Return a method of object oHandler
-     * with the given name and argument list, or null if not found
-     * @return java.lang.reflect.Method
-     * @param oHandler java.lang.Object - handler object to search for a method
-     * @param sMethodName java.lang.String - The tag to find.
-     * @param caArgs the array of Class objects forming the arguments
+     * Return the exception to be thrown when a handler method throws the
+     * given Throwable.  Errors are rethrown as they are.  An exception is
+     * wrapped in a SAXException so that its message is the handler's message.
+     * @param t the Throwable thrown by the handler method
+     * @return the SAXException to be thrown
      */
-    private Method mFindMethod(Object oHandler, String sMethodName,
-                               Class[] caArgs)
+    private static SAXException saxExceptionFor(Throwable t)
     {
-        Method m = null;
-        Class classOfHandler = oHandler.getClass();
-
-        // Find a method with the given name and argument list
-        try {
-            m = classOfHandler.getMethod(sMethodName, caArgs);
-        } catch (NoSuchMethodException ex) {
-            // Ignore exception - no such method exists.
+        if (t instanceof Error) {
+            throw (Error) t;
         }
-        return m;
+        return new SAXException((Exception) t);
     }
 
     //--------------------------
@@ -321,42 +300,19 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
                              String qName, Attributes alAttrs)
             throws org.xml.sax.SAXException
     {
-        int i;
-        String sStartMethodName = "start" + qName;
-
         pushTag(qName);
 
         // Call every tag start method for this tag found in the list of handlers.
-        for (i = 0; i < _vecHandlers.size(); i++) {
+        for (int i = 0; i < _vecHandlers.size(); i++) {
             Object oThisHandler = _vecHandlers.elementAt(i);
-            Method mStartMethod = mFindMethod(oThisHandler, sStartMethodName, _caAttrList);
-            if (mStartMethod == null) {
-                mStartMethod = mFindMethod(oThisHandler, sStartMethodName, _caNoArgs);
-            }
-            if (mStartMethod != null) {
-                // Call start method with or without attribute list
-                Class[] caMethodArgs = mStartMethod.getParameterTypes();
+            MethodHandle mStartHandle = _vecDispatches.elementAt(i).starts.get(qName);
+            if (mStartHandle != null) {
+                // Call start method, which ignores the attribute list
+                // if it has no parameters
                 try {
-                    if (caMethodArgs.length == 0) {
-                        mStartMethod.invoke(oThisHandler);
-                    }
-                    else {
-                        mStartMethod.invoke(oThisHandler, alAttrs);
-                    }
-                } catch (InvocationTargetException ite) {
-                    //Note:  java.lang.reflect.InvocationTargetException.getMessage()
-                    //just returns the ite's message even if it is null.  So
-                    //in that case, we'll rewrap the target exception
-                    //in a SAXException.
-                    //ite.printStackTrace();
-                    if (ite.getMessage() == null
-                            && ite.getTargetException() != null
-                            && ite.getTargetException() instanceof Exception)
-                        throw new SAXException((Exception) ite.getTargetException());
-                    else
-                        throw new SAXException(ite);
-                } catch (Exception mre) {
-                    throw new SAXException(mre);
+                    mStartHandle.invokeExact(oThisHandler, alAttrs);
+                } catch (Throwable t) {
+                    throw saxExceptionFor(t);
                 }
             }
         }
@@ -396,4 +352,60 @@ public class Lax extends org.xml.sax.helpers.DefaultHandler
             errorHandler.warning(ex);
         //else do nothing since warnings should allow parsing to continue
     }
-}
\ No newline at end of file
+
+    //--------------------------
+    /**
+     * The table of handler methods of one handler class, keyed by tag.
+     * A public method named "start" + tag taking an Attributes or no
+     * arguments, "end" + tag taking no arguments, or "textOf" + tag taking a
+     * String is the handler of that tag.  The methods are found once per
+     * class and stored as MethodHandles adapted to a uniform type so that
+     * each SAX event needs just one table lookup and no reflection.
+     */
+    private static class Dispatch
+    {
+        final HashMap<String, MethodHandle> starts = new HashMap<>();
+        final HashMap<String, MethodHandle> ends = new HashMap<>();
+        final HashMap<String, MethodHandle> texts = new HashMap<>();
+        MethodHandle locator = null;
+
+        Dispatch(Class<?> classOfHandler)
+        {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            for (Method m : classOfHandler.getMethods()) {
+                String name = m.getName();
+                Class<?>[] caArgs = m.getParameterTypes();
+                try {
+                    if (name.startsWith("start") && caArgs.length == 1 &&
+                            caArgs[0] == Attributes.class) {
+                        // a start method with an attribute list is preferred
+                        starts.put(name.substring(5),
+                                lookup.unreflect(m).asType(_mtStart));
+                    }
+                    else if (name.startsWith("start") && caArgs.length == 0) {
+                        MethodHandle h = MethodHandles.dropArguments(
+                                lookup.unreflect(m).asType(_mtEnd), 1,
+                                Attributes.class);
+                        starts.putIfAbsent(name.substring(5), h);
+                    }
+                    else if (name.startsWith("end") && caArgs.length == 0) {
+                        ends.put(name.substring(3),
+                                lookup.unreflect(m).asType(_mtEnd));
+                    }
+                    else if (name.startsWith("textOf") && caArgs.length == 1 &&
+                            caArgs[0] == String.class) {
+                        texts.put(name.substring(6),
+                                lookup.unreflect(m).asType(_mtText));
+                    }
+                    else if (name.equals("setDocumentLocator") && caArgs.length == 1
+                            && caArgs[0] == Locator.class) {
+                        locator = lookup.unreflect(m).asType(_mtLocator);
+                    }
+                } catch (IllegalAccessException ex) {
+                    // Ignore the method - it cannot be called from here,
+                    // just as if it did not exist.
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * File: MachineBinary.java
+ * Project: CPU Sim
+ */
+
+package cpusim.xml;
+
+import cpusim.model.Machine;
+import cpusim.util.MachineReaderException;
+import cpusim.util.RegisterRAMPair;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class reads and writes binary machine files, a compact form of the
+ * XML machine files written by MachineWriter.  A binary machine file holds
+ * the already parsed and validated contents of a machine's XML document:
+ * its elements, with their attributes and the line numbers they had in the
+ * XML, and a table of all the strings used.  Reading it replays those
+ * elements into a MachineReader, so the machine is built and checked exactly
+ * as when the XML is read, but without parsing or validating any XML.
+ * <p>
+ * All values are stored big-endian.  The layout (version 1) is:
+ * <pre>
+ *   int    magic number "CPSM"
+ *   short  version
+ *   int    number of strings, followed by each string
+ *   int    number of events, followed by each event:
+ *          byte START_ELEMENT, int line, int tag, int number of attributes,
+ *               followed by (int name, int value) pairs
+ *          byte END_ELEMENT
+ *          byte TEXT, int line, int text
+ * </pre>
+ * where a string is an int byte count followed by the UTF-8 bytes, and the
+ * tags, names, values and texts of the events are indices into the table
+ * of strings.
+ */
+public class MachineBinary
+{
+    /** the file name extension of binary machine files */
+    public static final String EXTENSION = ".cpub";
+
+    /** the bytes "CPSM", used to recognize binary machine files */
+    private static final int MAGIC = 0x4350534D;
+    /** the current version of the format */
+    private static final short VERSION = 1;
+
+    // the kinds of events
+    private static final byte START_ELEMENT = 1;
+    private static final byte END_ELEMENT = 2;
+    private static final byte TEXT = 3;
+
+    /**
+     * returns true if the given file starts with the magic number of a binary
+     * machine file.
+     *
+     * @param file the file to check
+     * @return true if the file is a binary machine file
+     * @throws IOException if the file could not be read
+     */
+    public static boolean isBinaryMachineFile(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return file.length() >= 4 && in.readInt() == MAGIC;
+        }
+    }
+
+    /**
+     * writes the given machine to the given file in binary form.
+     *
+     * @param machine the machine to be saved
+     * @param name the name of the machine, as for MachineWriter.writeMachine
+     * @param rrPairs the register-RAM pairs to be saved with the machine
+     * @param file the binary machine file to be written
+     * @throws IOException if the file could not be written
+     */
+    public static void write(Machine machine, String name,
+                             ObservableList<RegisterRAMPair> rrPairs,
+                             File file) throws IOException {
+        StringWriter xml = new StringWriter();
+        new MachineWriter().writeMachine(machine, withoutExtension(name), rrPairs,
+                new PrintWriter(xml));
+        try {
+            record(new InputSource(new StringReader(xml.toString())), file);
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("The machine could not be converted to " +
+                    "binary form.\n" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * returns the given name without the binary machine file extension, so
+     * that a machine read from or saved to a binary machine file is not
+     * named after the file with its extension
+     *
+     * @param name the name of a machine or of its file
+     * @return the name without EXTENSION at the end
+     */
+    public static String withoutExtension(String name) {
+        if (name.toLowerCase().endsWith(EXTENSION)) {
+            return name.substring(0, name.length() - EXTENSION.length());
+        }
+        return name;
+    }
+
+    /**
+     * converts the given XML machine file to a binary machine file.  The XML
+     * is validated against its DTD during the conversion.
+     *
+     * @param xmlFile the XML machine file
+     * @param binaryFile the binary machine file to be written
+     * @throws Exception if the XML file cannot be read or is not valid,
+     *                   or if the binary file could not be written
+     */
+    public static void convertToBinary(File xmlFile, File binaryFile)
+            throws Exception {
+        // read the machine first so that only valid machines are converted
+        new MachineReader().parseDataFromFile(xmlFile);
+        record(new InputSource(xmlFile.toURI().toString()), binaryFile);
+    }
+
+    /**
+     * converts the given binary machine file to an XML machine file.
+     *
+     * @param binaryFile the binary machine file
+     * @param xmlFile the XML machine file to be written
+     * @throws Exception if the binary file cannot be read or does not hold
+     *                   a valid machine, or if the XML file could not be written
+     */
+    public static void convertToXML(File binaryFile, File xmlFile)
+            throws Exception {
+        MachineReader reader = new MachineReader();
+        reader.parseDataFromFile(binaryFile);
+        try (PrintWriter out = new PrintWriter(
+                new BufferedWriter(new FileWriter(xmlFile)))) {
+            new MachineWriter().writeMachine(reader.getMachine(), xmlFile.getName(),
+                    FXCollections.observableList(reader.getRegisterRAMPairs()), out);
+        }
+    }
+
+    /**
+     * replays the elements stored in the given binary machine file into the
+     * given handler, as a SAX parser would report them.
+     *
+     * @param file the binary machine file
+     * @param handler the handler of the elements
+     * @throws IOException if the file could not be read
+     * @throws SAXException if the handler throws it
+     * @throws MachineReaderException if the file is not a valid binary
+     *                                machine file
+     */
+    static void replay(File file, ContentHandler handler)
+            throws IOException, SAXException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        try {
+            if (buf.getInt() != MAGIC) {
+                throw new MachineReaderException("The file " + file.getName() +
+                        " is not a binary machine file.");
+            }
+            short version = buf.getShort();
+            if (version != VERSION) {
+                throw new MachineReaderException("The binary machine file " +
+                        file.getName() + " has version " + version + ", which " +
+                        "this version of CPU Sim cannot read.");
+            }
+
+            String[] strings = new String[checkLength(buf.getInt(), 4, buf, file)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[checkLength(buf.getInt(), 1, buf, file)];
+                buf.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            ReplayLocator locator = new ReplayLocator(file);
+            AttributesImpl attrs = new AttributesImpl();
+            List<String> openTags = new ArrayList<>();
+            handler.setDocumentLocator(locator);
+            handler.startDocument();
+            int numEvents = buf.getInt();
+            for (int i = 0; i < numEvents; i++) {
+                byte kind = buf.get();
+                if (kind == START_ELEMENT) {
+                    locator.line = buf.getInt();
+                    String tag = strings[buf.getInt()];
+                    int numAttrs = buf.getInt();
+                    attrs.clear();
+                    for (int j = 0; j < numAttrs; j++) {
+                        String attrName = strings[buf.getInt()];
+                        attrs.addAttribute("", attrName, attrName, "CDATA",
+                                strings[buf.getInt()]);
+                    }
+                    openTags.add(tag);
+                    handler.startElement("", tag, tag, attrs);
+                }
+                else if (kind == END_ELEMENT && openTags.size() > 0) {
+                    String tag = openTags.remove(openTags.size() - 1);
+                    handler.endElement("", tag, tag);
+                }
+                else if (kind == TEXT) {
+                    locator.line = buf.getInt();
+                    char[] text = strings[buf.getInt()].toCharArray();
+                    handler.characters(text, 0, text.length);
+                }
+                else {
+                    throw corrupt(file);
+                }
+            }
+            if (openTags.size() > 0) {
+                throw corrupt(file);
+            }
+            handler.endDocument();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw corrupt(file);
+        }
+    }
+
+    /**
+     * checks that the given number of items read from the file, each taking
+     * at least the given number of bytes, is not negative and fits in the
+     * rest of the file, so that a corrupt length cannot make the reader
+     * allocate a huge array
+     */
+    private static int checkLength(int length, int bytesEach, ByteBuffer buf,
+                                   File file) {
+        if (length < 0 || (long) length * bytesEach > buf.remaining()) {
+            throw corrupt(file);
+        }
+        return length;
+    }
+
+    private static MachineReaderException corrupt(File file) {
+        return new MachineReaderException("The binary machine file " +
+                file.getName() + " is truncated or corrupt.");
+    }
+
+    /**
+     * parses the given XML machine document, validating it, and writes the
+     * elements reported by the parser to the given binary file.
+     */
+    private static void record(InputSource source, File file)
+            throws IOException, SAXException, ParserConfigurationException {
+        SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+        saxParserFactory.setValidating(true);
+        saxParserFactory.setNamespaceAware(false);
+        Recorder recorder = new Recorder();
+        saxParserFactory.newSAXParser().parse(source, recorder);
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(recorder.strings.size());
+            for (String s : recorder.strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(recorder.numEvents);
+            recorder.events.writeTo(out);
+        }
+    }
+
+    /**
+     * records the events reported by a SAX parser in the binary format,
+     * collecting the table of strings as it goes.  Invalid documents are
+     * rejected just as they are by Lax.
+     */
+    private static class Recorder extends DefaultHandler
+    {
+        final List<String> strings = new ArrayList<>();
+        final HashMap<String, Integer> stringIndices = new HashMap<>();
+        final ByteArrayOutputStream events = new ByteArrayOutputStream();
+        final DataOutputStream eventsOut = new DataOutputStream(events);
+        int numEvents = 0;
+        Locator locator = null;
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName,
+                                 Attributes attrs) throws SAXException {
+            try {
+                eventsOut.writeByte(START_ELEMENT);
+                eventsOut.writeInt(line());
+                eventsOut.writeInt(indexOf(qName));
+                eventsOut.writeInt(attrs.getLength());
+                for (int i = 0; i < attrs.getLength(); i++) {
+                    eventsOut.writeInt(indexOf(attrs.getQName(i)));
+                    eventsOut.writeInt(indexOf(attrs.getValue(i)));
+                }
+                numEvents++;
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName)
+                throws SAXException {
+            try {
+                eventsOut.writeByte(END_ELEMENT);
+                numEvents++;
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length)
+                throws SAXException {
+            try {
+                eventsOut.writeByte(TEXT);
+                eventsOut.writeInt(line());
+                eventsOut.writeInt(indexOf(new String(ch, start, length)));
+                numEvents++;
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+
+        @Override
+        public void error(org.xml.sax.SAXParseException ex) throws SAXException {
+            throw ex;
+        }
+
+        private int line() {
+            return locator == null ? -1 : locator.getLineNumber();
+        }
+
+        private int indexOf(String s) {
+            Integer index = stringIndices.get(s);
+            if (index == null) {
+                index = strings.size();
+                strings.add(s);
+                stringIndices.put(s, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * a Locator giving the line number that the element being replayed had
+     * in the XML document from which the binary file was made
+     */
+    private static class ReplayLocator implements Locator
+    {
+        private final String systemId;
+        int line = -1;
+
+        ReplayLocator(File file) {
+            this.systemId = file.toURI().toString();
+        }
+
+        @Override
+        public String getPublicId() {
+            return null;
+        }
+
+        @Override
+        public String getSystemId() {
+            return systemId;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return line;
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return -1;
+        }
+    }
+}
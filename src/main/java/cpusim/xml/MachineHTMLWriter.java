@@ -160,7 +160,7 @@ public class MachineHTMLWriter
 
     //----------------------
     // sends the HTML document containing the machine description to
-    // the PrintWriter
+    // the PrintWriter and then closes it
     public void writeMachineInHTML(Machine machine, PrintWriter out)
     {
         ObservableList[]  moduleVectors = {
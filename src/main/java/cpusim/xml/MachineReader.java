@@ -69,8 +69,13 @@ import java.util.*;
 
 public class MachineReader implements CPUSimConstants
 {
+    //initial capacity of the components map, big enough for machines with
+    //hundreds of microinstructions so that it is not rehashed while reading
+    private static final int INITIAL_COMPONENTS_CAPACITY = 1024;
+
     private Machine machine;  //the new machine to be read from the file
-    private HashMap components; //key = id, value = module
+    private HashMap<String, NamedObject> components;
+    //key = id, value = module or microinstruction
     private MachineInstruction currentInstruction;
     //the current machine instruction being constructed
     private String currentFormat; //holds the field lengths until they are
@@ -79,7 +84,7 @@ public class MachineReader implements CPUSimConstants
     private Locator locator;
     private Vector<RegisterRAMPair> registerRAMPairs; //holds the current pairs
     private HashMap cellSizeInfo; //key = ram, value = cellSize for the ram window
-    private HashMap channels; //key = id, value = FileChannel
+    private HashMap<String, FileChannel> channels; //key = id, value = FileChannel
     private RegisterArray currentRegisterArray;
     //the current RegisterArray being constructed
     private int currentRegisterArrayIndex;
@@ -128,7 +133,7 @@ public class MachineReader implements CPUSimConstants
     public void reset()
     {
         machine = null;
-        components = new HashMap();
+        components = new HashMap<>(INITIAL_COMPONENTS_CAPACITY);
         currentInstruction = null;
         currentFormat = "";
         opcodeString = null;
@@ -136,7 +141,7 @@ public class MachineReader implements CPUSimConstants
         locator = null;
         registerRAMPairs = new Vector<>();
         cellSizeInfo = new HashMap();
-        channels = new HashMap();
+        channels = new HashMap<>();
         currentRegisterArray = null;
         currentRegisterArrayIndex = 0;
         fields = new HashMap<>();
@@ -148,7 +153,8 @@ public class MachineReader implements CPUSimConstants
     }
 
     /**
-     * reads and stores all the info from the given file.
+     * reads and stores all the info from the given file, which is either
+     * an XML machine file or a binary machine file written by MachineBinary.
      * Throws an exception if there is an error attempting to parse the file.
      *
      * @param fileToOpen the file containing the machine description
@@ -160,7 +166,12 @@ public class MachineReader implements CPUSimConstants
         lax.reset();
         reset();
         lax.addHandler(this);
-        lax.parseDocument(true, lax, fileToOpen);
+        if (MachineBinary.isBinaryMachineFile(fileToOpen)) {
+            MachineBinary.replay(fileToOpen, lax);
+        }
+        else {
+            lax.parseDocument(true, lax, fileToOpen);
+        }
     }
 
     //--------------------------
@@ -206,6 +217,7 @@ public class MachineReader implements CPUSimConstants
         if (name.endsWith(".xml") || name.endsWith(".cpu")) {
             name = name.substring(0, name.length() - 4);
         }
+        name = MachineBinary.withoutExtension(name);
         machine = new Machine(name, true);
         //Don't the next lines duplicate what's in the reset() method?
         //        components.clear();
@@ -1928,10 +1940,7 @@ public class MachineReader implements CPUSimConstants
     // one of the FileChannels in the channels HashMap
     private boolean channelsUse(String fileName)
     {
-        Collection e = channels.values();
-        Iterator it = e.iterator();
-        while (it.hasNext()) {
-            FileChannel channel = (FileChannel) it.next();
+        for (FileChannel channel : channels.values()) {
             if (channel.getFile().toString().equals(fileName)) {
                 return true;
             }
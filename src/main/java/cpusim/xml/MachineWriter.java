@@ -234,6 +234,8 @@ public class MachineWriter
     //      3 assembly language options
     // The rrPairs are the register/ram pairs for highlighting
     // The module windows are the open windows for registers and rams
+    // The PrintWriter is closed at the end, so if it is buffered and not
+    // auto-flushing, the whole document is written with a single flush.
     public void writeMachine(Machine machine, String name, ObservableList<RegisterRAMPair> rrPairs, PrintWriter out)
     {
         ObservableList[] moduleVectors = {